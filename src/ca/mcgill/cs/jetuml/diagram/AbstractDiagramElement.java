@@ -62,6 +62,14 @@ public abstract class AbstractDiagramElement implements DiagramElement
 		return aProperties;
 	}
 	
+	/**
+	 * Signals that a change to this element may have modified its geometry.
+	 * Subclasses should call this method whenever they modify
+	 * state that is used to compute their view. Does nothing by default.
+	 */
+	protected void notifyChanged()
+	{}
+	
 	/**
 	 * Builds the properties object associated with this object.
 	 * Must be outside the constructor because of cloning.
@@ -70,6 +78,6 @@ public abstract class AbstractDiagramElement implements DiagramElement
 	 */
 	protected void buildProperties()
 	{
-		aProperties = new Properties();
+		aProperties = new Properties(this::notifyChanged);
 	}
 }
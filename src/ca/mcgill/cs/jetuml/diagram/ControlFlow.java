@@ -32,7 +32,10 @@ import ca.mcgill.cs.jetuml.diagram.nodes.ImplicitParameterNode;
 /**
  * An immutable wrapper around a SequenceDiagram that can answer
  * various queries about the control-flow represented by 
- * the wrapped sequence diagram.
+ * the wrapped sequence diagram. The queries are answered from the 
+ * index of calls maintained by the diagram, so their cost depends on the 
+ * number of calls made from or to the nodes involved, and not on the
+ * size of the diagram. A ControlFlow remains valid when the diagram changes.
  */
 public final class ControlFlow
 {
@@ -63,12 +66,9 @@ public final class ControlFlow
 	{
 		assert pNode != null && aDiagram.contains(pNode);
 		List<Node> callees = new ArrayList<Node>();
-		for(Edge edge : aDiagram.edges() )
+		for( CallEdge call : aDiagram.callsFrom(pNode) )
 		{
-			if ( edge.getStart() == pNode && edge.getClass() == CallEdge.class )
-			{
-				callees.add(edge.getEnd());
-			}
+			callees.add(call.getEnd());
 		}
 		return callees;
 	}
@@ -81,15 +81,7 @@ public final class ControlFlow
 	public List<CallEdge> getCalls(Node pCaller)
 	{
 		assert pCaller != null;
-		ArrayList<CallEdge> result = new ArrayList<>();
-		for( Edge edge : aDiagram.edges() )
-		{
-			if( edge.getClass() == CallEdge.class && edge.getStart() == pCaller )
-			{
-				result.add((CallEdge)edge);
-			}
-		}
-		return result;
+		return new ArrayList<>(aDiagram.callsFrom(pCaller));
 	}
 	
 	/**
@@ -103,14 +95,12 @@ public final class ControlFlow
 	public Optional<CallNode> getCaller(Node pNode)
 	{
 		assert pNode != null && aDiagram.contains(pNode);
-		for( Edge edge : aDiagram.edges() )
+		List<CallEdge> calls = aDiagram.callsTo(pNode);
+		if( calls.isEmpty() )
 		{
-			if( edge.getEnd() == pNode  && edge.getClass() == CallEdge.class )
-			{
-				return Optional.of((CallNode) edge.getStart());
-			}
+			return Optional.empty();
 		}
-		return Optional.empty();
+		return Optional.of((CallNode) calls.get(0).getStart());
 	}
 	
 	/**
@@ -126,8 +116,7 @@ public final class ControlFlow
 		assert pNode != null;
 		Optional<CallNode> caller = getCaller(pNode);
 		assert caller.isPresent();
-		List<Node> callees = getCallees(caller.get());
-		return callees.get(0) == pNode;
+		return aDiagram.callsFrom(caller.get()).get(0).getEnd() == pNode;
 	}
 	
 	/**
@@ -210,7 +199,7 @@ public final class ControlFlow
 	public boolean hasNoCallees(CallNode pNode)
 	{
 		assert pNode != null;
-		return getCallees(pNode).isEmpty();
+		return aDiagram.callsFrom(pNode).isEmpty();
 	}
 	
 	/**
@@ -21,9 +21,21 @@
 package ca.mcgill.cs.jetuml.diagram;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
+import ca.mcgill.cs.jetuml.application.DiagramSizeUtils;
+import ca.mcgill.cs.jetuml.diagram.nodes.ChildNode;
 import ca.mcgill.cs.jetuml.diagram.nodes.ParentNode;
+import ca.mcgill.cs.jetuml.geom.Point;
+import ca.mcgill.cs.jetuml.geom.Rectangle;
+import ca.mcgill.cs.jetuml.geom.SpatialIndex;
 
 /**
  *  Stores the logical structure of a diagram. This class hierarchy
@@ -33,6 +45,10 @@ import ca.mcgill.cs.jetuml.diagram.nodes.ParentNode;
  *  (handled by DiagramBuilder), or of computing the geometry of 
  *  a diagram (handled by DiagramView). DiagramData provides immutable
  *  access to the information stored in the diagram.
+ *  
+ *  To speed up hit-testing, a diagram keeps a spatial index of the 
+ *  bounds computed by the views of its elements. Elements notify their diagram
+ *  when they change, which marks the corresponding entries as stale.
  */
 public abstract class Diagram implements DiagramData
 {
@@ -41,36 +57,134 @@ public abstract class Diagram implements DiagramData
 	 * that are children of their parent should be managed and accessed
 	 * through their parent node.
 	 */
-	private ArrayList<Node> aRootNodes;
-	private ArrayList<Edge> aEdges;
+	private final IndexedList<Node> aRootNodes = new IndexedList<>();
+	private final IndexedList<Edge> aEdges = new IndexedList<>();
+	
+	/*
+	 * For each node that is the start or end of at least one edge, the edges
+	 * connected to it. 
+	 */
+	private final Map<Node, IncidentEdges> aIncidentEdges = new IdentityHashMap<>();
+	
+	/*
+	 * The elements added, removed, or changed since the changes were last
+	 * consumed. Changes are only tracked for clients that ask for them.
+	 */
+	private Optional<Set<DiagramElement>> aChangedElements = Optional.empty();
+	
+	private static final int INDEX_CELL_SIZE = 100;
+	private final SpatialIndex<Node> aNodeIndex = 
+			new SpatialIndex<>(Diagram::hitBounds, DiagramSizeUtils.MAX_SIZE, INDEX_CELL_SIZE);
+	private final SpatialIndex<Edge> aEdgeIndex = 
+			new SpatialIndex<>(pEdge -> pEdge.view().getHitBounds(), DiagramSizeUtils.MAX_SIZE, INDEX_CELL_SIZE);
 
 	/**
 	 * Creates an empty diagram.
 	 */
 	public Diagram()
+	{}
+	
+	/**
+	 * Creates a copy of this diagram that does not share any element with
+	 * it. The copy can be used, for example, to save the diagram while 
+	 * this one keeps being edited.
+	 * 
+	 * @return A deep copy of this diagram.
+	 */
+	public Diagram duplicate()
+	{
+		Diagram copy = DiagramType.typeOf(this).newInstance();
+		Map<Node, Node> copies = new IdentityHashMap<>();
+		for( Node node : aRootNodes.asList() )
+		{
+			Node clone = node.clone();
+			mapCopies(node, clone, copies);
+			copy.addRootNode(clone);
+		}
+		for( Edge edge : aEdges.asList() )
+		{
+			Edge clone = edge.clone();
+			clone.connect(copies.get(edge.getStart()), copies.get(edge.getEnd()), copy);
+			copy.addEdge(clone);
+		}
+		return copy;
+	}
+	
+	/*
+	 * Maps pOriginal and its descendants to the corresponding nodes in
+	 * pCopy, whose children are cloned in the same order.
+	 */
+	private static void mapCopies(Node pOriginal, Node pCopy, Map<Node, Node> pCopies)
+	{
+		pCopies.put(pOriginal, pCopy);
+		if( pOriginal instanceof ParentNode )
+		{
+			List<ChildNode> children = ((ParentNode)pOriginal).getChildren();
+			List<ChildNode> copies = ((ParentNode)pCopy).getChildren();
+			for( int i = 0; i < children.size(); i++ )
+			{
+				mapCopies(children.get(i), copies.get(i), pCopies);
+			}
+		}
+	}
+	
+	/*
+	 * The area in which a root node or any of its descendants can be hit.
+	 */
+	private static Rectangle hitBounds(Node pNode)
+	{
+		Rectangle bounds = pNode.view().getHitBounds();
+		if( pNode instanceof ParentNode )
+		{
+			for( Node child : ((ParentNode)pNode).getChildren() )
+			{
+				bounds = bounds.add(hitBounds(child));
+			}
+		}
+		return bounds;
+	}
+	
+	/*
+	 * The edges connected to a node, with a read-only view
+	 * that can be returned to clients without copying. Edges inserted
+	 * in the middle of the diagram's list of edges are appended, and the
+	 * list is sorted back into diagram order the next time it is requested.
+	 */
+	private static final class IncidentEdges
 	{
-		aRootNodes = new ArrayList<>();
-		aEdges = new ArrayList<>();
+		private final List<Edge> aEdges = new ArrayList<>();
+		private final List<Edge> aView = Collections.unmodifiableList(aEdges);
+		private boolean aSorted = true;
+	}
+	
+	private static Node rootOf(Node pNode)
+	{
+		Node root = pNode;
+		while( root instanceof ChildNode && ((ChildNode)root).getParent() != null )
+		{
+			root = ((ChildNode)root).getParent();
+		}
+		return root;
 	}
 	
 	@Override
 	public Iterable<DiagramElement> allElements()
 	{
-		ArrayList<DiagramElement> result = new ArrayList<>(aRootNodes);
-		result.addAll(aEdges);
+		ArrayList<DiagramElement> result = new ArrayList<>(aRootNodes.asList());
+		result.addAll(aEdges.asList());
 		return result;
 	}
 	
 	@Override
 	public Iterable<Node> rootNodes()
 	{
-		return aRootNodes;
+		return aRootNodes.asList();
 	}
 	
 	@Override
 	public Iterable<Edge> edges()
 	{
-		return aEdges;
+		return aEdges.asList();
 	}
 	
 	/**
@@ -97,37 +211,11 @@ public abstract class Diagram implements DiagramData
 	public boolean contains(DiagramElement pElement)
 	{	
 		assert pElement != null;
-		if(aEdges.contains( pElement ))
-		{
-			return true;
-		}
-		for(Node node : aRootNodes)
-		{
-			if(containsNode( node, pElement))
-			{
-				return true;
-			}
-		}
-		return false;
-	}
-	
-	private boolean containsNode(Node pTest, DiagramElement pTarget)
-	{
-		if(pTest == pTarget)
-		{
-			return true;
-		}
-		else if(pTest instanceof ParentNode)
+		if( pElement instanceof Edge )
 		{
-			for(Node node : ((ParentNode) pTest).getChildren())
-			{
-				if(containsNode(node, pTarget))
-				{
-					return true;
-				}
-			}
+			return aEdges.contains((Edge)pElement);
 		}
-		return false;
+		return aRootNodes.contains(rootOf((Node)pElement));
 	}
 
 	/**
@@ -143,23 +231,288 @@ public abstract class Diagram implements DiagramData
 	public abstract Edge[] getEdgePrototypes();
 
 	/**
+	 * Returns a read-only view of the edges connected to pNode, in the same 
+	 * order as in edges(). The view is only valid until the next change 
+	 * to the edges of the diagram, so clients that modify the diagram while 
+	 * iterating over the edges must copy them first.
+	 * 
 	 * @param pNode the node to test for
 	 * @return All the edges connected to pNode
 	 * @pre pNode != null
 	 * @pre contains(pNode)
 	 */
-	public Iterable<Edge> edgesConnectedTo(Node pNode)
+	public List<Edge> edgesConnectedTo(Node pNode)
 	{
 		assert pNode != null && contains(pNode);
-		Collection<Edge> lReturn = new ArrayList<>();
-		for(Edge edge : aEdges)
+		IncidentEdges edges = aIncidentEdges.get(pNode);
+		if( edges == null )
+		{
+			return Collections.emptyList();
+		}
+		if( !edges.aSorted )
+		{
+			edges.aEdges.sort(Comparator.comparingInt(aEdges::indexOf));
+			edges.aSorted = true;
+		}
+		return edges.aView;
+	}
+	
+	/*
+	 * Records pEdge as connected to pNode. pLast indicates whether pEdge
+	 * was added at the end of the list of edges.
+	 */
+	private void addIncidentEdge(Node pNode, Edge pEdge, boolean pLast)
+	{
+		IncidentEdges edges = aIncidentEdges.computeIfAbsent(pNode, pKey -> new IncidentEdges());
+		edges.aEdges.add(pEdge);
+		edges.aSorted &= pLast;
+	}
+	
+	private void removeIncidentEdge(Node pNode, Edge pEdge)
+	{
+		IncidentEdges edges = aIncidentEdges.get(pNode);
+		if( edges != null )
 		{
-			if (edge.getStart() == pNode || edge.getEnd() == pNode)
+			edges.aEdges.remove(pEdge);
+			if( edges.aEdges.isEmpty() )
 			{
-				lReturn.add(edge);
+				aIncidentEdges.remove(pNode);
 			}
 		}
-		return lReturn;
+	}
+
+	/**
+	 * Returns the root nodes that could contain pPoint, either directly or
+	 * through one of their descendants. The result is a subset of the root
+	 * nodes that always includes the nodes that contain pPoint, but that can also
+	 * include nodes that do not.
+	 * 
+	 * @param pPoint The point to test.
+	 * @return The root nodes that could contain pPoint, in the same order as in rootNodes().
+	 * @pre pPoint != null
+	 */
+	public List<Node> rootNodesAt(Point pPoint)
+	{
+		assert pPoint != null;
+		List<Node> result = aNodeIndex.candidatesAt(pPoint);
+		result.sort(Comparator.comparingInt(aRootNodes::indexOf));
+		return result;
+	}
+	
+	/**
+	 * Returns the edges that could contain pPoint. The result is a subset 
+	 * of the edges that always includes the edges that contain pPoint, but that 
+	 * can also include edges that do not.
+	 * 
+	 * @param pPoint The point to test.
+	 * @return The edges that could contain pPoint, in the same order as in edges().
+	 * @pre pPoint != null
+	 */
+	public List<Edge> edgesAt(Point pPoint)
+	{
+		assert pPoint != null;
+		List<Edge> result = aEdgeIndex.candidatesAt(pPoint);
+		result.sort(Comparator.comparingInt(aEdges::indexOf));
+		return result;
+	}
+	
+	/**
+	 * Returns the root nodes that could be visible in pArea, either directly
+	 * or through one of their descendants. The result always includes the 
+	 * nodes whose bounds intersect pArea, but can also include nodes that 
+	 * are slightly outside of it.
+	 * 
+	 * @param pArea The area to test.
+	 * @return The root nodes that could intersect pArea, in the same order as in rootNodes().
+	 * @pre pArea != null
+	 */
+	public List<Node> rootNodesIn(Rectangle pArea)
+	{
+		assert pArea != null;
+		List<Node> result = aNodeIndex.objectsIn(pArea);
+		result.sort(Comparator.comparingInt(aRootNodes::indexOf));
+		return result;
+	}
+	
+	/**
+	 * Returns the edges that could be visible in pArea. The result always 
+	 * includes the edges whose bounds intersect pArea, but can also include 
+	 * edges that are slightly outside of it.
+	 * 
+	 * @param pArea The area to test.
+	 * @return The edges that could intersect pArea, in the same order as in edges().
+	 * @pre pArea != null
+	 */
+	public List<Edge> edgesIn(Rectangle pArea)
+	{
+		assert pArea != null;
+		List<Edge> result = aEdgeIndex.objectsIn(pArea);
+		result.sort(Comparator.comparingInt(aEdges::indexOf));
+		return result;
+	}
+	
+	/**
+	 * Returns the area of the diagram whose appearance may have changed
+	 * since the last call to this method, and starts tracking changes anew. 
+	 * The area covers both the previous and the current bounds of the root 
+	 * nodes and edges that were added, removed, or modified.
+	 * 
+	 * @return The area that changed, or empty if no element changed.
+	 */
+	public Optional<Rectangle> consumeChangedArea()
+	{
+		Optional<Rectangle> nodes = aNodeIndex.consumeChangedArea();
+		Optional<Rectangle> edges = aEdgeIndex.consumeChangedArea();
+		if( nodes.isPresent() && edges.isPresent() )
+		{
+			return Optional.of(nodes.get().add(edges.get()));
+		}
+		return nodes.isPresent() ? nodes : edges;
+	}
+	
+	/**
+	 * Starts keeping track of the elements that are added to this 
+	 * diagram, removed from it, or changed. Has no effect if changes
+	 * are already tracked.
+	 */
+	public void trackChangedElements()
+	{
+		if( !aChangedElements.isPresent() )
+		{
+			aChangedElements = Optional.of(Collections.newSetFromMap(new IdentityHashMap<>()));
+		}
+	}
+	
+	/**
+	 * Returns the elements that were added, removed, or changed since the last 
+	 * call to this method, and starts tracking changes anew. A child node that
+	 * is added to or removed from its parent is only reported as a change 
+	 * to its parent.
+	 * 
+	 * @return The elements that changed, in no particular order.
+	 * @pre Changes are tracked.
+	 */
+	public Set<DiagramElement> consumeChangedElements()
+	{
+		assert aChangedElements.isPresent();
+		Set<DiagramElement> result = aChangedElements.get();
+		aChangedElements = Optional.of(Collections.newSetFromMap(new IdentityHashMap<>()));
+		return result;
+	}
+	
+	private void recordChange(DiagramElement pElement)
+	{
+		aChangedElements.ifPresent(changed -> changed.add(pElement));
+	}
+	
+	/**
+	 * Notifies this diagram that pElement was modified in a way
+	 * that can change its geometry. Diagram elements call this method
+	 * on the diagram they belong to.
+	 * 
+	 * @param pElement The element that changed.
+	 * @pre pElement != null
+	 */
+	public void elementChanged(DiagramElement pElement)
+	{
+		assert pElement != null;
+		recordChange(pElement);
+		invalidateGeometry(pElement);
+	}
+	
+	/**
+	 * Notifies this diagram that pNode and all its descendants were modified
+	 * in a way that can change their geometry, for example because they were 
+	 * moved together. This has the same effect as calling elementChanged for 
+	 * each of these nodes, but the geometry is only invalidated once.
+	 * 
+	 * @param pNode The node that changed, with its descendants.
+	 * @pre pNode != null
+	 */
+	public void nodeAndDescendantsChanged(Node pNode)
+	{
+		assert pNode != null;
+		recordChangeOfDescendants(pNode);
+		invalidateGeometry(pNode);
+	}
+	
+	private void recordChangeOfDescendants(Node pNode)
+	{
+		recordChange(pNode);
+		if( aChangedElements.isPresent() && pNode instanceof ParentNode )
+		{
+			for( ChildNode child : ((ParentNode)pNode).getChildren() )
+			{
+				recordChangeOfDescendants(child);
+			}
+		}
+	}
+	
+	/**
+	 * Discards the geometry information stored for all elements whose view
+	 * can be affected by a change to pElement. By default, a change to a node
+	 * affects its root node, the edges connected to the root node or any
+	 * of its descendants, and the edges that share a node with these edges,
+	 * because the position of an edge on the side of a node depends on the position of 
+	 * the other nodes connected to that side. A change to an edge only affects that edge.
+	 * Subclasses should override this method if the views of their elements 
+	 * have additional dependencies.
+	 * 
+	 * @param pElement The element that changed.
+	 * @pre pElement != null
+	 */
+	protected void invalidateGeometry(DiagramElement pElement)
+	{
+		assert pElement != null;
+		if( pElement instanceof Node )
+		{
+			Node root = rootOf((Node)pElement);
+			aNodeIndex.invalidate(root);
+			invalidateEdgesAround(root);
+		}
+		else
+		{
+			aEdgeIndex.invalidate((Edge)pElement);
+		}
+	}
+	
+	private void invalidateEdgesAround(Node pNode)
+	{
+		IncidentEdges edges = aIncidentEdges.get(pNode);
+		if( edges != null )
+		{
+			for( Edge edge : edges.aEdges )
+			{
+				invalidateEdgesConnectedTo(edge.getStart());
+				invalidateEdgesConnectedTo(edge.getEnd());
+			}
+		}
+		if( pNode instanceof ParentNode )
+		{
+			for( Node child : ((ParentNode)pNode).getChildren() )
+			{
+				invalidateEdgesAround(child);
+			}
+		}
+	}
+	
+	private void invalidateEdgesConnectedTo(Node pNode)
+	{
+		IncidentEdges edges = aIncidentEdges.get(pNode);
+		if( edges != null )
+		{
+			edges.aEdges.forEach(aEdgeIndex::invalidate);
+		}
+	}
+	
+	/**
+	 * Discards the geometry information stored for all elements 
+	 * of this diagram.
+	 */
+	protected final void invalidateAllGeometry()
+	{
+		aNodeIndex.invalidateAll();
+		aEdgeIndex.invalidateAll();
 	}
 
 	/**
@@ -173,6 +526,10 @@ public abstract class Diagram implements DiagramData
 	{
 		assert pNode != null;
 		aRootNodes.add(pNode);
+		pNode.attach(this);
+		aNodeIndex.add(pNode);
+		recordChange(pNode);
+		invalidateGeometry(pNode);
 	}
 	
 	/**
@@ -187,6 +544,10 @@ public abstract class Diagram implements DiagramData
 	{
 		assert pNode != null && aRootNodes.contains(pNode);
 		aRootNodes.remove(pNode);
+		pNode.detach();
+		aNodeIndex.remove(pNode);
+		recordChange(pNode);
+		invalidateGeometry(pNode);
 	}
 	
 	/**
@@ -194,12 +555,13 @@ public abstract class Diagram implements DiagramData
 	 * start and end nodes. The edge is added to the end of the list of edges.
 	 * 
 	 * @param pEdge The edge to add.
-	 * @pre pEdge != null && pEdge.getStart() != null && pEdge.getEnd() != null && pEdge.getGraph != null
+	 * @pre pEdge != null && pEdge.getStart() != null && pEdge.getEnd() != null
 	 */
 	public void addEdge(Edge pEdge)
 	{
-		assert pEdge != null && pEdge.getStart() != null && pEdge.getEnd() != null && pEdge.getDiagram() != null;
+		assert pEdge != null && pEdge.getStart() != null && pEdge.getEnd() != null;
 		aEdges.add(pEdge);
+		edgeAdded(pEdge, true);
 	}
 	
 	/**
@@ -225,6 +587,126 @@ public abstract class Diagram implements DiagramData
 	{
 		assert pEdge != null && pIndex >=0 && pIndex <= aEdges.size();
 		aEdges.add(pIndex, pEdge);
+		edgeAdded(pEdge, pIndex == aEdges.size() - 1);
+	}
+	
+	/*
+	 * Adding or removing an edge can change the path of 
+	 * the other edges connected to the same nodes.
+	 */
+	private void edgeAdded(Edge pEdge, boolean pLast)
+	{
+		pEdge.attach(this);
+		addIncidentEdge(pEdge.getStart(), pEdge, pLast);
+		if( pEdge.getEnd() != pEdge.getStart() )
+		{
+			addIncidentEdge(pEdge.getEnd(), pEdge, pLast);
+		}
+		aEdgeIndex.add(pEdge);
+		recordChange(pEdge);
+		invalidateEdgesConnectedTo(pEdge.getStart());
+		invalidateEdgesConnectedTo(pEdge.getEnd());
+		invalidateGeometry(pEdge);
+	}
+	
+	/**
+	 * Adds pRootNodes as root nodes and pEdges as edges of this diagram, 
+	 * after the existing ones and in the order given, as if they were added
+	 * one at a time. The information derived from the elements of the diagram
+	 * is updated once for the whole batch. Callers of this method must ensure 
+	 * that the addition respects the integrity of the diagram.
+	 * 
+	 * @param pRootNodes The nodes to add.
+	 * @param pEdges The edges to add, already connected to their start and end nodes.
+	 * @pre pRootNodes != null && pEdges != null
+	 * @pre For each edge, edge.getStart() != null && edge.getEnd() != null
+	 */
+	public void addElements(List<Node> pRootNodes, List<Edge> pEdges)
+	{
+		assert pRootNodes != null && pEdges != null;
+		for( Node node : pRootNodes )
+		{
+			aRootNodes.add(node);
+			node.attach(this);
+			aNodeIndex.add(node);
+			recordChange(node);
+			invalidateGeometry(node); // Before the new edges are added, so the node has none
+		}
+		Set<Node> ends = Collections.newSetFromMap(new IdentityHashMap<>());
+		for( Edge edge : pEdges )
+		{
+			assert edge.getStart() != null && edge.getEnd() != null;
+			aEdges.add(edge);
+			edge.attach(this);
+			addIncidentEdge(edge.getStart(), edge, true);
+			if( edge.getEnd() != edge.getStart() )
+			{
+				addIncidentEdge(edge.getEnd(), edge, true);
+			}
+			aEdgeIndex.add(edge);
+			recordChange(edge);
+			ends.add(edge.getStart());
+			ends.add(edge.getEnd());
+		}
+		ends.forEach(this::invalidateEdgesConnectedTo);
+		pEdges.forEach(this::invalidateGeometry);
+	}
+	
+	/**
+	 * Removes pRootNodes from the root nodes and pEdges from the edges 
+	 * of this diagram. The information derived from the elements of the diagram
+	 * is updated once for the whole batch. Callers must ensure that the removal 
+	 * preserves the integrity of the diagram.
+	 * 
+	 * @param pRootNodes The root nodes to remove.
+	 * @param pEdges The edges to remove.
+	 * @pre pRootNodes != null && pEdges != null
+	 * @pre All the nodes and edges are contained in the diagram.
+	 */
+	public void removeElements(List<Node> pRootNodes, List<Edge> pEdges)
+	{
+		assert pRootNodes != null && pEdges != null;
+		Set<Edge> removedEdges = Collections.newSetFromMap(new IdentityHashMap<>());
+		removedEdges.addAll(pEdges);
+		List<Edge> edges = new ArrayList<>(aEdges.asList());
+		edges.removeIf(removedEdges::contains);
+		aEdges.setAll(edges);
+		Set<Node> ends = Collections.newSetFromMap(new IdentityHashMap<>());
+		for( Edge edge : pEdges )
+		{
+			removeIncidentEdge(edge.getStart(), edge);
+			removeIncidentEdge(edge.getEnd(), edge);
+			aEdgeIndex.remove(edge);
+			recordChange(edge);
+			ends.add(edge.getStart());
+			ends.add(edge.getEnd());
+		}
+		Set<Node> removedNodes = Collections.newSetFromMap(new IdentityHashMap<>());
+		removedNodes.addAll(pRootNodes);
+		List<Node> nodes = new ArrayList<>(aRootNodes.asList());
+		nodes.removeIf(removedNodes::contains);
+		aRootNodes.setAll(nodes);
+		for( Node node : pRootNodes )
+		{
+			node.detach();
+			aNodeIndex.remove(node);
+			recordChange(node);
+			invalidateGeometry(node);
+		}
+		ends.forEach(this::invalidateEdgesConnectedTo);
+		for( Edge edge : pEdges )
+		{
+			invalidateGeometry(edge);
+			edge.detach();
+		}
+	}
+	
+	/**
+	 * @return The number of root nodes in the diagram.
+	 */
+	public int numberOfRootNodes()
+	{
+		return aRootNodes.size();
 	}
 	
 	/**
@@ -246,5 +728,151 @@ public abstract class Diagram implements DiagramData
 	{
 		assert pEdge != null && aEdges.contains(pEdge);
 		aEdges.remove(pEdge);
+		removeIncidentEdge(pEdge.getStart(), pEdge);
+		removeIncidentEdge(pEdge.getEnd(), pEdge);
+		aEdgeIndex.remove(pEdge);
+		recordChange(pEdge);
+		invalidateEdgesConnectedTo(pEdge.getStart());
+		invalidateEdgesConnectedTo(pEdge.getEnd());
+		invalidateGeometry(pEdge);
+		pEdge.detach();
+	}
+	
+	/**
+	 * @return A snapshot of the order of the root nodes, edges,
+	 * and children of the parent nodes of this diagram.
+	 */
+	public DiagramSnapshot snapshot()
+	{
+		return new DiagramSnapshot(aRootNodes.asList(), aEdges.asList());
+	}
+	
+	/**
+	 * Brings the root nodes, edges, and children of the parent nodes
+	 * of this diagram back to the state recorded in pSnapshot, in time
+	 * proportional to the size of the diagram. The elements themselves are not 
+	 * modified, other than to add them to or remove them from their parent. 
+	 * Callers must ensure that the elements in pSnapshot are still connected 
+	 * as they were when the snapshot was taken.
+	 * 
+	 * @param pSnapshot The snapshot to restore.
+	 * @pre pSnapshot != null
+	 */
+	public void restore(DiagramSnapshot pSnapshot)
+	{
+		assert pSnapshot != null;
+		restoreRootNodes(pSnapshot.rootNodes());
+		pSnapshot.forEachParent(Diagram::restoreChildren);
+		restoreEdges(pSnapshot.edges());
 	}
+	
+	private void restoreRootNodes(Node[] pRootNodes)
+	{
+		Set<Node> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+		kept.addAll(Arrays.asList(pRootNodes));
+		for( Node node : aRootNodes.asList() )
+		{
+			if( !kept.remove(node) )
+			{
+				node.detach();
+				aNodeIndex.remove(node);
+				recordChange(node);
+				invalidateGeometry(node);
+			}
+		}
+		// kept now only contains the nodes to add back
+		aRootNodes.setAll(Arrays.asList(pRootNodes));
+		for( Node node : kept )
+		{
+			node.attach(this);
+			aNodeIndex.add(node);
+			recordChange(node);
+			invalidateGeometry(node);
+		}
+	}
+	
+	/*
+	 * Children are added and removed through their parent so that 
+	 * the parent can maintain its own state. Only the children
+	 * that are not already at the right position are moved.
+	 */
+	private static void restoreChildren(ParentNode pParent, ChildNode[] pChildren)
+	{
+		List<ChildNode> children = pParent.getChildren();
+		if( children.equals(Arrays.asList(pChildren)) )
+		{
+			return;
+		}
+		Set<ChildNode> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+		kept.addAll(Arrays.asList(pChildren));
+		for( ChildNode child : new ArrayList<>(children) )
+		{
+			if( !kept.contains(child) )
+			{
+				pParent.removeChild(child);
+			}
+		}
+		for( int i = 0; i < pChildren.length; i++ )
+		{
+			if( i >= children.size() || children.get(i) != pChildren[i] )
+			{
+				pParent.addChild(i, pChildren[i]);
+			}
+		}
+	}
+	
+	private void restoreEdges(Edge[] pEdges)
+	{
+		Set<Edge> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+		kept.addAll(Arrays.asList(pEdges));
+		List<Edge> removed = new ArrayList<>();
+		for( Edge edge : aEdges.asList() )
+		{
+			if( !kept.remove(edge) )
+			{
+				removed.add(edge);
+			}
+		}
+		// kept now only contains the edges to add back
+		aEdges.setAll(Arrays.asList(pEdges));
+		aIncidentEdges.clear();
+		for( Edge edge : pEdges )
+		{
+			addIncidentEdge(edge.getStart(), edge, true);
+			if( edge.getEnd() != edge.getStart() )
+			{
+				addIncidentEdge(edge.getEnd(), edge, true);
+			}
+		}
+		removed.forEach(aEdgeIndex::remove);
+		kept.forEach(aEdgeIndex::add);
+		for( Edge edge : removed )
+		{
+			edgeRestored(edge);
+			edge.detach();
+		}
+		for( Edge edge : kept )
+		{
+			edge.attach(this);
+			edgeRestored(edge);
+		}
+		edgesRestored();
+	}
+	
+	private void edgeRestored(Edge pEdge)
+	{
+		recordChange(pEdge);
+		invalidateEdgesConnectedTo(pEdge.getStart());
+		invalidateEdgesConnectedTo(pEdge.getEnd());
+		invalidateGeometry(pEdge);
+	}
+	
+	/**
+	 * Called after the edges of this diagram are replaced 
+	 * by restoring a snapshot. Subclasses that keep information 
+	 * derived from the edges of the diagram should override this method 
+	 * to recompute it. Does nothing by default.
+	 */
+	protected void edgesRestored()
+	{}
 }
\ No newline at end of file
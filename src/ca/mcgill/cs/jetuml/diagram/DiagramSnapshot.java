@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2018 by the contributors of the JetUML project.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package ca.mcgill.cs.jetuml.diagram;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import ca.mcgill.cs.jetuml.diagram.nodes.ChildNode;
+import ca.mcgill.cs.jetuml.diagram.nodes.ParentNode;
+
+/**
+ * The order of the root nodes, of the edges, and of the children 
+ * of every parent node of a diagram at a given time. A snapshot only
+ * refers to the elements of the diagram and does not record any 
+ * of their properties. It is used to bring the structure of the 
+ * diagram back to that time in a single step, through Diagram.restore.
+ */
+public final class DiagramSnapshot
+{
+	private final Node[] aRootNodes;
+	private final Edge[] aEdges;
+	private final Map<ParentNode, ChildNode[]> aChildren = new IdentityHashMap<>();
+	private int aSize;
+	
+	DiagramSnapshot(List<Node> pRootNodes, List<Edge> pEdges)
+	{
+		aRootNodes = pRootNodes.toArray(new Node[pRootNodes.size()]);
+		aEdges = pEdges.toArray(new Edge[pEdges.size()]);
+		aSize = aRootNodes.length + aEdges.length;
+		for( Node node : aRootNodes )
+		{
+			recordChildren(node);
+		}
+	}
+	
+	private void recordChildren(Node pNode)
+	{
+		if( pNode instanceof ParentNode )
+		{
+			List<ChildNode> children = ((ParentNode)pNode).getChildren();
+			aChildren.put((ParentNode)pNode, children.toArray(new ChildNode[children.size()]));
+			aSize += children.size() + 1;
+			for( ChildNode child : children )
+			{
+				recordChildren(child);
+			}
+		}
+	}
+	
+	/**
+	 * @return The number of references to diagram elements held 
+	 * by this snapshot.
+	 */
+	public int size()
+	{
+		return aSize;
+	}
+	
+	Node[] rootNodes()
+	{
+		return aRootNodes;
+	}
+	
+	Edge[] edges()
+	{
+		return aEdges;
+	}
+	
+	void forEachParent(BiConsumer<ParentNode, ChildNode[]> pAction)
+	{
+		aChildren.forEach(pAction);
+	}
+}
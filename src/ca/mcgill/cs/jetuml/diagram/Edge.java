@@ -51,6 +51,19 @@ public interface Edge extends DiagramElement
    	 * @return The diagram that contains this edge.
    	 */
    	Diagram getDiagram();
+   	
+   	/**
+   	 * Records that this edge is an edge of pDiagram.
+   	 * 
+   	 * @param pDiagram The diagram that contains this edge.
+   	 * @pre pDiagram != null
+   	 */
+   	void attach(Diagram pDiagram);
+   	
+   	/**
+   	 * Records that this edge is no longer an edge of any diagram.
+   	 */
+   	void detach();
 
    	/**
    	 * @return A clone of this edge, with shallow cloning
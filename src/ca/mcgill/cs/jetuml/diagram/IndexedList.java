@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2018 by the contributors of the JetUML project.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package ca.mcgill.cs.jetuml.diagram;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A list of distinct objects that can check whether it contains 
+ * an object, and find its position, in amortized constant time.
+ * 
+ * The position of each object is cached in an identity map. Inserting
+ * or removing an object only invalidates the cached positions from the point
+ * of the change onwards, and these positions are recomputed the next time
+ * they are needed.
+ *
+ * @param <T> The type of objects in the list.
+ */
+final class IndexedList<T>
+{
+	private final List<T> aElements = new ArrayList<>();
+	private final List<T> aView = Collections.unmodifiableList(aElements);
+	private final Map<T, Integer> aPositions = new IdentityHashMap<>();
+	
+	/* All cached positions smaller than this value are correct. */
+	private int aValidPositions = 0;
+	
+	/**
+	 * @return A read-only view of the list.
+	 */
+	List<T> asList()
+	{
+		return aView;
+	}
+	
+	/**
+	 * @return The number of objects in the list.
+	 */
+	int size()
+	{
+		return aElements.size();
+	}
+	
+	/**
+	 * @param pObject The object to check.
+	 * @return True if pObject is in the list.
+	 * @pre pObject != null
+	 */
+	boolean contains(T pObject)
+	{
+		assert pObject != null;
+		return aPositions.containsKey(pObject);
+	}
+	
+	/**
+	 * Adds pObject at the end of the list.
+	 * 
+	 * @param pObject The object to add.
+	 * @pre pObject != null && !contains(pObject)
+	 */
+	void add(T pObject)
+	{
+		assert pObject != null && !contains(pObject);
+		aElements.add(pObject);
+		aPositions.put(pObject, aElements.size() - 1);
+		if( aValidPositions == aElements.size() - 1 )
+		{
+			aValidPositions++;
+		}
+	}
+	
+	/**
+	 * Inserts pObject at pIndex, and shifts the 
+	 * following objects to the right.
+	 * 
+	 * @param pIndex Where to insert the object.
+	 * @param pObject The object to insert.
+	 * @pre pObject != null && !contains(pObject)
+	 * @pre pIndex >= 0 && pIndex <= size()
+	 */
+	void add(int pIndex, T pObject)
+	{
+		assert pObject != null && !contains(pObject);
+		assert pIndex >= 0 && pIndex <= aElements.size();
+		aElements.add(pIndex, pObject);
+		aPositions.put(pObject, pIndex);
+		aValidPositions = Math.min(aValidPositions, pIndex);
+	}
+	
+	/**
+	 * Replaces the objects in the list with pObjects, 
+	 * in the same order.
+	 * 
+	 * @param pObjects The new content of the list.
+	 * @pre pObjects != null && pObjects contains distinct, non-null objects.
+	 */
+	void setAll(List<T> pObjects)
+	{
+		assert pObjects != null;
+		aElements.clear();
+		aPositions.clear();
+		aElements.addAll(pObjects);
+		for( int i = 0; i < aElements.size(); i++ )
+		{
+			aPositions.put(aElements.get(i), i);
+		}
+		aValidPositions = aElements.size();
+	}
+	
+	/**
+	 * Removes pObject from the list.
+	 * 
+	 * @param pObject The object to remove.
+	 * @pre contains(pObject)
+	 */
+	void remove(T pObject)
+	{
+		assert contains(pObject);
+		int index = indexOf(pObject);
+		aElements.remove(index);
+		aPositions.remove(pObject);
+		aValidPositions = Math.min(aValidPositions, index);
+	}
+	
+	/**
+	 * @param pObject The object to look for.
+	 * @return The position of pObject in the list.
+	 * @pre contains(pObject)
+	 */
+	int indexOf(T pObject)
+	{
+		assert contains(pObject);
+		int position = aPositions.get(pObject);
+		if( position >= aValidPositions )
+		{
+			for( int i = aValidPositions; i < aElements.size(); i++ )
+			{
+				aPositions.put(aElements.get(i), i);
+			}
+			aValidPositions = aElements.size();
+			position = aPositions.get(pObject);
+		}
+		return position;
+	}
+}
@@ -21,6 +21,8 @@
 
 package ca.mcgill.cs.jetuml.diagram;
 
+import java.util.Optional;
+
 import ca.mcgill.cs.jetuml.geom.Point;
 import ca.mcgill.cs.jetuml.views.nodes.NodeView;
 
@@ -58,4 +60,23 @@ public interface Node extends DiagramElement
 	 * @return The view for this node.
 	 */
 	NodeView view();
+	
+	/**
+	 * Records that this node is a root node of pDiagram.
+	 * 
+	 * @param pDiagram The diagram this node is a root of.
+	 * @pre pDiagram != null
+	 */
+	void attach(Diagram pDiagram);
+	
+	/**
+	 * Records that this node is no longer a root node of any diagram.
+	 */
+	void detach();
+	
+	/**
+	 * @return The diagram this node is a root node of, if any. 
+	 * Child nodes are not attached to a diagram.
+	 */
+	Optional<Diagram> getDiagram();
 }
@@ -45,6 +45,28 @@ import java.util.function.Supplier;
 public class Properties implements Iterable<Property>
 {
 	private final List<Property> aProperties = new ArrayList<>();
+	private final Runnable aChangeHandler;
+	
+	/**
+	 * Creates an empty list of properties.
+	 */
+	public Properties()
+	{
+		this(() -> {});
+	}
+	
+	/**
+	 * Creates an empty list of properties that will call
+	 * pChangeHandler after any property is set.
+	 * 
+	 * @param pChangeHandler The action to run after a property value is set.
+	 * @pre pChangeHandler != null
+	 */
+	public Properties(Runnable pChangeHandler)
+	{
+		assert pChangeHandler != null;
+		aChangeHandler = pChangeHandler;
+	}
 	
 	/**
 	 * Adds a visible property to the list. The property is added at the end of the list.
@@ -59,7 +81,7 @@ public class Properties implements Iterable<Property>
 		assert pName != null && pGetter != null & pSetter != null;
 		if( !contains(pName) )
 		{
-			aProperties.add(new Property(pName, pGetter, pSetter, true));
+			aProperties.add(new Property(pName, pGetter, notifying(pSetter), true));
 		}
 	}
 	
@@ -111,7 +133,7 @@ public class Properties implements Iterable<Property>
 		assert pName != null && pGetter != null & pSetter != null;
 		if( !contains(pName) )
 		{
-			aProperties.add(new Property(pName, pGetter, pSetter, false));
+			aProperties.add(new Property(pName, pGetter, notifying(pSetter), false));
 		}
 	}
 	
@@ -131,10 +153,19 @@ public class Properties implements Iterable<Property>
 		assert pIndex >=0 && pIndex <= aProperties.size();
 		if( !contains(pName) )
 		{
-			aProperties.add(pIndex, new Property(pName, pGetter, pSetter, true));
+			aProperties.add(pIndex, new Property(pName, pGetter, notifying(pSetter), true));
 		}
 	}
 
+	private Consumer<Object> notifying(Consumer<Object> pSetter)
+	{
+		return pValue -> 
+		{
+			pSetter.accept(pValue);
+			aChangeHandler.run();
+		};
+	}
+
 	@Override
 	public Iterator<Property> iterator()
 	{
@@ -23,11 +23,18 @@ package ca.mcgill.cs.jetuml.diagram;
 
 import static ca.mcgill.cs.jetuml.application.ApplicationResources.RESOURCES;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
 import ca.mcgill.cs.jetuml.diagram.edges.CallEdge;
 import ca.mcgill.cs.jetuml.diagram.edges.NoteEdge;
 import ca.mcgill.cs.jetuml.diagram.edges.ReturnEdge;
 import ca.mcgill.cs.jetuml.diagram.nodes.ImplicitParameterNode;
 import ca.mcgill.cs.jetuml.diagram.nodes.NoteNode;
+import ca.mcgill.cs.jetuml.views.nodes.SequenceDiagramLayout;
 
 /**
  * A UML sequence diagram.
@@ -37,6 +44,11 @@ public final class SequenceDiagram extends Diagram
 	private static final Node[] NODE_PROTOTYPES = new Node[]{new ImplicitParameterNode(), new NoteNode()};
 	private static final Edge[] EDGE_PROTOTYPES = new Edge[]{new CallEdge(), new ReturnEdge(), new NoteEdge()};
 	
+	private SequenceDiagramLayout aLayout; // Null if it must be recomputed
+	// The call edges starting at and ending at each node, in the order of the edges of the diagram
+	private final Map<Node, List<CallEdge>> aOutgoingCalls = new IdentityHashMap<>();
+	private final Map<Node, List<CallEdge>> aIncomingCalls = new IdentityHashMap<>();
+	
 	@Override
 	public Node[] getNodePrototypes()
 	{
@@ -49,6 +61,166 @@ public final class SequenceDiagram extends Diagram
 		return EDGE_PROTOTYPES;
 	}
 	
+	/**
+	 * @return The position and size of the call nodes and implicit 
+	 * parameter nodes of the diagram, computed once for each version 
+	 * of the diagram.
+	 */
+	public SequenceDiagramLayout layout()
+	{
+		if( aLayout == null )
+		{
+			aLayout = new SequenceDiagramLayout(this);
+		}
+		return aLayout;
+	}
+	
+	@Override
+	public void addEdge(Edge pEdge)
+	{
+		super.addEdge(pEdge);
+		callAdded(pEdge);
+	}
+	
+	@Override
+	public void addEdge(int pIndex, Edge pEdge)
+	{
+		super.addEdge(pIndex, pEdge);
+		callAdded(pEdge);
+	}
+	
+	@Override
+	public void removeEdge(Edge pEdge)
+	{
+		super.removeEdge(pEdge);
+		if( pEdge.getClass() == CallEdge.class )
+		{
+			removeCall(aOutgoingCalls, pEdge.getStart(), pEdge);
+			removeCall(aIncomingCalls, pEdge.getEnd(), pEdge);
+		}
+	}
+	
+	@Override
+	public void addElements(List<Node> pRootNodes, List<Edge> pEdges)
+	{
+		super.addElements(pRootNodes, pEdges);
+		pEdges.forEach(this::callAdded);
+	}
+	
+	@Override
+	public void removeElements(List<Node> pRootNodes, List<Edge> pEdges)
+	{
+		super.removeElements(pRootNodes, pEdges);
+		for( Edge edge : pEdges )
+		{
+			if( edge.getClass() == CallEdge.class )
+			{
+				removeCall(aOutgoingCalls, edge.getStart(), edge);
+				removeCall(aIncomingCalls, edge.getEnd(), edge);
+			}
+		}
+	}
+	
+	@Override
+	protected void edgesRestored()
+	{
+		aOutgoingCalls.clear();
+		aIncomingCalls.clear();
+		for( Edge edge : edges() )
+		{
+			callAdded(edge);
+		}
+	}
+	
+	/**
+	 * @param pNode The node to query.
+	 * @return The call edges that start at pNode, in the order of the 
+	 * edges of the diagram. The list is not a copy and is only valid until
+	 * the next change to the edges of the diagram.
+	 * @pre pNode != null
+	 */
+	List<CallEdge> callsFrom(Node pNode)
+	{
+		assert pNode != null;
+		return aOutgoingCalls.getOrDefault(pNode, Collections.emptyList());
+	}
+	
+	/**
+	 * @param pNode The node to query.
+	 * @return The call edges that end at pNode, in the order of the 
+	 * edges of the diagram. The list is not a copy and is only valid until
+	 * the next change to the edges of the diagram.
+	 * @pre pNode != null
+	 */
+	List<CallEdge> callsTo(Node pNode)
+	{
+		assert pNode != null;
+		return aIncomingCalls.getOrDefault(pNode, Collections.emptyList());
+	}
+	
+	private void callAdded(Edge pEdge)
+	{
+		if( pEdge.getClass() == CallEdge.class )
+		{
+			addCall(aOutgoingCalls, pEdge.getStart(), (CallEdge) pEdge);
+			addCall(aIncomingCalls, pEdge.getEnd(), (CallEdge) pEdge);
+		}
+	}
+	
+	/*
+	 * Inserts pCall in the calls of pNode so that the list 
+	 * remains sorted by index in the diagram. Calls are usually 
+	 * appended, so the end of the list is checked first.
+	 */
+	private void addCall(Map<Node, List<CallEdge>> pCalls, Node pNode, CallEdge pCall)
+	{
+		List<CallEdge> calls = pCalls.computeIfAbsent(pNode, key -> new ArrayList<>());
+		int index = indexOf(pCall);
+		int low = 0;
+		int high = calls.size();
+		if( high > 0 && indexOf(calls.get(high - 1)) < index )
+		{
+			low = high;
+		}
+		while( low < high )
+		{
+			int middle = (low + high) >>> 1;
+			if( indexOf(calls.get(middle)) < index )
+			{
+				low = middle + 1;
+			}
+			else
+			{
+				high = middle;
+			}
+		}
+		calls.add(low, pCall);
+	}
+	
+	private static void removeCall(Map<Node, List<CallEdge>> pCalls, Node pNode, Edge pCall)
+	{
+		List<CallEdge> calls = pCalls.get(pNode);
+		if( calls != null )
+		{
+			calls.remove(pCall);
+			if( calls.isEmpty() )
+			{
+				pCalls.remove(pNode);
+			}
+		}
+	}
+	
+	/*
+	 * The position and size of call nodes depend on the
+	 * calls of the entire diagram.
+	 */
+	@Override
+	protected void invalidateGeometry(DiagramElement pElement)
+	{
+		aLayout = null;
+		invalidateAllGeometry();
+	}
+	
 	@Override
 	public String getFileExtension() 
 	{
@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2018 by the contributors of the JetUML project.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package ca.mcgill.cs.jetuml.diagram.builder;
+
+import ca.mcgill.cs.jetuml.diagram.Diagram;
+import ca.mcgill.cs.jetuml.diagram.DiagramSnapshot;
+
+/**
+ * A structural operation that was already executed, and that is
+ * replayed and undone by restoring the snapshots of the diagram 
+ * taken after and before its execution.
+ */
+final class CheckpointOperation implements DiagramOperation
+{
+	/* Estimated size of a reference held in a snapshot. */
+	private static final long REFERENCE_SIZE = 8;
+	
+	private final Diagram aDiagram;
+	private final DiagramSnapshot aBefore;
+	private final DiagramSnapshot aAfter;
+	private final long aEstimatedSize;
+	
+	/**
+	 * @param pDiagram The diagram changed by the operation.
+	 * @param pBefore The snapshot of pDiagram before the operation.
+	 * @param pAfter The snapshot of pDiagram after the operation.
+	 * @param pRetainedSize The estimated size of the elements added or removed by the operation.
+	 * @pre pDiagram != null && pBefore != null && pAfter != null
+	 */
+	CheckpointOperation(Diagram pDiagram, DiagramSnapshot pBefore, DiagramSnapshot pAfter, long pRetainedSize)
+	{
+		assert pDiagram != null && pBefore != null && pAfter != null;
+		aDiagram = pDiagram;
+		aBefore = pBefore;
+		aAfter = pAfter;
+		aEstimatedSize = pRetainedSize + (pBefore.size() + pAfter.size()) * REFERENCE_SIZE;
+	}
+
+	@Override
+	public void execute()
+	{
+		aDiagram.restore(aAfter);
+	}
+
+	@Override
+	public void undo()
+	{
+		aDiagram.restore(aBefore);
+	}
+
+	@Override
+	public long getEstimatedSize()
+	{
+		return aEstimatedSize;
+	}
+	
+	@Override
+	public boolean isStructural()
+	{
+		return true;
+	}
+}
@@ -23,6 +23,7 @@ package ca.mcgill.cs.jetuml.diagram.builder;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * An operation that is composed of other operations, following
@@ -32,6 +33,10 @@ import java.util.List;
  * in the order they were added. Undoing a compound operation
  * undoes all the sub-operation in the reverse order in which 
  * they were added.
+ * 
+ * A compound operation can be merged with another one
+ * that has the same number of sub-operations if each pair of 
+ * corresponding sub-operations can be merged.
  */
 public class CompoundOperation implements DiagramOperation
 {
@@ -68,6 +73,52 @@ public class CompoundOperation implements DiagramOperation
 		}
 	}
 	
+	@Override
+	public long getEstimatedSize()
+	{
+		long result = SimpleOperation.OPERATION_SIZE;
+		for( DiagramOperation operation : aOperations )
+		{
+			result += operation.getEstimatedSize();
+		}
+		return result;
+	}
+	
+	@Override
+	public Optional<DiagramOperation> mergeWith(DiagramOperation pNext)
+	{
+		assert pNext != null;
+		if( !(pNext instanceof CompoundOperation) || 
+				((CompoundOperation)pNext).aOperations.size() != aOperations.size() )
+		{
+			return Optional.empty();
+		}
+		CompoundOperation result = new CompoundOperation();
+		for( int i = 0; i < aOperations.size(); i++ )
+		{
+			Optional<DiagramOperation> merged = aOperations.get(i).mergeWith(((CompoundOperation)pNext).aOperations.get(i));
+			if( !merged.isPresent() )
+			{
+				return Optional.empty();
+			}
+			result.add(merged.get());
+		}
+		return Optional.of(result);
+	}
+	
+	@Override
+	public boolean isStructural()
+	{
+		for( DiagramOperation operation : aOperations )
+		{
+			if( !operation.isStructural() )
+			{
+				return false;
+			}
+		}
+		return !aOperations.isEmpty();
+	}
+	
 	/**
 	 * @return True if this CompoundOperation contains
 	 * no sub-operation.
@@ -23,12 +23,10 @@ package ca.mcgill.cs.jetuml.diagram.builder;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import ca.mcgill.cs.jetuml.diagram.Diagram;
 import ca.mcgill.cs.jetuml.diagram.DiagramElement;
@@ -116,20 +114,6 @@ public abstract class DiagramBuilder
 		return true;
 	}
 	
-	private static List<Node> getNodeAndAllChildren(Node pNode)
-	{
-		List<Node> result = new ArrayList<>();
-		result.add(pNode);
-		if( pNode instanceof ParentNode )
-		{
-			for( ChildNode child : ((ParentNode)pNode).getChildren() )
-			{
-				result.addAll(getNodeAndAllChildren(child));
-			}
-		}
-		return result;
-	}
-	
 	/**
 	 * Returns whether adding pEdge between pStart and pEnd
 	 * is a valid operation on the diagram. 
@@ -189,12 +173,13 @@ public abstract class DiagramBuilder
 		assert canAdd(pNode, pRequestedPosition);
 		positionNode(pNode, pRequestedPosition);
 		return new SimpleOperation( ()-> aDiagram.addRootNode(pNode), 
-				()-> aDiagram.removeRootNode(pNode));
+				()-> aDiagram.removeRootNode(pNode), pNode);
 	}
 	
 	/**
-	 * Creates an operation that adds all the elements in pElements. Assumes all nodes
-	 * are root nodes and all edges are connected, and that there are no dangling references.
+	 * Creates an operation that adds all the elements in pElements, in a 
+	 * single batch. Assumes all nodes are root nodes and all edges are connected, 
+	 * and that there are no dangling references.
 	 * 
 	 * @param pElements The elements to add.
 	 * @return The requested operation
@@ -202,38 +187,43 @@ public abstract class DiagramBuilder
 	 */
 	public final DiagramOperation createAddElementsOperation(Iterable<DiagramElement> pElements)
 	{
-		CompoundOperation operation = new CompoundOperation();
+		assert pElements != null;
+		List<DiagramElement> elements = new ArrayList<>();
+		List<Node> nodes = new ArrayList<>();
+		List<Edge> edges = new ArrayList<>();
 		for( DiagramElement element : pElements)
 		{
+			elements.add(element);
 			if( element instanceof Node )
 			{
-				operation.add(new SimpleOperation(
-						()-> aDiagram.addRootNode((Node)element),
-						()-> aDiagram.removeRootNode((Node)element)));
+				nodes.add((Node)element);
 			}
 			else if( element instanceof Edge)
 			{
-				/* We need to re-connect the edge to set the correct value for the
-				 * reference to the diagram, to cover the cases where elements might 
-				 * be added by being copied from one diagram and pasted into another.
-				 */
-				operation.add(new SimpleOperation(
-						()-> 
-						{ 
-							Edge edge = (Edge) element;
-							aDiagram.addEdge(edge); 
-							edge.connect(edge.getStart(), edge.getEnd(), aDiagram);	
-						},
-						()-> aDiagram.removeEdge((Edge)element)));
+				edges.add((Edge)element);
 			}
 		}
-		
-		return operation;
+		return new SimpleOperation(
+				()-> 
+				{
+					/* We need to re-connect the edges to set the correct value for the
+					 * reference to the diagram, to cover the cases where elements might 
+					 * be added by being copied from one diagram and pasted into another.
+					 */
+					for( Edge edge : edges )
+					{
+						edge.connect(edge.getStart(), edge.getEnd(), aDiagram);	
+					}
+					aDiagram.addElements(nodes, edges);
+				},
+				()-> aDiagram.removeElements(nodes, edges), elements);
 	}
 	
 	/**
 	 * Finds the elements that should be removed if pElement is removed,
-	 * to preserve the integrity of the diagram.
+	 * to preserve the integrity of the diagram. The edges connected to 
+	 * a removed node or to any of its descendants do not need to be included:
+	 * they are always removed with the node.
 	 * 
 	 * @param pElement The element to remove.
 	 * @return The list of elements that have to be removed with pElement.
@@ -243,13 +233,6 @@ public abstract class DiagramBuilder
 	{
 		assert pElement != null && aDiagram.contains(pElement);
 		ArrayList<DiagramElement> result = new ArrayList<>();
-		if( pElement.getClass() == PointNode.class )
-		{
-			for( Edge edge : aDiagram.edgesConnectedTo((Node)pElement))
-			{
-				result.add(edge);
-			}
-		}
 		if( pElement.getClass() == NoteEdge.class )
 		{
 			Edge edge = (Edge)pElement;
@@ -262,87 +245,75 @@ public abstract class DiagramBuilder
 				result.add(edge.getEnd());
 			}
 		}
-		if( pElement instanceof Node )
-		{
-			List<Node> descendants = getNodeAndAllChildren((Node)pElement);
-			for(Edge edge : aDiagram.edges())
-			{
-				if(descendants.contains(edge.getStart() ) || descendants.contains(edge.getEnd()))
-				{
-					result.add(edge);
-				}
-			}
-		}
 		return result;
 	}
 	
 	/*
-	 * Organize the elements to delete so that they can be reinserted properly
+	 * Organize the elements to delete so that they can be reinserted properly:
+	 * the nodes first, then the fields of each object in decreasing order of 
+	 * position, then, in decreasing order of position in the diagram, the edges 
+	 * to delete and the edges connected to a node to delete or to one 
+	 * of its descendants. These edges are found in a single sweep of the 
+	 * edges of the diagram.
 	 */
-	private List<DiagramElement> tweakOrder(HashSet<DiagramElement> pElements)
+	private List<DiagramElement> tweakOrder(Set<DiagramElement> pElements)
 	{
 		List<DiagramElement> result = new ArrayList<>();
-		Map<ObjectNode, List<FieldNode>> fields = new HashMap<>();
+		Set<Node> removedNodes = Collections.newSetFromMap(new IdentityHashMap<>());
+		Set<ObjectNode> objects = Collections.newSetFromMap(new IdentityHashMap<>());
 		for( DiagramElement element : pElements)
 		{
-			if( element.getClass() != FieldNode.class )
+			if( element instanceof Node )
 			{
-				result.add(element);
+				addNodeAndAllChildren((Node)element, removedNodes);
 			}
-			else
+			if( element.getClass() == FieldNode.class )
 			{
-				FieldNode field = (FieldNode) element;
-				if( !fields.containsKey((ObjectNode)field.getParent()))
-				{
-					fields.put((ObjectNode)field.getParent(), new ArrayList<>());
-				}
-				fields.get((ObjectNode)field.getParent()).add(field);
+				objects.add((ObjectNode)((FieldNode)element).getParent());
+			}
+			else if( !(element instanceof Edge) )
+			{
+				result.add(element);
 			}
 		}
-		for( ObjectNode object : fields.keySet() )
+		for( ObjectNode object : objects )
 		{
-			List<FieldNode> nodes = fields.get(object);
-			Collections.sort(nodes, new Comparator<FieldNode>()
+			List<ChildNode> fields = object.getChildren();
+			for( int i = fields.size() - 1; i >= 0; i-- )
 			{
-				@Override
-				public int compare(FieldNode pField1, FieldNode pField2)
+				if( pElements.contains(fields.get(i)) )
 				{
-					return pField2.getParent().getChildren().indexOf(pField2) - 
-							pField1.getParent().getChildren().indexOf(pField1);
+					result.add(fields.get(i));
 				}
-			});
-			for( FieldNode node : nodes )
-			{
-				result.add(node);
 			}
 		}
-		ArrayList<DiagramElement> result2 = new ArrayList<>();
-		ArrayList<Edge> edges = new ArrayList<>();
-		for( DiagramElement element : result)
+		List<Edge> edges = new ArrayList<>();
+		aDiagram.edges().forEach(edges::add);
+		for( int i = edges.size() - 1; i >= 0; i-- )
 		{
-			if( element instanceof Edge)
+			Edge edge = edges.get(i);
+			if( pElements.contains(edge) || removedNodes.contains(edge.getStart()) || 
+					removedNodes.contains(edge.getEnd()) )
 			{
-				edges.add((Edge)element);
-			}
-			else
-			{
-				result2.add(element);
+				result.add(edge);
 			}
 		}
-		Collections.sort(edges, new Comparator<Edge>() 
+		return result;
+	}
+	
+	/*
+	 * Adds pNode and its descendants to pNodes, skipping the nodes
+	 * that were already added along with their descendants.
+	 */
+	private static void addNodeAndAllChildren(Node pNode, Set<Node> pNodes)
+	{
+		if( pNodes.add(pNode) && pNode instanceof ParentNode )
 		{
-			@Override
-			public int compare(Edge pEdge1, Edge pEdge2)
+			for( ChildNode child : ((ParentNode)pNode).getChildren() )
 			{
-				return aDiagram.indexOf(pEdge2) - aDiagram.indexOf(pEdge1);
+				addNodeAndAllChildren(child, pNodes);
 			}
-			
-		});
-		for( Edge edge : edges)
-		{
-			result2.add(edge);
 		}
-		return result2;
 	}
 	
 	/**
@@ -355,7 +326,7 @@ public abstract class DiagramBuilder
 	public final DiagramOperation createRemoveElementsOperation(Iterable<DiagramElement> pElements)
 	{
 		assert pElements != null;
-		HashSet<DiagramElement> toDelete = new HashSet<>();
+		Set<DiagramElement> toDelete = Collections.newSetFromMap(new IdentityHashMap<>());
 		for( DiagramElement element : pElements)
 		{
 			toDelete.add(element);
@@ -370,7 +341,7 @@ public abstract class DiagramBuilder
 				int index = aDiagram.indexOf((Edge)element);
 				result.add(new SimpleOperation(
 						()-> aDiagram.removeEdge((Edge)element),
-						()-> aDiagram.addEdge(index, (Edge)element)));
+						()-> aDiagram.addEdge(index, (Edge)element), element));
 			}
 			else if( element instanceof Node )
 			{
@@ -378,13 +349,13 @@ public abstract class DiagramBuilder
 				{
 					result.add(new SimpleOperation(
 						createDetachOperation((ChildNode)element),
-						createReinsertOperation((ChildNode)element)));
+						createReinsertOperation((ChildNode)element), element));
 				}
 				else
 				{
 					result.add(new SimpleOperation(
 						()-> aDiagram.removeRootNode((Node)element),
-						()-> aDiagram.addRootNode((Node)element)));
+						()-> aDiagram.addRootNode((Node)element), element));
 				}
 			}
 		}
@@ -392,7 +363,8 @@ public abstract class DiagramBuilder
 	}
 	
 	/**
-	 * Create an operation to move a node.
+	 * Create an operation to move a node. Successive operations
+	 * to move the same node can be merged.
 	 * 
 	 * @param pNode The node to move.
 	 * @param pX The amount to move the node in the x-coordinate.
@@ -402,9 +374,7 @@ public abstract class DiagramBuilder
 	 */
 	public final DiagramOperation createMoveNodeOperation(Node pNode, int pX, int pY)
 	{
-		return new SimpleOperation(
-				()-> pNode.translate(pX, pY),
-				()-> pNode.translate(-pX, -pY));
+		return new MoveNodeOperation(pNode, pX, pY);
 	}
 	
 	/**
@@ -456,7 +426,7 @@ public abstract class DiagramBuilder
 	{
 		pEdge.connect(pStartNode, pEndNode, aDiagram);
 		pOperation.add(new SimpleOperation(()-> aDiagram.addEdge(pEdge),
-				()-> aDiagram.removeEdge(pEdge)));
+				()-> aDiagram.removeEdge(pEdge), pEdge));
 	}
 	
 	private static Runnable createReinsertOperation(ChildNode pNode)
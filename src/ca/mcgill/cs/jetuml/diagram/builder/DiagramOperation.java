@@ -20,6 +20,8 @@
  *******************************************************************************/
 package ca.mcgill.cs.jetuml.diagram.builder;
 
+import java.util.Optional;
+
 /**
  * Represents an operation to change a diagram, that
  * can be undone. Operations are only required to be valid
@@ -36,4 +38,45 @@ public interface DiagramOperation
 	 * Undoes the operation.
 	 */
 	void undo();
+	
+	/**
+	 * Returns an estimate of the number of bytes kept alive by this 
+	 * operation, including any diagram elements it retains so that 
+	 * it can be undone or redone. The estimate is only meant to compare
+	 * operations and bound the memory used by the undo history, not
+	 * to measure the heap precisely.
+	 * 
+	 * @return The estimated size of this operation, in bytes.
+	 */
+	long getEstimatedSize();
+	
+	/**
+	 * Returns a single operation with the same effect as executing
+	 * this operation followed by pNext, if such an operation can 
+	 * be created. Neither this operation nor pNext is modified. 
+	 * By default, operations cannot be merged.
+	 * 
+	 * @param pNext The operation executed after this one.
+	 * @return The merged operation, or empty if the operations cannot be merged.
+	 * @pre pNext != null
+	 */
+	default Optional<DiagramOperation> mergeWith(DiagramOperation pNext)
+	{
+		assert pNext != null;
+		return Optional.empty();
+	}
+	
+	/**
+	 * Indicates whether this operation only adds diagram elements to
+	 * the diagram or to their parent, or removes them, so that its 
+	 * effect can be reproduced and reverted by restoring a snapshot
+	 * of the structure of the diagram. By default, operations are
+	 * not structural.
+	 * 
+	 * @return True if this operation is structural.
+	 */
+	default boolean isStructural()
+	{
+		return false;
+	}
 }
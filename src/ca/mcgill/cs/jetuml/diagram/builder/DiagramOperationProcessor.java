@@ -21,22 +21,151 @@
 
 package ca.mcgill.cs.jetuml.diagram.builder;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import ca.mcgill.cs.jetuml.diagram.Diagram;
+import ca.mcgill.cs.jetuml.diagram.DiagramSnapshot;
 
 /**
  * Responsible for executing and undoing operations,
  * and managing the collection of previously executed
  * and undone operations.
+ * 
+ * Executing or storing a new operation discards the undone
+ * operations, since they can no longer be redone on top of it.
+ * 
+ * The history of operations is bounded both by a number
+ * of operations and by the estimated number of bytes they
+ * retain. When either bound is exceeded, the oldest executed
+ * operations are discarded first. The most recent 
+ * operation is always kept, even if it exceeds the bounds
+ * on its own.
+ * 
+ * Operations stored with storeMergeableOperation are merged 
+ * into the previous operation if it was also stored this way, 
+ * if the gesture that produced them started within the merge window 
+ * after the previous one was stored, and if the two operations can be merged. 
+ * This is used to keep a single entry in the history for a series 
+ * of quick moves of the same selection, however long each move lasts.
+ * 
+ * When checkpoints are enabled, structural operations executed 
+ * through this processor whose estimated size is above a threshold
+ * are replaced, once executed, by snapshots of the structure of the diagram 
+ * before and after the operation. Undoing or redoing them then restores
+ * a snapshot in a single step, instead of replaying each of their 
+ * sub-operations.
  */
 public class DiagramOperationProcessor
 {
-	private final List<DiagramOperation> aExecutedOperations = new ArrayList<>();
-	private final List<DiagramOperation> aUndoneOperations = new ArrayList<>();
+	/**
+	 * The maximum number of operations kept by default.
+	 */
+	public static final int DEFAULT_MAXIMUM_OPERATIONS = 1000;
+	
+	/**
+	 * The maximum estimated size of the operations kept by default, in bytes.
+	 */
+	public static final long DEFAULT_MAXIMUM_SIZE = 64L * 1024 * 1024;
+	
+	/**
+	 * The default time during which a mergeable operation can be merged 
+	 * with the next one, in milliseconds.
+	 */
+	public static final long DEFAULT_MERGE_WINDOW = 500;
+	
+	/**
+	 * The default estimated size above which structural operations 
+	 * are replaced by checkpoints, in bytes. This corresponds to
+	 * adding or removing a few hundred elements.
+	 */
+	public static final long DEFAULT_CHECKPOINT_THRESHOLD = 256 * SimpleOperation.ELEMENT_SIZE;
+	
+	private final Deque<DiagramOperation> aExecutedOperations = new ArrayDeque<>();
+	private final Deque<DiagramOperation> aUndoneOperations = new ArrayDeque<>();
+	private final List<Consumer<DiagramOperation>> aListeners = new ArrayList<>();
+	private final int aMaximumOperations;
+	private final long aMaximumSize;
+	private long aEstimatedSize = 0;
+	private long aMergeWindow = DEFAULT_MERGE_WINDOW;
+	private boolean aLastOperationMergeable = false;
+	private long aLastOperationTime = 0;
+	private Optional<Diagram> aCheckpointDiagram = Optional.empty();
+	private long aCheckpointThreshold = DEFAULT_CHECKPOINT_THRESHOLD;
+	
+	/**
+	 * Creates a processor with the default bounds on its history.
+	 */
+	public DiagramOperationProcessor()
+	{
+		this(DEFAULT_MAXIMUM_OPERATIONS, DEFAULT_MAXIMUM_SIZE);
+	}
+	
+	/**
+	 * Creates a processor that keeps at most pMaximumOperations 
+	 * operations, retaining at most an estimated pMaximumSize bytes.
+	 * 
+	 * @param pMaximumOperations The maximum number of executed and undone operations to keep.
+	 * @param pMaximumSize The maximum estimated size of the operations to keep, in bytes.
+	 * @pre pMaximumOperations > 0 && pMaximumSize > 0
+	 */
+	public DiagramOperationProcessor(int pMaximumOperations, long pMaximumSize)
+	{
+		assert pMaximumOperations > 0 && pMaximumSize > 0;
+		aMaximumOperations = pMaximumOperations;
+		aMaximumSize = pMaximumSize;
+	}
+	
+	/**
+	 * Registers pListener to be notified of every operation after it is
+	 * executed, stored, undone, or redone through this processor.
+	 * 
+	 * @param pListener The listener to notify.
+	 * @pre pListener != null
+	 */
+	public void addOperationListener(Consumer<DiagramOperation> pListener)
+	{
+		assert pListener != null;
+		aListeners.add(pListener);
+	}
+	
+	/**
+	 * @param pMilliseconds The time after which a mergeable operation 
+	 * can no longer be merged with the next one, measured until the
+	 * start of the gesture that produces the next one. Zero to disable merging.
+	 * @pre pMilliseconds >= 0
+	 */
+	public void setMergeWindow(long pMilliseconds)
+	{
+		assert pMilliseconds >= 0;
+		aMergeWindow = pMilliseconds;
+	}
+	
+	/**
+	 * Replaces the structural operations executed through this processor 
+	 * on pDiagram, and whose estimated size is greater than pThreshold, 
+	 * by checkpoints.
+	 * 
+	 * @param pDiagram The diagram changed by the operations of this processor.
+	 * @param pThreshold The estimated size above which an operation is replaced, in bytes.
+	 * @pre pDiagram != null && pThreshold >= 0
+	 */
+	public void enableCheckpoints(Diagram pDiagram, long pThreshold)
+	{
+		assert pDiagram != null && pThreshold >= 0;
+		aCheckpointDiagram = Optional.of(pDiagram);
+		aCheckpointThreshold = pThreshold;
+	}
 	
 	/**
 	 * Executes pOperation and adds it to the list of executed
-	 * operations.
+	 * operations, or adds a checkpoint for it if checkpoints are enabled
+	 * and pOperation is large enough.
 	 * 
 	 * @param pOperation The operation to execute.
 	 * @pre pOperation != null;
@@ -44,8 +173,20 @@ public class DiagramOperationProcessor
 	public void executeNewOperation(DiagramOperation pOperation)
 	{
 		assert pOperation != null;
-		pOperation.execute();
-		aExecutedOperations.add(pOperation);
+		if( aCheckpointDiagram.isPresent() && pOperation.isStructural() && 
+				pOperation.getEstimatedSize() > aCheckpointThreshold )
+		{
+			Diagram diagram = aCheckpointDiagram.get();
+			DiagramSnapshot before = diagram.snapshot();
+			pOperation.execute();
+			addExecutedOperation(new CheckpointOperation(diagram, before, diagram.snapshot(), pOperation.getEstimatedSize()));
+		}
+		else
+		{
+			pOperation.execute();
+			addExecutedOperation(pOperation);
+		}
+		notifyListeners(pOperation);
 	}
 	
 	/**
@@ -58,7 +199,56 @@ public class DiagramOperationProcessor
 	public void storeAlreadyExecutedOperation(DiagramOperation pOperation)
 	{
 		assert pOperation != null;
-		aExecutedOperations.add(pOperation);
+		addExecutedOperation(pOperation);
+		notifyListeners(pOperation);
+	}
+	
+	/**
+	 * Adds pOperation, which was already executed, to the list of executed
+	 * operations, or merges it with the last executed operation if that operation 
+	 * was also stored through this method less than the merge window ago,
+	 * and the two can be merged.
+	 * 
+	 * @param pOperation The operation to store.
+	 * @pre pOperation != null
+	 */
+	public void storeMergeableOperation(DiagramOperation pOperation)
+	{
+		storeMergeableOperation(pOperation, System.nanoTime());
+	}
+	
+	/**
+	 * Adds pOperation, which was already executed, to the list of executed
+	 * operations, or merges it with the last executed operation if that operation 
+	 * was also stored through this method less than the merge window before
+	 * pStartTime, and the two can be merged. This way, a gesture that lasts 
+	 * longer than the merge window can still be merged with the previous one.
+	 * 
+	 * @param pOperation The operation to store.
+	 * @param pStartTime The value of System.nanoTime() when the gesture 
+	 *     that produced pOperation started.
+	 * @pre pOperation != null
+	 */
+	public void storeMergeableOperation(DiagramOperation pOperation, long pStartTime)
+	{
+		assert pOperation != null;
+		Optional<DiagramOperation> merged = Optional.empty();
+		if( aLastOperationMergeable && pStartTime - aLastOperationTime <= TimeUnit.MILLISECONDS.toNanos(aMergeWindow) )
+		{
+			merged = aExecutedOperations.getLast().mergeWith(pOperation);
+		}
+		if( merged.isPresent() )
+		{
+			aEstimatedSize -= aExecutedOperations.removeLast().getEstimatedSize();
+			addExecutedOperation(merged.get());
+		}
+		else
+		{
+			addExecutedOperation(pOperation);
+		}
+		aLastOperationMergeable = true;
+		aLastOperationTime = System.nanoTime();
+		notifyListeners(pOperation);
 	}
 	
 	/**
@@ -69,9 +259,11 @@ public class DiagramOperationProcessor
 	public void undoLastExecutedOperation()
 	{
 		assert canUndo();
-		DiagramOperation operation = aExecutedOperations.remove(aExecutedOperations.size() - 1);
+		aLastOperationMergeable = false;
+		DiagramOperation operation = aExecutedOperations.removeLast();
 		operation.undo();
-		aUndoneOperations.add(operation);
+		aUndoneOperations.addLast(operation);
+		notifyListeners(operation);
 	}
 	
 	/**
@@ -82,9 +274,61 @@ public class DiagramOperationProcessor
 	public void redoLastUndoneOperation()
 	{
 		assert canRedo();
-		DiagramOperation operation = aUndoneOperations.remove(aUndoneOperations.size() - 1);
+		aLastOperationMergeable = false;
+		DiagramOperation operation = aUndoneOperations.removeLast();
 		operation.execute();
-		aExecutedOperations.add(operation);
+		aExecutedOperations.addLast(operation);
+		notifyListeners(operation);
+	}
+
+	private void addExecutedOperation(DiagramOperation pOperation)
+	{
+		aLastOperationMergeable = false;
+		while( !aUndoneOperations.isEmpty() )
+		{
+			aEstimatedSize -= aUndoneOperations.removeLast().getEstimatedSize();
+		}
+		aExecutedOperations.addLast(pOperation);
+		aEstimatedSize += pOperation.getEstimatedSize();
+		evict();
+	}
+	
+	/*
+	 * Discards the oldest operations until the history fits
+	 * within its bounds, always keeping the last one executed.
+	 */
+	private void evict()
+	{
+		while( aExecutedOperations.size() > 1 && 
+				(aExecutedOperations.size() > aMaximumOperations || aEstimatedSize > aMaximumSize) )
+		{
+			aEstimatedSize -= aExecutedOperations.removeFirst().getEstimatedSize();
+		}
+	}
+	
+	/**
+	 * @return The number of executed and undone operations currently kept.
+	 */
+	public int getNumberOfOperations()
+	{
+		return aExecutedOperations.size() + aUndoneOperations.size();
+	}
+	
+	/**
+	 * @return The estimated number of bytes retained by the executed
+	 * and undone operations currently kept.
+	 */
+	public long getEstimatedSize()
+	{
+		return aEstimatedSize;
+	}
+
+	private void notifyListeners(DiagramOperation pOperation)
+	{
+		for( Consumer<DiagramOperation> listener : aListeners )
+		{
+			listener.accept(pOperation);
+		}
 	}
 
 	/**
@@ -129,7 +129,7 @@ public class SequenceDiagramBuilder extends DiagramBuilder
 		{
 			Edge returnEdge = null;
 			Edge input = (CallEdge) pElement;
-			for( Edge edge : aDiagram.edges() )
+			for( Edge edge : aDiagram.edgesConnectedTo(input.getEnd()) )
 			{
 				if( edge instanceof ReturnEdge && edge.getStart() == input.getEnd() && edge.getEnd() == input.getStart())
 				{
@@ -244,7 +244,7 @@ public class SequenceDiagramBuilder extends DiagramBuilder
 	 */
 	private ImplicitParameterNode insideTargetArea(Point pPoint)
 	{
-		for( Node node : aDiagram.rootNodes() )
+		for( Node node : aDiagram.rootNodesAt(pPoint) )
 		{
 			if(node instanceof ImplicitParameterNode && node.view().contains(pPoint))
 			{
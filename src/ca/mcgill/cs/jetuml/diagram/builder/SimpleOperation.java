@@ -20,16 +20,36 @@
  *******************************************************************************/
 package ca.mcgill.cs.jetuml.diagram.builder;
 
+import java.util.Collection;
+import java.util.Collections;
+
+import ca.mcgill.cs.jetuml.diagram.DiagramElement;
+import ca.mcgill.cs.jetuml.diagram.nodes.ChildNode;
+import ca.mcgill.cs.jetuml.diagram.nodes.ParentNode;
+
 /**
  * Represents a simple (non-compound) operation. The operation
  * does no validation of the input method, so any code that 
  * constructs a SimpleOperation is responsible to ensure that,
  * when executed or undone, the operation will be valid.
+ * 
+ * Operations that add or remove a diagram element should declare 
+ * it, so that the element is accounted for in the estimated size
+ * of the operation, and so that the operation is known to be 
+ * structural.
  */
 public class SimpleOperation implements DiagramOperation
 {
+	/* Estimated size of the operation and of its two closures. */
+	static final long OPERATION_SIZE = 64;
+	
+	/* Estimated size of a diagram element, including its properties and view. */
+	static final long ELEMENT_SIZE = 1024;
+	
 	private final Runnable aOperation;
 	private final Runnable aReverse;
+	private final long aEstimatedSize;
+	private final boolean aStructural;
 	
 	/**
 	 * Creates an operation.
@@ -46,6 +66,69 @@ public class SimpleOperation implements DiagramOperation
 		assert pOperation != null && pReverse != null;
 		aOperation = pOperation;
 		aReverse = pReverse;
+		aEstimatedSize = OPERATION_SIZE;
+		aStructural = false;
+	}
+	
+	/**
+	 * Creates an operation that only adds pRetained to the diagram
+	 * or to its parent, or removes it. The operation retains pRetained,
+	 * and any of its descendants if it is a node.
+	 * 
+	 * @param pOperation The code to run when the operation is
+	 * executed.
+	 * @param pReverse The code to run when the operation is
+	 * undone.
+	 * @param pRetained The element kept alive by the operation.
+	 * @pre pOperation != null
+	 * @pre pReverse != null
+	 * @pre pRetained != null
+	 */
+	public SimpleOperation(Runnable pOperation, Runnable pReverse, DiagramElement pRetained)
+	{
+		this(pOperation, pReverse, Collections.singletonList(pRetained));
+		assert pRetained != null;
+	}
+	
+	/**
+	 * Creates an operation that only adds the elements in pRetained 
+	 * to the diagram or to their parent, or removes them. The operation 
+	 * retains these elements, and the descendants of the nodes among them.
+	 * 
+	 * @param pOperation The code to run when the operation is
+	 * executed.
+	 * @param pReverse The code to run when the operation is
+	 * undone.
+	 * @param pRetained The elements kept alive by the operation.
+	 * @pre pOperation != null
+	 * @pre pReverse != null
+	 * @pre pRetained != null
+	 */
+	public SimpleOperation(Runnable pOperation, Runnable pReverse, Collection<? extends DiagramElement> pRetained)
+	{
+		assert pOperation != null && pReverse != null && pRetained != null;
+		aOperation = pOperation;
+		aReverse = pReverse;
+		long size = OPERATION_SIZE;
+		for( DiagramElement element : pRetained )
+		{
+			size += countElements(element) * ELEMENT_SIZE;
+		}
+		aEstimatedSize = size;
+		aStructural = true;
+	}
+	
+	private static int countElements(DiagramElement pElement)
+	{
+		int result = 1;
+		if( pElement instanceof ParentNode )
+		{
+			for( ChildNode child : ((ParentNode)pElement).getChildren() )
+			{
+				result += countElements(child);
+			}
+		}
+		return result;
 	}
 
 	@Override
@@ -59,4 +142,16 @@ public class SimpleOperation implements DiagramOperation
 	{
 		aReverse.run();
 	}
+	
+	@Override
+	public long getEstimatedSize()
+	{
+		return aEstimatedSize;
+	}
+	
+	@Override
+	public boolean isStructural()
+	{
+		return aStructural;
+	}
 }
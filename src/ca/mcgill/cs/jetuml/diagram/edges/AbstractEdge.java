@@ -65,6 +65,15 @@ public abstract class AbstractEdge extends AbstractDiagramElement implements Edg
 		}
 	}
 
+	@Override
+	protected void notifyChanged()
+	{
+		if( aDiagram != null )
+		{
+			aDiagram.elementChanged(this);
+		}
+	}
+
 	@Override
 	public Node getStart()
 	{
@@ -82,6 +91,19 @@ public abstract class AbstractEdge extends AbstractDiagramElement implements Edg
 	{
 		return aDiagram;
 	}
+	
+	@Override
+	public void attach(Diagram pDiagram)
+	{
+		assert pDiagram != null;
+		aDiagram = pDiagram;
+	}
+	
+	@Override
+	public void detach()
+	{
+		aDiagram = null;
+	}
 
 	/**
 	 * Generates a view for this edge. Because of cloning, this cannot
@@ -97,6 +119,7 @@ public abstract class AbstractEdge extends AbstractDiagramElement implements Edg
 	{
 		AbstractEdge clone = (AbstractEdge) super.clone();
 		clone.aView = clone.generateView();
+		clone.aDiagram = null;
 		return clone;
 	}
 	
@@ -84,6 +84,7 @@ public final class AggregationEdge extends ClassRelationshipEdge
 	public void setType(Type pType)
 	{
 		aType = pType;
+		notifyChanged();
 	}
 	
 	@Override
@@ -60,6 +60,7 @@ public final class AssociationEdge extends ClassRelationshipEdge
 	public void setDirectionality( Directionality pDirectionality )
 	{
 		aDirectionality = pDirectionality;
+		notifyChanged();
 	}
 	
 	/**
@@ -98,6 +98,7 @@ public final class CallEdge extends SingleLabelEdge
 	public void setSignal(boolean pNewValue) 
 	{ 
 		aSignal = pNewValue; 
+		notifyChanged();
 	}
 	
 	private SegmentationStyle createSegmentationStyle()
@@ -85,6 +85,7 @@ public final class GeneralizationEdge extends ClassRelationshipEdge
 	public void setType(Type pType)
 	{
 		aType = pType;
+		notifyChanged();
 	}
 	
 	@Override
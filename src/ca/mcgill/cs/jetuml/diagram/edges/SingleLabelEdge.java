@@ -34,6 +34,7 @@ public abstract class SingleLabelEdge extends AbstractEdge
 	public void setMiddleLabel(String pNewValue)
 	{
 		aLabelText = pNewValue;
+		notifyChanged();
 	}
 
 	/**
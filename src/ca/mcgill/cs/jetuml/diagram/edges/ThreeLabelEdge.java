@@ -34,6 +34,7 @@ public abstract class ThreeLabelEdge extends SingleLabelEdge
 	public void setStartLabel(String pLabel)
 	{
 		aStartLabel = pLabel;
+		notifyChanged();
 	}
 	
 	/**
@@ -42,6 +43,7 @@ public abstract class ThreeLabelEdge extends SingleLabelEdge
 	public void setEndLabel(String pLabel)
 	{
 		aEndLabel = pLabel;
+		notifyChanged();
 	}
 	
 	/**
@@ -92,6 +92,7 @@ public final class UseCaseDependencyEdge extends AbstractEdge
 	public void setType(Type pType)
 	{
 		aType = pType;
+		notifyChanged();
 	}
 
 	private String obtainMiddleLabel()
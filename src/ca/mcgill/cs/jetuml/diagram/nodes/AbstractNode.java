@@ -20,7 +20,10 @@
  *******************************************************************************/
 package ca.mcgill.cs.jetuml.diagram.nodes;
 
+import java.util.Optional;
+
 import ca.mcgill.cs.jetuml.diagram.AbstractDiagramElement;
+import ca.mcgill.cs.jetuml.diagram.Diagram;
 import ca.mcgill.cs.jetuml.diagram.Node;
 import ca.mcgill.cs.jetuml.geom.Point;
 import ca.mcgill.cs.jetuml.views.nodes.NodeView;
@@ -32,6 +35,7 @@ public abstract class AbstractNode extends AbstractDiagramElement implements Nod
 {
 	private NodeView aView;
 	private Point aPosition = new Point(0, 0);
+	private Diagram aDiagram;
 	
 	/**
 	 * Calls an abstract delegate to generate the view for this node
@@ -44,10 +48,49 @@ public abstract class AbstractNode extends AbstractDiagramElement implements Nod
 	
 	@Override
 	public void translate(int pDeltaX, int pDeltaY)
+	{
+		move(pDeltaX, pDeltaY);
+		Node root = rootOf(this);
+		invalidateBounds(root);
+		root.getDiagram().ifPresent(diagram -> diagram.nodeAndDescendantsChanged(this));
+	}
+	
+	/**
+	 * Moves this node by pDeltaX and pDeltaY without notifying its diagram,
+	 * so that translate notifies it only once for the node and all the nodes 
+	 * that move with it. Nodes whose children move with them override this 
+	 * method to move their children with moveWithoutNotifying.
+	 * 
+	 * @param pDeltaX The amount to move in the x direction.
+	 * @param pDeltaY The amount to move in the y direction.
+	 */
+	protected void move(int pDeltaX, int pDeltaY)
 	{
 		aPosition = new Point( aPosition.getX() + pDeltaX, aPosition.getY() + pDeltaY );
 	}
 	
+	/**
+	 * Moves pNode by pDeltaX and pDeltaY as part of the translation of one of its 
+	 * ancestors, without notifying its diagram.
+	 * 
+	 * @param pNode The node to move.
+	 * @param pDeltaX The amount to move in the x direction.
+	 * @param pDeltaY The amount to move in the y direction.
+	 * @pre pNode != null
+	 */
+	protected static void moveWithoutNotifying(Node pNode, int pDeltaX, int pDeltaY)
+	{
+		assert pNode != null;
+		if( pNode instanceof AbstractNode )
+		{
+			((AbstractNode)pNode).move(pDeltaX, pDeltaY);
+		}
+		else
+		{
+			pNode.translate(pDeltaX, pDeltaY);
+		}
+	}
+	
 	/**
 	 * Generates a view for this node. Because of cloning, this cannot
 	 * be done in the constructor, because when a node is cloned a new 
@@ -73,6 +116,70 @@ public abstract class AbstractNode extends AbstractDiagramElement implements Nod
 	public void moveTo(Point pPoint)
 	{
 		aPosition = pPoint;
+		notifyChanged();
+	}
+	
+	@Override
+	public void attach(Diagram pDiagram)
+	{
+		assert pDiagram != null;
+		aDiagram = pDiagram;
+	}
+	
+	@Override
+	public void detach()
+	{
+		aDiagram = null;
+	}
+	
+	@Override
+	public Optional<Diagram> getDiagram()
+	{
+		return Optional.ofNullable(aDiagram);
+	}
+	
+	/*
+	 * The bounds of a parent depend on its children, and the bounds of some 
+	 * children depend on their parent and siblings, so the bounds of the 
+	 * whole tree this node belongs to are invalidated. Only root nodes are 
+	 * attached to a diagram, so the notification is then forwarded to the 
+	 * diagram of the root of this node, if any.
+	 */
+	@Override
+	protected void notifyChanged()
+	{
+		Node root = rootOf(this);
+		invalidateBounds(root);
+		root.getDiagram().ifPresent(diagram -> diagram.elementChanged(this));
+	}
+	
+	private static Node rootOf(Node pNode)
+	{
+		Node root = pNode;
+		while( root instanceof ChildNode && ((ChildNode)root).getParent() != null )
+		{
+			root = ((ChildNode)root).getParent();
+		}
+		return root;
+	}
+	
+	/**
+	 * Invalidates the cached bounds of pNode and of all its descendants.
+	 * 
+	 * @param pNode The root of the nodes to invalidate.
+	 * @pre pNode != null
+	 */
+	protected static void invalidateBounds(Node pNode)
+	{
+		assert pNode != null;
+		pNode.view().invalidateBounds();
+		if( pNode instanceof ParentNode )
+		{
+			for( ChildNode child : ((ParentNode)pNode).getChildren() )
+			{
+				invalidateBounds(child);
+			}
+		}
 	}
 
 	@Override
@@ -80,6 +187,7 @@ public abstract class AbstractNode extends AbstractDiagramElement implements Nod
 	{
 		AbstractNode clone = (AbstractNode) super.clone();
 		clone.aView = clone.generateView();
+		clone.aDiagram = null;
 		return clone;
 	}
 	
@@ -60,6 +60,7 @@ public final class CallNode extends AbstractNode implements ChildNode
 	public void setOpenBottom(boolean pNewValue)
 	{ 
 		aOpenBottom = pNewValue; 
+		notifyChanged();
 	}
 
 	@Override
@@ -52,6 +52,7 @@ public final class ClassNode extends InterfaceNode
 	public void setAttributes(String pNewValue)
 	{
 		aAttributes = pNewValue;
+		notifyChanged();
 	}
 
 	/**
@@ -67,22 +67,35 @@ public final class ImplicitParameterNode extends NamedNode implements ParentNode
 		return aCallNodes;
 	}
 
+	/*
+	 * If pNode is already a child of this node, pIndex 
+	 * is its position once it is removed.
+	 */
 	@Override
 	public void addChild(int pIndex, ChildNode pNode)
 	{
-		addChild(pNode);
+		assert pNode != null;
+		ParentNode oldParent = pNode.getParent();
+		if (oldParent != null)
+		{
+			oldParent.removeChild(pNode);
+		}
+		assert pIndex >= 0 && pIndex <= aCallNodes.size();
+		aCallNodes.add(pIndex, pNode);
+		pNode.setParent(this);
+		notifyChanged();
 	}
 	
 	@Override
 	public void addChild(ChildNode pNode)
 	{
+		assert pNode != null;
 		ParentNode oldParent = pNode.getParent();
 		if (oldParent != null)
 		{
 			oldParent.removeChild(pNode);
 		}
-		aCallNodes.add(pNode);
-		pNode.setParent(this);
+		addChild(aCallNodes.size(), pNode);
 	}
 
 	@Override
@@ -94,6 +107,8 @@ public final class ImplicitParameterNode extends NamedNode implements ParentNode
 		}
 		aCallNodes.remove(pNode);
 		pNode.setParent(null);
+		invalidateBounds(pNode);
+		notifyChanged();
 	}
 	
 	/**
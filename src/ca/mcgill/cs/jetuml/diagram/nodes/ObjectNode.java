@@ -42,17 +42,17 @@ public final class ObjectNode extends NamedNode implements ParentNode
 	}
 
 	/* 
- 	 * Translate the children as well. 
+ 	 * Move the children as well. 
 	 * 
-	 * @see ca.mcgill.cs.jetuml.diagram.nodes.AbstractNode2#translate(int, int)
+	 * @see ca.mcgill.cs.jetuml.diagram.nodes.AbstractNode#move(int, int)
 	 */
 	@Override
-	public void translate(int pDeltaX, int pDeltaY)
+	protected void move(int pDeltaX, int pDeltaY)
 	{
-		super.translate(pDeltaX, pDeltaY);
+		super.move(pDeltaX, pDeltaY);
 		for(Node child : getChildren())
 		{
-			child.translate(pDeltaX, pDeltaY);
+			moveWithoutNotifying(child, pDeltaX, pDeltaY);
 		}   
 	}    
 
@@ -88,6 +88,7 @@ public final class ObjectNode extends NamedNode implements ParentNode
 		}
 		aFields.add(pIndex, pNode);
 		pNode.setParent(this);
+		notifyChanged();
 	}
 
 	@Override
@@ -106,5 +107,7 @@ public final class ObjectNode extends NamedNode implements ParentNode
 		}
 		aFields.remove(pNode);
 		pNode.setParent(null);
+		invalidateBounds(pNode);
+		notifyChanged();
 	}
 }
@@ -51,6 +51,7 @@ public final class PackageNode extends AbstractNode implements ParentNode, Child
 	public void setName(String pName)
 	{
 		aName = pName;
+		notifyChanged();
 	}
 
 	/**
@@ -69,16 +70,17 @@ public final class PackageNode extends AbstractNode implements ParentNode, Child
 	public void setContents(String pContents)
 	{
 		aContents = pContents;
+		notifyChanged();
 	}
 	
 	@Override
-	public void translate(int pDeltaX, int pDeltaY)
+	protected void move(int pDeltaX, int pDeltaY)
 	{
-		super.translate(pDeltaX, pDeltaY);
+		super.move(pDeltaX, pDeltaY);
 		
 		for(Node childNode : getChildren())
         {
-        	childNode.translate(pDeltaX, pDeltaY);
+        	moveWithoutNotifying(childNode, pDeltaX, pDeltaY);
         }   
 	}
 
@@ -137,6 +139,7 @@ public final class PackageNode extends AbstractNode implements ParentNode, Child
 		}
 		aContainedNodes.add(pIndex, pNode);
 		pNode.setParent(this);
+		notifyChanged();
 	}
 
 	@Override
@@ -151,6 +154,8 @@ public final class PackageNode extends AbstractNode implements ParentNode, Child
 	{
 		aContainedNodes.remove(pNode);
 		pNode.setParent(null);
+		invalidateBounds(pNode);
+		notifyChanged();
 	}
 	
 	@Override
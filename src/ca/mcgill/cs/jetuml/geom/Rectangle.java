@@ -189,6 +189,19 @@ public class Rectangle
 				pRectangle.getMaxY() <= aY + aHeight;
 	}
 	
+	/**
+	 * @param pRectangle The rectangle to check.
+	 * @return True iif pRectangle and this rectangle share at least one point,
+	 * including points on their borders.
+	 * @pre pRectangle != null.
+	 */
+	public boolean intersects(Rectangle pRectangle)
+	{
+		assert pRectangle != null;
+		return pRectangle.aX <= getMaxX() && aX <= pRectangle.getMaxX() &&
+				pRectangle.aY <= getMaxY() && aY <= pRectangle.getMaxY();
+	}
+	
 	/**
 	 * @return The top left corner of the rectangle.
 	 */
@@ -0,0 +1,315 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2018 by the contributors of the JetUML project.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package ca.mcgill.cs.jetuml.geom;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A uniform grid that buckets objects by the rectangle they occupy,
+ * so that the objects possibly containing a point can be found without
+ * testing every object. The grid covers the square area between (0,0)
+ * and (extent, extent). Objects or points that fall outside this area are
+ * clamped to the border cells, so queries remain correct (if slower) for
+ * any coordinate.
+ *
+ * The bounds of each object are obtained through a function supplied
+ * at construction time. Because computing bounds can be expensive,
+ * objects are not re-binned when they are added or invalidated: they are
+ * only marked as stale, and all stale objects are re-binned at the
+ * next query.
+ *
+ * Objects are tracked by identity.
+ *
+ * The index also keeps track of the area covered by the objects 
+ * that were added, removed, or re-binned to a different location, so 
+ * that clients can find out which part of the plane changed.
+ *
+ * @param <T> The type of objects to index.
+ */
+public class SpatialIndex<T>
+{
+	private final Function<T, Rectangle> aBoundsFunction;
+	private final int aCellSize;
+	private final int aNumberOfCells; // Along each dimension
+	private final List<List<T>> aCells;
+	private final Map<T, Rectangle> aBounds = new IdentityHashMap<>();
+	private final Set<T> aStale = Collections.newSetFromMap(new IdentityHashMap<>());
+	private boolean aAllStale = false;
+	private Optional<Rectangle> aChangedArea = Optional.empty();
+
+	/**
+	 * Creates an empty index.
+	 *
+	 * @param pBoundsFunction A function that computes the area occupied by an indexed object.
+	 * @param pExtent The width and height of the area covered by the grid.
+	 * @param pCellSize The width and height of each cell in the grid.
+	 * @pre pBoundsFunction != null && pExtent > 0 && pCellSize > 0
+	 */
+	public SpatialIndex(Function<T, Rectangle> pBoundsFunction, int pExtent, int pCellSize)
+	{
+		assert pBoundsFunction != null && pExtent > 0 && pCellSize > 0;
+		aBoundsFunction = pBoundsFunction;
+		aCellSize = pCellSize;
+		aNumberOfCells = (pExtent + pCellSize - 1) / pCellSize;
+		aCells = new ArrayList<>(aNumberOfCells * aNumberOfCells);
+		for( int i = 0; i < aNumberOfCells * aNumberOfCells; i++ )
+		{
+			aCells.add(new ArrayList<>());
+		}
+	}
+
+	/**
+	 * Adds pObject to the index. Has no effect if the
+	 * object is already in the index.
+	 *
+	 * @param pObject The object to add.
+	 * @pre pObject != null
+	 */
+	public void add(T pObject)
+	{
+		assert pObject != null;
+		if( !aBounds.containsKey(pObject) )
+		{
+			aBounds.put(pObject, null);
+			aStale.add(pObject);
+		}
+	}
+
+	/**
+	 * Removes pObject from the index. Has no effect if the
+	 * object is not in the index.
+	 *
+	 * @param pObject The object to remove.
+	 * @pre pObject != null
+	 */
+	public void remove(T pObject)
+	{
+		assert pObject != null;
+		if( aBounds.containsKey(pObject) )
+		{
+			addToChangedArea(aBounds.get(pObject));
+			unbin(pObject);
+			aBounds.remove(pObject);
+			aStale.remove(pObject);
+		}
+	}
+
+	/**
+	 * @param pObject The object to check.
+	 * @return True if pObject is in the index.
+	 * @pre pObject != null
+	 */
+	public boolean contains(T pObject)
+	{
+		assert pObject != null;
+		return aBounds.containsKey(pObject);
+	}
+
+	/**
+	 * Indicates that the area occupied by pObject may have changed.
+	 * Has no effect if the object is not in the index.
+	 *
+	 * @param pObject The object whose bounds are no longer valid.
+	 * @pre pObject != null
+	 */
+	public void invalidate(T pObject)
+	{
+		assert pObject != null;
+		if( !aAllStale && aBounds.containsKey(pObject) )
+		{
+			aStale.add(pObject);
+		}
+	}
+
+	/**
+	 * Indicates that the area occupied by any of the objects in
+	 * the index may have changed. This operation takes constant time:
+	 * the whole index is rebuilt at the next query.
+	 */
+	public void invalidateAll()
+	{
+		aAllStale = true;
+		aStale.clear();
+	}
+
+	/**
+	 * Removes all objects from the index.
+	 */
+	public void clear()
+	{
+		aBounds.values().forEach(this::addToChangedArea);
+		for( List<T> cell : aCells )
+		{
+			cell.clear();
+		}
+		aBounds.clear();
+		aStale.clear();
+		aAllStale = false;
+	}
+
+	/**
+	 * @return The number of objects in the index.
+	 */
+	public int size()
+	{
+		return aBounds.size();
+	}
+
+	/**
+	 * Returns the objects whose area may contain pPoint. The result is
+	 * a superset of the objects whose bounds contain pPoint, in no particular order.
+	 *
+	 * @param pPoint The point to test.
+	 * @return The objects that share a grid cell with pPoint.
+	 * @pre pPoint != null
+	 */
+	public List<T> candidatesAt(Point pPoint)
+	{
+		assert pPoint != null;
+		refresh();
+		return new ArrayList<>(aCells.get(cellIndex(toCell(pPoint.getX()), toCell(pPoint.getY()))));
+	}
+
+	/**
+	 * Returns the objects whose area intersects pArea, according to 
+	 * the bounds obtained when the objects were last binned.
+	 * 
+	 * @param pArea The area to test.
+	 * @return The objects that intersect pArea, in no particular order.
+	 * @pre pArea != null
+	 */
+	public List<T> objectsIn(Rectangle pArea)
+	{
+		assert pArea != null;
+		refresh();
+		Set<T> found = Collections.newSetFromMap(new IdentityHashMap<>());
+		List<T> result = new ArrayList<>();
+		forEachCell(pArea, cell -> 
+		{
+			for( T object : cell )
+			{
+				if( found.add(object) && aBounds.get(object).intersects(pArea) )
+				{
+					result.add(object);
+				}
+			}
+		});
+		return result;
+	}
+	
+	/**
+	 * Returns the smallest area that covers both the previous and the current
+	 * bounds of all the objects that were added, removed, or invalidated since the 
+	 * last call to this method, and starts tracking changes anew. Objects
+	 * that were invalidated but whose bounds did not change are not included.
+	 * 
+	 * @return The area that changed, or empty if no object changed.
+	 */
+	public Optional<Rectangle> consumeChangedArea()
+	{
+		refresh();
+		Optional<Rectangle> result = aChangedArea;
+		aChangedArea = Optional.empty();
+		return result;
+	}
+	
+	private void addToChangedArea(Rectangle pBounds)
+	{
+		if( pBounds != null )
+		{
+			aChangedArea = Optional.of(aChangedArea.map(area -> area.add(pBounds)).orElse(pBounds));
+		}
+	}
+	
+	private void refresh()
+	{
+		boolean binned = !aAllStale;
+		if( aAllStale )
+		{
+			for( List<T> cell : aCells )
+			{
+				cell.clear();
+			}
+			aStale.addAll(aBounds.keySet());
+			aAllStale = false;
+		}
+		for( T object : aStale )
+		{
+			if( binned )
+			{
+				unbin(object);
+			}
+			Rectangle bounds = aBoundsFunction.apply(object);
+			Rectangle previous = aBounds.put(object, bounds);
+			if( !bounds.equals(previous) )
+			{
+				addToChangedArea(previous);
+				addToChangedArea(bounds);
+			}
+			forEachCell(bounds, cell -> cell.add(object));
+		}
+		aStale.clear();
+	}
+
+	private void unbin(T pObject)
+	{
+		Rectangle bounds = aBounds.get(pObject);
+		if( bounds != null )
+		{
+			forEachCell(bounds, cell -> cell.remove(pObject));
+		}
+	}
+
+	private void forEachCell(Rectangle pBounds, Consumer<List<T>> pAction)
+	{
+		int maxColumn = toCell(pBounds.getMaxX());
+		int maxRow = toCell(pBounds.getMaxY());
+		for( int row = toCell(pBounds.getY()); row <= maxRow; row++ )
+		{
+			for( int col = toCell(pBounds.getX()); col <= maxColumn; col++ )
+			{
+				pAction.accept(aCells.get(cellIndex(col, row)));
+			}
+		}
+	}
+
+	/*
+	 * Returns the index of the column or row that covers pCoordinate,
+	 * clamped to the grid.
+	 */
+	private int toCell(int pCoordinate)
+	{
+		return Math.max(0, Math.min(aNumberOfCells - 1, pCoordinate / aCellSize));
+	}
+
+	private int cellIndex(int pColumn, int pRow)
+	{
+		return pRow * aNumberOfCells + pColumn;
+	}
+}
@@ -20,6 +20,11 @@
  *******************************************************************************/
 package ca.mcgill.cs.jetuml.gui;
 
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+
 import ca.mcgill.cs.jetuml.application.UserPreferences;
 import ca.mcgill.cs.jetuml.application.UserPreferences.BooleanPreference;
 import ca.mcgill.cs.jetuml.application.UserPreferences.BooleanPreferenceChangeHandler;
@@ -34,13 +39,39 @@ import javafx.scene.paint.Color;
 
 /**
  * A canvas on which to view diagrams.
+ * 
+ * The canvas only paints the diagram itself. It is the second of a stack 
+ * of layers, which from bottom to top hold the grid, the diagram, the 
+ * selection handles, and the tools (rubberband and lasso). Each layer is 
+ * only repainted when something it shows changes, so that interactions 
+ * with the selection or the tools do not repaint the diagram. The other 
+ * layers are transparent to mouse events, and only cover the visible area
+ * of the canvas: they are moved and resized with it. This way, they take
+ * as much memory as the viewport, instead of as much as the whole canvas.
+ * The stack must align its layers on its top left corner.
+ * 
+ * Requests to repaint the canvas are coalesced: the layers are repainted
+ * at most once per pulse of the JavaFX application thread, however many 
+ * requests were made since the last pulse.
  */
 public class DiagramCanvas extends Canvas implements SelectionObserver, BooleanPreferenceChangeHandler
 {	
 	private static final double LINE_WIDTH = 0.6;
+	/* The number of pixels that shadows can extend beyond the bounds of an element. */
+	private static final int MARGIN = 10;
+	
+	private enum Layer 
+	{ GRID, DIAGRAM, SELECTION, TOOLS }
 	
+	private final Canvas aGridLayer;
+	private final Canvas aSelectionLayer;
+	private final Canvas aToolLayer;
 	private DiagramView aDiagramView;
 	private DiagramCanvasController aController;
+	private Optional<Rectangle> aVisibleArea = Optional.empty();
+	private final RepaintScheduler aScheduler = new RepaintScheduler(this::paintPendingLayers);
+	private final EnumSet<Layer> aPendingLayers = EnumSet.noneOf(Layer.class);
+	private boolean aPendingChanges = false; // Only the changed area of the diagram layer must be repainted
 	
 	/**
 	 * Constructs the canvas, assigns the diagram view to it.
@@ -52,8 +83,18 @@ public class DiagramCanvas extends Canvas implements SelectionObserver, BooleanP
 	public DiagramCanvas(DiagramView pDiagramView, int pWidth, int pHeight)
 	{
 		super(pWidth, pHeight);
-		getGraphicsContext2D().setLineWidth(LINE_WIDTH);
-		getGraphicsContext2D().setFill(Color.WHITE);
+		// The other layers are sized once the visible area is known
+		aGridLayer = new Canvas();
+		aSelectionLayer = new Canvas();
+		aToolLayer = new Canvas();
+		for( Canvas layer : getLayers() )
+		{
+			layer.getGraphicsContext2D().setLineWidth(LINE_WIDTH);
+			layer.getGraphicsContext2D().setFill(Color.WHITE);
+		}
+		aGridLayer.setMouseTransparent(true);
+		aSelectionLayer.setMouseTransparent(true);
+		aToolLayer.setMouseTransparent(true);
 		aDiagramView = pDiagramView;
 	}
 	
@@ -67,6 +108,15 @@ public class DiagramCanvas extends Canvas implements SelectionObserver, BooleanP
 		aController = pController;
 	}
 	
+	/**
+	 * @return The layers to stack on top of each other to show the
+	 * diagram, from bottom to top. This canvas is one of them.
+	 */
+	public List<Canvas> getLayers()
+	{
+		return Arrays.asList(aGridLayer, this, aSelectionLayer, aToolLayer);
+	}
+	
 	@Override
 	public boolean isResizable()
 	{
@@ -82,29 +132,226 @@ public class DiagramCanvas extends Canvas implements SelectionObserver, BooleanP
 	}
 	
 	/**
-	 * Paints the panel and all the graph elements in aDiagramView.
+	 * Sets the area of the canvas that is visible to the user, and repaints it.
+	 * Only this area is painted, until a different area becomes visible.
+	 * 
+	 * @param pVisibleArea The visible area of the canvas.
+	 * @pre pVisibleArea != null
+	 */
+	public void setVisibleArea(Rectangle pVisibleArea)
+	{
+		assert pVisibleArea != null;
+		aVisibleArea = Optional.of(pVisibleArea);
+		paintPanel();
+	}
+	
+	/**
+	 * Requests that all the layers of the panel be painted, including all 
+	 * the graph elements in aDiagramView that are in the visible area of the panel.
 	 * Called after the panel is resized.
 	 */
 	public void paintPanel()
 	{
+		requestRepaint(EnumSet.allOf(Layer.class));
+	}
+	
+	/**
+	 * Requests that only the part of the visible area where the diagram changed 
+	 * since it was last painted, and the selection handles, be repainted. This method 
+	 * should be preferred to paintPanel() after changes to the diagram that do not affect 
+	 * the selection, such as moving the selected elements.
+	 */
+	public void paintChanges()
+	{
+		aPendingChanges = true;
+		requestRepaint(EnumSet.of(Layer.SELECTION));
+	}
+	
+	/**
+	 * @return The number of times the canvas was repainted since it was created. 
+	 * Each repaint handles all the requests made since the previous one.
+	 */
+	public int getNumberOfFrames()
+	{
+		return aScheduler.getNumberOfFrames();
+	}
+	
+	/**
+	 * @return The number of requests to repaint the canvas since it was created.
+	 */
+	public int getNumberOfRepaintRequests()
+	{
+		return aScheduler.getNumberOfRequests();
+	}
+	
+	private void requestRepaint(EnumSet<Layer> pLayers)
+	{
+		aPendingLayers.addAll(pLayers);
+		aScheduler.requestRepaint();
+	}
+	
+	private void paintPendingLayers()
+	{
+		if( aPendingLayers.contains(Layer.GRID) )
+		{
+			paintGrid();
+		}
+		if( aPendingLayers.contains(Layer.DIAGRAM) )
+		{
+			paintDiagram();
+		}
+		else if( aPendingChanges )
+		{
+			paintDiagramChanges();
+		}
+		if( aPendingLayers.contains(Layer.SELECTION) )
+		{
+			paintSelection();
+		}
+		if( aPendingLayers.contains(Layer.TOOLS) )
+		{
+			paintTools();
+		}
+		aPendingLayers.clear();
+		aPendingChanges = false;
+	}
+	
+	private void paintDiagram()
+	{
+		getDiagram().consumeChangedArea();
+		GraphicsContext context = getGraphicsContext2D();
+		Rectangle area = getVisibleArea();
+		context.clearRect(area.getX(), area.getY(), area.getWidth(), area.getHeight());
+		aDiagramView.draw(context, area);
+	}
+	
+	private void paintDiagramChanges()
+	{
+		Optional<Rectangle> changed = getDiagram().consumeChangedArea();
+		if( !changed.isPresent() )
+		{
+			return;
+		}
+		Rectangle visible = getVisibleArea();
+		Rectangle area = grow(changed.get(), MARGIN);
+		int x = Math.max(area.getX(), visible.getX());
+		int y = Math.max(area.getY(), visible.getY());
+		int maxX = Math.min(area.getMaxX(), visible.getMaxX());
+		int maxY = Math.min(area.getMaxY(), visible.getMaxY());
+		if( x >= maxX || y >= maxY )
+		{
+			return;
+		}
+		area = new Rectangle(x, y, maxX - x, maxY - y);
+		
 		GraphicsContext context = getGraphicsContext2D();
+		context.save();
+		context.beginPath();
+		context.rect(area.getX(), area.getY(), area.getWidth(), area.getHeight());
+		context.clip();
+		context.clearRect(area.getX(), area.getY(), area.getWidth(), area.getHeight());
+		// The elements just outside the area can have shadows that extend into it.
+		aDiagramView.draw(context, grow(area, MARGIN));
+		context.restore();
+	}
+	
+	private void paintGrid()
+	{
+		if( !aVisibleArea.isPresent() )
+		{
+			return;
+		}
+		Rectangle area = getOverlayArea();
+		GraphicsContext context = moveOverlay(aGridLayer, area);
 		context.setFill(Color.WHITE); 
-		context.fillRect(0, 0, getWidth(), getHeight());
+		context.fillRect(area.getX(), area.getY(), area.getWidth(), area.getHeight());
 		if(UserPreferences.instance().getBoolean(BooleanPreference.showGrid)) 
 		{
-			Grid.draw(context, new Rectangle(0, 0, (int) getWidth(), (int) getHeight()));
+			Grid.draw(context, area);
+		}
+		context.restore();
+	}
+	
+	private void paintSelection()
+	{
+		if( !aVisibleArea.isPresent() )
+		{
+			return;
 		}
-		aDiagramView.draw(context);
+		Rectangle area = getOverlayArea();
+		GraphicsContext context = moveOverlay(aSelectionLayer, area);
+		context.clearRect(area.getX(), area.getY(), area.getWidth(), area.getHeight());
 		aController.synchronizeSelectionModel();
 		aController.getSelectionModel().forEach( selected -> selected.view().drawSelectionHandles(context));
+		context.restore();
+	}
+	
+	private void paintTools()
+	{
+		if( !aVisibleArea.isPresent() )
+		{
+			return;
+		}
+		Rectangle area = getOverlayArea();
+		GraphicsContext context = moveOverlay(aToolLayer, area);
+		context.clearRect(area.getX(), area.getY(), area.getWidth(), area.getHeight());
 		aController.getSelectionModel().getRubberband().ifPresent( rubberband -> ToolGraphics.drawRubberband(context, rubberband));
 		aController.getSelectionModel().getLasso().ifPresent( lasso -> ToolGraphics.drawLasso(context, lasso));
+		context.restore();
+	}
+	
+	/*
+	 * Moves pLayer over pArea, resizing it if necessary, and returns its graphics 
+	 * context, translated so that it draws in the coordinates of this canvas. 
+	 * The state of the context must be restored once the layer is painted.
+	 */
+	private static GraphicsContext moveOverlay(Canvas pLayer, Rectangle pArea)
+	{
+		if( pLayer.getWidth() != pArea.getWidth() || pLayer.getHeight() != pArea.getHeight() )
+		{
+			pLayer.setWidth(pArea.getWidth());
+			pLayer.setHeight(pArea.getHeight());
+		}
+		pLayer.setTranslateX(pArea.getX());
+		pLayer.setTranslateY(pArea.getY());
+		GraphicsContext context = pLayer.getGraphicsContext2D();
+		context.save();
+		context.translate(-pArea.getX(), -pArea.getY());
+		return context;
 	}
 	
+	private Rectangle getVisibleArea()
+	{
+		return aVisibleArea.orElse(new Rectangle(0, 0, (int) getWidth(), (int) getHeight()));
+	}
+	
+	/*
+	 * The visible area, within the bounds of this canvas.
+	 */
+	private Rectangle getOverlayArea()
+	{
+		Rectangle area = getVisibleArea();
+		int x = Math.max(0, area.getX());
+		int y = Math.max(0, area.getY());
+		int maxX = Math.min((int) getWidth(), area.getMaxX());
+		int maxY = Math.min((int) getHeight(), area.getMaxY());
+		return new Rectangle(x, y, Math.max(0, maxX - x), Math.max(0, maxY - y));
+	}
+	
+	private static Rectangle grow(Rectangle pRectangle, int pMargin)
+	{
+		return new Rectangle(pRectangle.getX() - pMargin, pRectangle.getY() - pMargin, 
+				pRectangle.getWidth() + 2 * pMargin, pRectangle.getHeight() + 2 * pMargin);
+	}
+	
+	/*
+	 * A change to the selection model does not change the diagram, 
+	 * so only the selection handles and the tools are repainted.
+	 */
 	@Override
 	public void selectionModelChanged()
 	{
-		paintPanel();		
+		requestRepaint(EnumSet.of(Layer.SELECTION, Layer.TOOLS));
 	}
 
 	@Override
@@ -112,7 +359,7 @@ public class DiagramCanvas extends Canvas implements SelectionObserver, BooleanP
 	{
 		if( pPreference == BooleanPreference.showGrid )
 		{
-			paintPanel();
+			requestRepaint(EnumSet.of(Layer.GRID));
 		}
 	}
 }
@@ -26,6 +26,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import ca.mcgill.cs.jetuml.application.Clipboard;
 import ca.mcgill.cs.jetuml.application.MoveTracker;
@@ -35,6 +36,7 @@ import ca.mcgill.cs.jetuml.diagram.Edge;
 import ca.mcgill.cs.jetuml.diagram.Node;
 import ca.mcgill.cs.jetuml.diagram.builder.CompoundOperation;
 import ca.mcgill.cs.jetuml.diagram.builder.DiagramBuilder;
+import ca.mcgill.cs.jetuml.diagram.builder.DiagramOperation;
 import ca.mcgill.cs.jetuml.diagram.builder.DiagramOperationProcessor;
 import ca.mcgill.cs.jetuml.diagram.nodes.ChildNode;
 import ca.mcgill.cs.jetuml.diagram.nodes.ParentNode;
@@ -66,8 +68,10 @@ public class DiagramCanvasController
 	private DragMode aDragMode;
 	private Point aLastMousePoint;
 	private Point aMouseDownPoint;  
+	private long aMouseDownTime; // As returned by System.nanoTime()
 	private DiagramOperationProcessor aProcessor = new DiagramOperationProcessor();
 	private boolean aModified = false;
+	private long aModificationCount = 0;
 	private MouseDraggedGestureHandler aHandler;
 
 	
@@ -88,6 +92,7 @@ public class DiagramCanvasController
 		aCanvas.setOnMouseReleased(e -> mouseReleased(e));
 		aCanvas.setOnMouseDragged( e -> mouseDragged(e));
 		aHandler = pHandler;
+		aProcessor.enableCheckpoints(aCanvas.getDiagram(), DiagramOperationProcessor.DEFAULT_CHECKPOINT_THRESHOLD);
 	}
 	
 	/**
@@ -132,6 +137,31 @@ public class DiagramCanvasController
 	public void setModified(boolean pModified)
 	{
 		aModified = pModified;
+		if( pModified )
+		{
+			aModificationCount++;
+		}
+	}
+	
+	/**
+	 * @return The number of times this graph was flagged as modified. Comparing 
+	 * two values tells whether the graph was modified in between.
+	 */
+	public long getModificationCount()
+	{
+		return aModificationCount;
+	}
+	
+	/**
+	 * Registers pListener to be notified of every operation executed,
+	 * undone, or redone on the diagram.
+	 * 
+	 * @param pListener The listener to notify.
+	 * @pre pListener != null
+	 */
+	public void addOperationListener(Consumer<DiagramOperation> pListener)
+	{
+		aProcessor.addOperationListener(pListener);
 	}
 	
 	/**
@@ -398,6 +428,7 @@ public class DiagramCanvasController
 
 	private void mousePressed(MouseEvent pEvent)
 	{
+		aMouseDownTime = System.nanoTime();
 		if( pEvent.isSecondaryButtonDown() )
 		{
 			aToolBar.showPopup(pEvent.getScreenX(), pEvent.getScreenY());
@@ -452,7 +483,7 @@ public class DiagramCanvasController
 			{
 				selected.translate(dx, dy);
 			}
-			aCanvas.paintPanel();
+			aCanvas.paintChanges();
 		}
 	}
 	
@@ -480,7 +511,7 @@ public class DiagramCanvasController
 		CompoundOperation operation = aMoveTracker.endTrackingMove(aDiagramBuilder);
 		if(!operation.isEmpty())
 		{
-			aProcessor.storeAlreadyExecutedOperation(operation);
+			aProcessor.storeMergeableOperation(operation, aMouseDownTime);
 		}
 		aCanvas.paintPanel();
 	}
@@ -548,6 +579,6 @@ public class DiagramCanvasController
 			selected.translate(dx, dy);
 		}
 		aLastMousePoint = pMousePoint; 
-		aCanvas.paintPanel();
+		aCanvas.paintChanges();
 	}
 }
\ No newline at end of file
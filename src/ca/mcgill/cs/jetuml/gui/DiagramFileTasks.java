@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2018 by the contributors of the JetUML project.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package ca.mcgill.cs.jetuml.gui;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import ca.mcgill.cs.jetuml.diagram.Diagram;
+import ca.mcgill.cs.jetuml.persistence.PersistenceService;
+import javafx.concurrent.Task;
+import javafx.concurrent.Worker;
+import javafx.scene.control.ProgressIndicator;
+
+/**
+ * Saves and reads diagrams in the background, so that the user
+ * interface remains responsive while files are written or parsed.
+ * Tasks are executed one at a time, in the order in which they 
+ * are submitted, and their callbacks are run on the JavaFX 
+ * application thread.
+ */
+final class DiagramFileTasks
+{
+	private static final int PROGRESS_INDICATOR_SIZE = 16;
+	
+	private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(pRunnable -> 
+	{
+		Thread thread = new Thread(pRunnable, "JetUML file tasks");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	private DiagramFileTasks() {}
+	
+	/**
+	 * Saves a copy of pDiagram to pFile. The copy is made before this
+	 * method returns, so pDiagram can be modified while the file is written.
+	 * The progress of the task is the number of elements written.
+	 * 
+	 * @param pDiagram The diagram to save.
+	 * @param pFile The file to save to.
+	 * @param pOnSuccess Called when the file has been saved.
+	 * @param pOnFailure Called with the reason the file could not be saved.
+	 * @return The task that saves the diagram.
+	 * @pre pDiagram != null && pFile != null && pOnSuccess != null && pOnFailure != null
+	 */
+	static Task<Void> save(Diagram pDiagram, File pFile, Runnable pOnSuccess, Consumer<Throwable> pOnFailure)
+	{
+		assert pDiagram != null && pFile != null && pOnSuccess != null && pOnFailure != null;
+		Diagram snapshot = pDiagram.duplicate();
+		return submit(new Task<Void>()
+		{
+			@Override
+			protected Void call() throws Exception
+			{
+				PersistenceService.save(snapshot, pFile, this::updateProgress);
+				return null;
+			}
+		}, pResult -> pOnSuccess.run(), pOnFailure);
+	}
+	
+	/**
+	 * Reads a diagram from pFile. The progress of the task is the 
+	 * number of bytes of the file read.
+	 * 
+	 * @param pFile The file to read.
+	 * @param pOnSuccess Called with the diagram read.
+	 * @param pOnFailure Called with the reason the file could not be read.
+	 * @return The task that reads the diagram.
+	 * @pre pFile != null && pOnSuccess != null && pOnFailure != null
+	 */
+	static Task<Diagram> read(File pFile, Consumer<Diagram> pOnSuccess, Consumer<Throwable> pOnFailure)
+	{
+		assert pFile != null && pOnSuccess != null && pOnFailure != null;
+		return submit(new Task<Diagram>()
+		{
+			@Override
+			protected Diagram call() throws Exception
+			{
+				return PersistenceService.read(pFile, this::updateProgress);
+			}
+		}, pOnSuccess, pOnFailure);
+	}
+	
+	/**
+	 * Creates a small indicator of the progress of pTask, suitable for 
+	 * use as the graphic of a tab.
+	 * 
+	 * @param pTask The task whose progress to show.
+	 * @return A new progress indicator bound to the progress of pTask.
+	 * @pre pTask != null
+	 */
+	static ProgressIndicator createProgressIndicator(Worker<?> pTask)
+	{
+		assert pTask != null;
+		ProgressIndicator indicator = new ProgressIndicator();
+		indicator.setPrefSize(PROGRESS_INDICATOR_SIZE, PROGRESS_INDICATOR_SIZE);
+		indicator.progressProperty().bind(pTask.progressProperty());
+		return indicator;
+	}
+	
+	/**
+	 * Calls pAction on the JavaFX application thread once all the tasks 
+	 * already submitted are complete, and their callbacks have run. This 
+	 * method does not wait for the tasks to complete.
+	 * 
+	 * @param pAction The action to run.
+	 * @pre pAction != null
+	 */
+	static void whenDone(Runnable pAction)
+	{
+		assert pAction != null;
+		// Tasks run in order, and their callbacks are queued on the application 
+		// thread in the order in which the tasks complete.
+		submit(new Task<Void>()
+		{
+			@Override
+			protected Void call()
+			{
+				return null;
+			}
+		}, pResult -> pAction.run(), pException -> pAction.run());
+	}
+	
+	/**
+	 * Runs pAction in the background, after the tasks already submitted.
+	 * This is used to write the journals of the diagrams without blocking
+	 * the user interface.
+	 * 
+	 * @param pAction The action to run.
+	 * @pre pAction != null
+	 */
+	static void execute(Runnable pAction)
+	{
+		assert pAction != null;
+		EXECUTOR.execute(pAction);
+	}
+	
+	/**
+	 * Stops accepting new tasks. The tasks already submitted are still executed.
+	 */
+	static void shutdown()
+	{
+		EXECUTOR.shutdown();
+	}
+	
+	private static <T> Task<T> submit(Task<T> pTask, Consumer<T> pOnSuccess, Consumer<Throwable> pOnFailure)
+	{
+		pTask.setOnSucceeded(pEvent -> pOnSuccess.accept(pTask.getValue()));
+		pTask.setOnFailed(pEvent -> pOnFailure.accept(pTask.getException()));
+		EXECUTOR.execute(pTask);
+		return pTask;
+	}
+}
@@ -24,14 +24,22 @@ package ca.mcgill.cs.jetuml.gui;
 import static ca.mcgill.cs.jetuml.application.ApplicationResources.RESOURCES;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 import ca.mcgill.cs.jetuml.application.UserPreferences;
 import ca.mcgill.cs.jetuml.application.UserPreferences.IntegerPreference;
 import ca.mcgill.cs.jetuml.diagram.Diagram;
 import ca.mcgill.cs.jetuml.diagram.DiagramType;
 import ca.mcgill.cs.jetuml.geom.Point;
+import ca.mcgill.cs.jetuml.geom.Rectangle;
+import ca.mcgill.cs.jetuml.persistence.DiagramJournal;
 import ca.mcgill.cs.jetuml.views.DiagramView;
+import javafx.concurrent.Worker;
 import javafx.geometry.Bounds;
+import javafx.geometry.Pos;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.ScrollPane;
 import javafx.scene.control.Tab;
 import javafx.scene.layout.BorderPane;
@@ -42,10 +50,18 @@ import javafx.scene.layout.StackPane;
  */
 public class DiagramTab extends Tab implements MouseDraggedGestureHandler
 {	
+	private static final int VIEWPORT_BUFFER = 12; // (border insets + border width + 1)*2
+	
 	private DiagramCanvas aDiagramCanvas;
 	private DiagramView aDiagramView;
 	private final DiagramCanvasController aDiagramCanvasController;
 	private File aFile; // The file associated with this diagram
+	private Optional<File> aJournalDirectory = Optional.empty();
+	private Optional<DiagramJournal> aJournal = Optional.empty();
+	private int aPendingSaves = 0;
+	private long aSavedModificationCount = -1; // The modification count of the diagram being saved
+	private boolean aSaveFailed = false;
+	private boolean aChangesDiscarded = false;
 	
 	/**
      * Constructs a diagram tab initialized with pDiagram.
@@ -65,9 +81,11 @@ public class DiagramTab extends Tab implements MouseDraggedGestureHandler
 		BorderPane layout = new BorderPane();
 		layout.setRight(sideBar);
 
-		// We put the diagram in a stack pane for the sole
-		// purpose of being able to decorate it with CSS
-		StackPane pane = new StackPane(aDiagramCanvas);
+		// We put the layers of the diagram canvas in a stack pane,
+		// which also makes it possible to decorate them with CSS
+		StackPane pane = new StackPane();
+		pane.setAlignment(Pos.TOP_LEFT); // The layers other than the canvas only cover the visible area
+		pane.getChildren().addAll(aDiagramCanvas.getLayers());
 		final String cssDefault = "-fx-border-color: grey;\n"
 				+ "-fx-border-insets: 4;\n"
 				+ "-fx-border-width: 1;\n"
@@ -88,12 +106,16 @@ public class DiagramTab extends Tab implements MouseDraggedGestureHandler
 		// shrink in the other dimension and the max size property, required for 
 		// centering, will prevent allowing more space for it. We will have to tolerate
 		// this until a straightforward solution that retains canvas centering can be found.
-		final int buffer = 12; // (border insets + border width + 1)*2
-		scroll.setMaxSize(aDiagramCanvas.getWidth() + buffer, aDiagramCanvas.getHeight() + buffer);
+		scroll.setMaxSize(aDiagramCanvas.getWidth() + VIEWPORT_BUFFER, aDiagramCanvas.getHeight() + VIEWPORT_BUFFER);
 		layout.setCenter(scroll);
 		
 		setTitle(false);
 		setContent(layout);
+		
+		// Only the part of the canvas visible in the viewport is painted
+		scroll.hvalueProperty().addListener(pObservable -> updateVisibleArea());
+		scroll.vvalueProperty().addListener(pObservable -> updateVisibleArea());
+		scroll.viewportBoundsProperty().addListener(pObservable -> updateVisibleArea());
 
 		setOnCloseRequest(pEvent -> 
 		{
@@ -135,11 +157,119 @@ public class DiagramTab extends Tab implements MouseDraggedGestureHandler
 	
 	/**
 	 * This method should be called immediately before closing the tab.
+	 * The journal of the diagram is deleted if the diagram is saved or if
+	 * its changes were discarded. Otherwise, it is kept so that the diagram
+	 * is recovered at the next startup.
 	 */
 	public void close()
 	{
 		UserPreferences.instance().removeBooleanPreferenceChangeHandler(aDiagramCanvas);
 		UserPreferences.instance().removeBooleanPreferenceChangeHandler((DiagramTabToolBar)((BorderPane)getContent()).getRight());
+		stopJournal(!isModified() || aChangesDiscarded);
+	}
+	
+	/**
+	 * Records that the user chose to abandon the changes to the diagram
+	 * that are not saved, so that they are not recovered once the tab is closed.
+	 */
+	public void discardChanges()
+	{
+		aChangesDiscarded = true;
+	}
+	
+	/**
+	 * Starts recording every change to the diagram in a journal, so that the 
+	 * diagram can be recovered if the application does not terminate normally.
+	 * The journal is created with the first change, or immediately if the diagram 
+	 * is already flagged as modified, and it is written in the background. It is 
+	 * deleted when the diagram is saved, and kept when the tab is closed with 
+	 * unsaved changes. If the journal cannot be written, the changes silently 
+	 * stop being recorded.
+	 * 
+	 * @param pDirectory The directory where to write the journal.
+	 * @pre pDirectory != null
+	 */
+	public void startJournal(File pDirectory)
+	{
+		assert pDirectory != null;
+		aJournalDirectory = Optional.of(pDirectory);
+		aDiagramCanvasController.addOperationListener(pOperation -> recordChanges());
+		if( isModified() )
+		{
+			createJournal();
+		}
+	}
+	
+	/*
+	 * The new journal starts with a snapshot of the diagram, 
+	 * which includes the changes not recorded yet.
+	 */
+	private void createJournal()
+	{
+		try
+		{
+			DiagramJournal journal = DiagramJournal.create(getDiagram(), aJournalDirectory.get(), DiagramFileTasks::execute);
+			aJournal = Optional.of(journal);
+			if( aFile != null )
+			{
+				journal.setFile(aFile);
+			}
+		}
+		catch(IOException exception)
+		{
+			abandonJournal();
+		}
+	}
+	
+	private void recordChanges()
+	{
+		try
+		{
+			if( aJournal.isPresent() )
+			{
+				aJournal.get().record();
+			}
+			else if( aJournalDirectory.isPresent() )
+			{
+				createJournal();
+			}
+		}
+		catch(IOException exception)
+		{
+			abandonJournal();
+		}
+	}
+	
+	/*
+	 * Stops recording changes for good, after the journal could not be written.
+	 */
+	private void abandonJournal()
+	{
+		aJournalDirectory = Optional.empty();
+		stopJournal(true);
+	}
+	
+	/*
+	 * Stops recording changes, and deletes the journal if pDelete is true.
+	 */
+	private void stopJournal(boolean pDelete)
+	{
+		try
+		{
+			if( aJournal.isPresent() && pDelete )
+			{
+				aJournal.get().close();
+			}
+			else if( aJournal.isPresent() )
+			{
+				aJournal.get().release();
+			}
+		}
+		catch(IOException exception)
+		{
+			// The journal is abandoned, and will be recovered at the next startup
+		}
+		aJournal = Optional.empty();
 	}
 
 	/**
@@ -261,6 +391,88 @@ public class DiagramTab extends Tab implements MouseDraggedGestureHandler
 	{
 		aDiagramCanvasController.setModified(pModified);
 	}
+	
+	/**
+	 * Saves the diagram to pFile in the background. The diagram remains
+	 * flagged as modified until the file is written, and still is afterwards
+	 * if it was modified in the meantime.
+	 * 
+	 * @param pFile The file to save to.
+	 * @param pOnSuccess Called when the file has been saved.
+	 * @param pOnFailure Called with the reason the file could not be saved.
+	 * @pre pFile != null && pOnSuccess != null && pOnFailure != null
+	 */
+	public void save(File pFile, Runnable pOnSuccess, Consumer<Throwable> pOnFailure)
+	{
+		assert pFile != null && pOnSuccess != null && pOnFailure != null;
+		long modificationCount = aDiagramCanvasController.getModificationCount();
+		aPendingSaves++;
+		aSavedModificationCount = modificationCount;
+		aSaveFailed = false;
+		showProgress(DiagramFileTasks.save(getDiagram(), pFile, () -> 
+		{
+			aPendingSaves--;
+			if( aDiagramCanvasController.getModificationCount() == modificationCount )
+			{
+				setModified(false);
+				stopJournal(true); // Created again with the next change
+			}
+			pOnSuccess.run();
+		}, pException -> 
+		{
+			aPendingSaves--;
+			aSaveFailed = true;
+			pOnFailure.accept(pException);
+		}));
+	}
+	
+	/**
+	 * @return True if the diagram is being saved in the background.
+	 */
+	public boolean isSaving()
+	{
+		return aPendingSaves > 0;
+	}
+	
+	/**
+	 * @return True if the last save of the diagram failed.
+	 */
+	public boolean hasFailedSave()
+	{
+		return aSaveFailed;
+	}
+	
+	/**
+	 * @return True if the diagram has modifications that are neither saved
+	 *     nor being saved.
+	 */
+	public boolean hasUnsavedChanges()
+	{
+		return isModified() && !(isSaving() && 
+				aDiagramCanvasController.getModificationCount() == aSavedModificationCount);
+	}
+
+	/**
+	 * Shows the progress of pTask in the header of this tab
+	 * until the task is done.
+	 * 
+	 * @param pTask A task that operates on the diagram in this tab.
+	 * @pre pTask != null
+	 */
+	public void showProgress(Worker<?> pTask)
+	{
+		assert pTask != null;
+		ProgressIndicator indicator = DiagramFileTasks.createProgressIndicator(pTask);
+		setGraphic(indicator);
+		pTask.runningProperty().addListener((pObservable, pWasRunning, pRunning) -> 
+		{
+			// Another task may have started in the meantime
+			if( !pRunning && getGraphic() == indicator )
+			{
+				setGraphic(null);
+			}
+		});
+	}
 
 	/**
      * Gets the file property.
@@ -279,6 +491,17 @@ public class DiagramTab extends Tab implements MouseDraggedGestureHandler
 	{
 		aFile = pFile;
 		setTitle(false);
+		try
+		{
+			if( aJournal.isPresent() )
+			{
+				aJournal.get().setFile(pFile);
+			}
+		}
+		catch(IOException exception)
+		{
+			abandonJournal();
+		}
 	}
 
 	@Override
@@ -289,12 +512,28 @@ public class DiagramTab extends Tab implements MouseDraggedGestureHandler
 		((ScrollPane)((BorderPane)getContent()).getCenter()).setVvalue(projection.getAdjustedVValueToRevealY(pTo.getY()));
 	}
 	
+	/*
+	 * The viewport shows the border around the canvas, so the visible
+	 * area is enlarged by the size of the border to make sure it covers
+	 * every visible pixel of the canvas.
+	 */
+	private void updateVisibleArea()
+	{
+		Rectangle area = getViewportProjection().getVisibleArea();
+		int x = Math.max(0, area.getX() - VIEWPORT_BUFFER);
+		int y = Math.max(0, area.getY() - VIEWPORT_BUFFER);
+		aDiagramCanvas.setVisibleArea(new Rectangle(x, y, 
+				area.getMaxX() + VIEWPORT_BUFFER - x, area.getMaxY() + VIEWPORT_BUFFER - y));
+	}
+	
 	private ViewportProjection getViewportProjection()
 	{
 		ScrollPane scrollPane = (ScrollPane)((BorderPane)getContent()).getCenter();
 		Bounds bounds = scrollPane.getViewportBounds();
-		return new ViewportProjection((int) bounds.getWidth(), (int) bounds.getHeight(), 
-				(int) aDiagramCanvas.getWidth(), (int) aDiagramCanvas.getHeight(), 
+		int canvasWidth = (int) aDiagramCanvas.getWidth();
+		int canvasHeight = (int) aDiagramCanvas.getHeight();
+		return new ViewportProjection(Math.min((int) bounds.getWidth(), canvasWidth), 
+				Math.min((int) bounds.getHeight(), canvasHeight), canvasWidth, canvasHeight, 
 				scrollPane.getHvalue(), scrollPane.getVvalue());
 	}
 }	        
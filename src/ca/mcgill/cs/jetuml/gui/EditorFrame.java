@@ -50,8 +50,9 @@ import ca.mcgill.cs.jetuml.diagram.Diagram;
 import ca.mcgill.cs.jetuml.diagram.DiagramType;
 import ca.mcgill.cs.jetuml.geom.Rectangle;
 import ca.mcgill.cs.jetuml.persistence.DeserializationException;
-import ca.mcgill.cs.jetuml.persistence.PersistenceService;
+import ca.mcgill.cs.jetuml.persistence.DiagramJournal;
 import ca.mcgill.cs.jetuml.views.ImageCreator;
+import javafx.concurrent.Task;
 import javafx.embed.swing.SwingFXUtils;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
@@ -79,6 +80,8 @@ public class EditorFrame extends BorderPane
 	private static final String KEY_LAST_EXPORT_DIR = "lastExportDir";
 	private static final String KEY_LAST_SAVEAS_DIR = "lastSaveAsDir";
 	private static final String KEY_LAST_IMAGE_FORMAT = "lastImageFormat";
+	private static final File JOURNAL_DIRECTORY = 
+			new File(System.getProperty("user.home"), ".jetuml" + File.separator + "autosave");
 	
 	private static final String[] IMAGE_FORMATS = validFormats("png", "jpg", "gif", "bmp");
 	
@@ -86,6 +89,7 @@ public class EditorFrame extends BorderPane
 	private RecentFilesQueue aRecentFiles = new RecentFilesQueue();
 	private Menu aRecentFilesMenu;
 	private WelcomeTab aWelcomeTab;
+	private boolean aExiting = false;
 	
 	/**
 	 * Constructs a blank frame with a desktop pane but no diagram window.
@@ -113,6 +117,59 @@ public class EditorFrame extends BorderPane
 		
 		aWelcomeTab = new WelcomeTab(newDiagramHandlers);
 		showWelcomeTabIfNecessary();
+		recoverDiagrams();
+	}
+	
+	/*
+	 * Reopens the diagrams that were being edited when the application
+	 * last terminated abnormally, as recorded in their journal.
+	 */
+	private void recoverDiagrams()
+	{
+		for( File journal : DiagramJournal.findAbandonedJournals(JOURNAL_DIRECTORY) )
+		{
+			try
+			{
+				DiagramJournal.Recovery recovery = DiagramJournal.replay(journal);
+				DiagramTab frame = new DiagramTab(recovery.getDiagram());
+				recovery.getFile().ifPresent(frame::setFile);
+				frame.setModified(true);
+				frame.startJournal(JOURNAL_DIRECTORY); // Starts right away, as the diagram is modified
+				insertGraphFrameIntoTabbedPane(frame);
+				// Once the new journal is written
+				DiagramFileTasks.whenDone(() -> deleteJournal(journal));
+			}
+			catch(DeserializationException exception)
+			{
+				deleteJournal(journal); // It cannot be recovered
+			}
+			catch(IOException exception)
+			{
+				// The journal will be recovered at the next startup
+			}
+		}
+	}
+	
+	private static void deleteJournal(File pJournal)
+	{
+		try
+		{
+			DiagramJournal.delete(pJournal);
+		}
+		catch(IOException exception)
+		{
+			// The journal will be recovered at the next startup
+		}
+	}
+	
+	/*
+	 * Creates a tab for pDiagram whose changes are recorded in a journal.
+	 */
+	private static DiagramTab createDiagramTab(Diagram pDiagram)
+	{
+		DiagramTab frame = new DiagramTab(pDiagram);
+		frame.startJournal(JOURNAL_DIRECTORY);
+		return frame;
 	}
 	
 	/* Returns the subset of pDesiredFormats for which a registered image writer 
@@ -146,7 +203,7 @@ public class EditorFrame extends BorderPane
 			((MenuBar)getTop()).getMenus().stream() // All top level menus
 				.flatMap(menu -> Stream.concat(Stream.of(menu), menu.getItems().stream())) // All menus and immediate sub-menus
 				.filter( item -> Boolean.TRUE.equals(item.getUserData())) // Retain only diagram-relevant menu items
-				.forEach( item -> item.setDisable(isWelcomeTabShowing()));
+				.forEach( item -> item.setDisable(!(tabPane().getSelectionModel().getSelectedItem() instanceof DiagramTab)));
 	}
 	
 	// Returns the new menu
@@ -224,44 +281,52 @@ public class EditorFrame extends BorderPane
 	 */
 	private void open(String pName) 
 	{
+		File file = new File(pName).getAbsoluteFile();
 		for( Tab tab : tabs() )
 		{
-			if(tab instanceof DiagramTab)
+			if( (tab instanceof DiagramTab && file.equals(((DiagramTab) tab).getFile())) || 
+					file.equals(tab.getUserData()) ) // A tab for a file being read
 			{
-				if(((DiagramTab) tab).getFile() != null	&& 
-						((DiagramTab) tab).getFile().getAbsoluteFile().equals(new File(pName).getAbsoluteFile())) 
-				{
-					tabPane().getSelectionModel().select(tab);
-					addRecentFile(new File(pName).getPath());
-					return;
-				}
+				tabPane().getSelectionModel().select(tab);
+				addRecentFile(new File(pName).getPath());
+				return;
 			}
 		}
 		
-		try 
+		// The diagram is read in the background. In the meantime, a 
+		// placeholder tab shows the progress of the operation.
+		Tab placeholder = new Tab(file.getName());
+		placeholder.setUserData(file);
+		placeholder.setClosable(false);
+		insertGraphFrameIntoTabbedPane(placeholder);
+		Task<Diagram> task = DiagramFileTasks.read(file, pDiagram ->
 		{
-			Diagram diagram2 = PersistenceService.read(new File(pName));
-			
-			Rectangle bounds = DiagramType.newViewInstanceFor(diagram2).getBounds();
+			int index = tabs().indexOf(placeholder);
+			tabs().remove(placeholder);
+			Rectangle bounds = DiagramType.newViewInstanceFor(pDiagram).getBounds();
 			int viewWidth = UserPreferences.instance().getInteger(IntegerPreference.diagramWidth);
 			int viewHeight = UserPreferences.instance().getInteger(IntegerPreference.diagramHeight);
 			if( bounds.getMaxX() > viewWidth || bounds.getMaxY() > viewHeight )
 			{
+				showWelcomeTabIfNecessary();
 				showDiagramViewTooSmallAlert(bounds, viewWidth, viewHeight);
 				return;
 			}
 			
-			DiagramTab frame2 = new DiagramTab(diagram2);
-			frame2.setFile(new File(pName).getAbsoluteFile());
+			DiagramTab frame = createDiagramTab(pDiagram);
+			frame.setFile(file);
 			addRecentFile(new File(pName).getPath());
-			insertGraphFrameIntoTabbedPane(frame2);
-		}
-		catch (IOException | DeserializationException exception2) 
+			tabs().add(index, frame);
+			tabPane().getSelectionModel().select(frame);
+		}, pException ->
 		{
+			tabs().remove(placeholder);
+			showWelcomeTabIfNecessary();
 			Alert alert = new Alert(AlertType.ERROR, RESOURCES.getString("error.open_file"), ButtonType.OK);
 			alert.initOwner(aMainStage);
 			alert.showAndWait();
-		}
+		});
+		placeholder.setGraphic(DiagramFileTasks.createProgressIndicator(task));
 	}
 	
 	private void showDiagramViewTooSmallAlert(Rectangle pBounds, int pWidth, int pHeight)
@@ -295,7 +360,7 @@ public class EditorFrame extends BorderPane
 		{
 			result.add(new NewDiagramHandler(diagramType, pEvent ->
 			{
-				insertGraphFrameIntoTabbedPane(new DiagramTab(diagramType.newInstance()));
+				insertGraphFrameIntoTabbedPane(createDiagramTab(diagramType.newInstance()));
 			}));
 		}
 		return Collections.unmodifiableList(result);
@@ -387,6 +452,7 @@ public class EditorFrame extends BorderPane
 
 			if (alert.getResult() == ButtonType.YES) 
 			{
+				openFrame.discardChanges();
 				removeGraphFrameFromTabbedPane(openFrame);
 			}
 			return;
@@ -415,6 +481,7 @@ public class EditorFrame extends BorderPane
 
 			if (alert.getResult() == ButtonType.YES) 
 			{
+				pDiagramTab.discardChanges();
 				removeGraphFrameFromTabbedPane(pDiagramTab);
 			}
 		}
@@ -433,17 +500,30 @@ public class EditorFrame extends BorderPane
 			saveAs();
 			return;
 		}
-		try 
-		{
-			PersistenceService.save(frame.getDiagram(), file);
-			frame.setModified(false);
-		} 
-		catch(IOException exception) 
+		saveInBackground(frame, file, () -> {});
+	}
+	
+	/*
+	 * Saves the diagram in pFrame to pFile in the background, and calls pOnSuccess
+	 * once the file is written. If the application is exiting, the failure is
+	 * reported once all the files are written.
+	 */
+	private void saveInBackground(DiagramTab pFrame, File pFile, Runnable pOnSuccess)
+	{
+		pFrame.save(pFile, pOnSuccess, pException ->
 		{
-			Alert alert = new Alert(AlertType.ERROR, RESOURCES.getString("error.save_file"), ButtonType.OK);
-			alert.initOwner(aMainStage);
-			alert.showAndWait();
-		}
+			if( !aExiting )
+			{
+				showSaveError();
+			}
+		});
+	}
+	
+	private void showSaveError()
+	{
+		Alert alert = new Alert(AlertType.ERROR, RESOURCES.getString("error.save_file"), ButtonType.OK);
+		alert.initOwner(aMainStage);
+		alert.showAndWait();
 	}
 
 	private void saveAs() 
@@ -466,32 +546,25 @@ public class EditorFrame extends BorderPane
 			fileChooser.setInitialFileName("");
 		}
 
-		try 
+		File result = fileChooser.showSaveDialog(aMainStage);
+		if(fileChooser.getSelectedExtensionFilter() != FileExtensions.get(diagram.getDescription()))
 		{
-			File result = fileChooser.showSaveDialog(aMainStage);
-			if(fileChooser.getSelectedExtensionFilter() != FileExtensions.get(diagram.getDescription()))
-			{
-				result = new File(result.getPath() + diagram.getFileExtension() + RESOURCES.getString("application.file.extension"));
-			}
-			if(result != null) 
+			result = new File(result.getPath() + diagram.getFileExtension() + RESOURCES.getString("application.file.extension"));
+		}
+		if(result != null) 
+		{
+			File file = result;
+			saveInBackground(frame, file, () -> 
 			{
-				PersistenceService.save(diagram, result);
-				addRecentFile(result.getAbsolutePath());
-				frame.setFile(result);
+				addRecentFile(file.getAbsolutePath());
+				frame.setFile(file);
 				frame.setText(frame.getFile().getName());
-				frame.setModified(false);
-				File dir = result.getParentFile();
+				File dir = file.getParentFile();
 				if( dir != null )
 				{
 					setLastDir(KEY_LAST_SAVEAS_DIR, dir);
 				}
-			}
-		} 
-		catch (IOException exception) 
-		{
-			Alert alert = new Alert(AlertType.ERROR, RESOURCES.getString("error.save_file"), ButtonType.OK);
-			alert.initOwner(aMainStage);
-			alert.showAndWait();
+			});
 		}
 	}
 
@@ -638,7 +711,7 @@ public class EditorFrame extends BorderPane
 	{
 		return (int) tabs().stream()
 			.filter( tab -> tab instanceof DiagramTab ) 
-			.filter( frame -> ((DiagramTab) frame).isModified())
+			.filter( frame -> ((DiagramTab) frame).hasUnsavedChanges())
 			.count();
 	}
 
@@ -662,16 +735,65 @@ public class EditorFrame extends BorderPane
 
 			if (alert.getResult() == ButtonType.YES) 
 			{
+				for( Tab tab : tabs() )
+				{
+					if( tab instanceof DiagramTab && ((DiagramTab) tab).hasUnsavedChanges() )
+					{
+						((DiagramTab) tab).discardChanges();
+					}
+				}
 				Preferences.userNodeForPackage(UMLEditor.class).put("recent", aRecentFiles.serialize());
-				System.exit(0);
+				exitWhenFilesAreSaved();
 			}
 		}
 		else 
 		{
 			Preferences.userNodeForPackage(UMLEditor.class).put("recent", aRecentFiles.serialize());
-			System.exit(0);
+			exitWhenFilesAreSaved();
 		}
-	}		
+	}
+	
+	/*
+	 * Waits for the files being saved in the background to be completely 
+	 * written before exiting, without blocking the user interface. The diagrams
+	 * are then closed, and the user is told about the files that could not be
+	 * saved. The journals of these diagrams are kept, so that they are recovered
+	 * at the next startup.
+	 */
+	private void exitWhenFilesAreSaved()
+	{
+		aExiting = true;
+		setDisable(true);
+		List<DiagramTab> saving = new ArrayList<>();
+		for( Tab tab : tabs() )
+		{
+			if( tab instanceof DiagramTab && ((DiagramTab) tab).isSaving() )
+			{
+				saving.add((DiagramTab) tab);
+			}
+		}
+		DiagramFileTasks.whenDone(() -> 
+		{
+			boolean saveFailed = saving.stream().anyMatch(DiagramTab::hasFailedSave);
+			for( Tab tab : tabs() )
+			{
+				if( tab instanceof DiagramTab )
+				{
+					((DiagramTab) tab).close();
+				}
+			}
+			if( saveFailed )
+			{
+				showSaveError();
+			}
+			// The journals are closed in the background
+			DiagramFileTasks.whenDone(() -> 
+			{
+				DiagramFileTasks.shutdown();
+				System.exit(0);
+			});
+		});
+	}
 	
 	private List<Tab> tabs()
 	{
@@ -691,7 +813,7 @@ public class EditorFrame extends BorderPane
 	}
 	
 	/* Insert a graph frame into the tabbedpane */ 
-	private void insertGraphFrameIntoTabbedPane(DiagramTab pGraphFrame) 
+	private void insertGraphFrameIntoTabbedPane(Tab pGraphFrame) 
 	{
 		if( isWelcomeTabShowing() )
 		{
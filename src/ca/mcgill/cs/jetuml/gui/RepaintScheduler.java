@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2018 by the contributors of the JetUML project.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package ca.mcgill.cs.jetuml.gui;
+
+import javafx.animation.AnimationTimer;
+
+/**
+ * Coalesces requests to repaint a component, so that any number
+ * of requests made between two pulses of the JavaFX application thread
+ * result in a single repaint at the next pulse. The scheduler only listens 
+ * to pulses while a repaint is pending.
+ * 
+ * This class must only be used on the JavaFX application thread.
+ */
+final class RepaintScheduler
+{
+	private final Runnable aPainter;
+	private final AnimationTimer aTimer = new AnimationTimer()
+	{
+		@Override
+		public void handle(long pNow)
+		{
+			flush();
+		}
+	};
+	private boolean aPending = false;
+	private int aNumberOfRequests = 0;
+	private int aNumberOfFrames = 0;
+	
+	/**
+	 * @param pPainter The code that repaints the component.
+	 * @pre pPainter != null
+	 */
+	RepaintScheduler(Runnable pPainter)
+	{
+		assert pPainter != null;
+		aPainter = pPainter;
+	}
+	
+	/**
+	 * Requests a repaint at the next pulse. Has no additional
+	 * effect if a repaint is already pending.
+	 */
+	void requestRepaint()
+	{
+		aNumberOfRequests++;
+		if( !aPending )
+		{
+			aPending = true;
+			aTimer.start();
+		}
+	}
+	
+	/**
+	 * Performs the pending repaint immediately, if there is one.
+	 */
+	void flush()
+	{
+		if( aPending )
+		{
+			aPending = false;
+			aTimer.stop();
+			aNumberOfFrames++;
+			aPainter.run();
+		}
+	}
+	
+	/**
+	 * @return True if a repaint was requested and not yet performed.
+	 */
+	boolean isRepaintPending()
+	{
+		return aPending;
+	}
+	
+	/**
+	 * @return The number of times a repaint was requested.
+	 */
+	int getNumberOfRequests()
+	{
+		return aNumberOfRequests;
+	}
+	
+	/**
+	 * @return The number of repaints performed.
+	 */
+	int getNumberOfFrames()
+	{
+		return aNumberOfFrames;
+	}
+}
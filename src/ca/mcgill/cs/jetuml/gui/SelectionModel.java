@@ -21,9 +21,12 @@
 package ca.mcgill.cs.jetuml.gui;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import ca.mcgill.cs.jetuml.diagram.DiagramData;
 import ca.mcgill.cs.jetuml.diagram.DiagramElement;
@@ -47,6 +50,8 @@ public class SelectionModel implements Iterable<DiagramElement>
 	private final SelectionObserver aObserver;
 	
 	private List<DiagramElement> aSelected = new ArrayList<>();
+	// The elements of aSelected, for constant-time lookups
+	private Set<DiagramElement> aSelectedElements = Collections.newSetFromMap(new IdentityHashMap<>());
 	private Optional<Line> aRubberband = Optional.empty();
 	private Optional<Rectangle> aLasso = Optional.empty();
 	
@@ -233,22 +238,32 @@ public class SelectionModel implements Iterable<DiagramElement>
 	{
 		if( !containsParent( pElement ))
 		{
-			aSelected.remove(pElement);
+			if( !aSelectedElements.add(pElement) )
+			{
+				aSelected.remove(pElement);
+			}
 			aSelected.add(pElement);
 			
 			// Remove children in case a parent was added.
-			ArrayList<DiagramElement> toRemove = new ArrayList<>();
-			for( DiagramElement element : aSelected )
+			if( pElement instanceof ParentNode )
 			{
-				if( containsParent(element) )
-				{
-					toRemove.add(element);
-				}
+				removeDescendants((ParentNode) pElement);
 			}
-			for( DiagramElement element : toRemove )
+		}
+	}
+	
+	private void removeDescendants(ParentNode pNode)
+	{
+		for( ChildNode child : pNode.getChildren() )
+		{
+			if( aSelectedElements.remove(child) )
 			{
 				// Do no use removeFromSelection because it notifies the observer
-				aSelected.remove(element); 
+				aSelected.remove(child);
+			}
+			if( child instanceof ParentNode )
+			{
+				removeDescendants((ParentNode) child);
 			}
 		}
 	}
@@ -269,7 +284,7 @@ public class SelectionModel implements Iterable<DiagramElement>
 			{
 				return false;
 			}
-			else if( aSelected.contains(parent))
+			else if( aSelectedElements.contains(parent))
 			{
 				return true;
 			}
@@ -290,6 +305,7 @@ public class SelectionModel implements Iterable<DiagramElement>
 	public void clearSelection()
 	{
 		aSelected.clear();
+		aSelectedElements.clear();
 		aObserver.selectionModelChanged();
 	}
 	
@@ -314,7 +330,7 @@ public class SelectionModel implements Iterable<DiagramElement>
 	 */
 	public boolean contains(DiagramElement pElement)
 	{
-		return aSelected.contains(pElement);
+		return aSelectedElements.contains(pElement);
 	}
 	
 	/**
@@ -327,7 +343,10 @@ public class SelectionModel implements Iterable<DiagramElement>
 	public void removeFromSelection(DiagramElement pElement)
 	{
 		assert pElement != null;
-		aSelected.remove(pElement);
+		if( aSelectedElements.remove(pElement) )
+		{
+			aSelected.remove(pElement);
+		}
 		aObserver.selectionModelChanged();
 	}
 	
@@ -341,7 +360,9 @@ public class SelectionModel implements Iterable<DiagramElement>
 	{
 		assert pElement != null;
 		aSelected.clear();
+		aSelectedElements.clear();
 		aSelected.add(pElement);
+		aSelectedElements.add(pElement);
 		aObserver.selectionModelChanged();
 	}
 
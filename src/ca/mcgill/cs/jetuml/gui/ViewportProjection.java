@@ -20,6 +20,8 @@
  *******************************************************************************/
 package ca.mcgill.cs.jetuml.gui;
 
+import ca.mcgill.cs.jetuml.geom.Rectangle;
+
 /**
  * An instance of this class can be used to make viewport projection
  * computations to compare visible areas of a scrollpane viewport with an
@@ -119,6 +121,14 @@ public final class ViewportProjection
 		return Math.round((float) hiddenBottom); 
 	}
 	
+	/**
+	 * @return The area of the canvas that is visible in the viewport.
+	 */
+	public Rectangle getVisibleArea()
+	{
+		return new Rectangle(getHiddenLeft(), getHiddenTop(), aViewportWidth, aViewportHeight);
+	}
+	
 	private int hiddenHeight()
 	{
 		return aCanvasHeight - aViewportHeight;
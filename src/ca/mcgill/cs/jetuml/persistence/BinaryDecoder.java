@@ -0,0 +1,249 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2018 by the contributors of the JetUML project.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package ca.mcgill.cs.jetuml.persistence;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import ca.mcgill.cs.jetuml.diagram.Diagram;
+import ca.mcgill.cs.jetuml.diagram.Edge;
+import ca.mcgill.cs.jetuml.diagram.Node;
+
+/**
+ * Converts the binary notation produced by BinaryEncoder to a graph.
+ * Each element is decoded into the same JSON object as in the JSON notation,
+ * and then converted with the same rules as in JsonDecoder.
+ */
+public final class BinaryDecoder
+{
+	private static final int CHUNK_SIZE = 1 << 13;
+	
+	private final InputStream aInput;
+	private final List<String> aStringTable = new ArrayList<>();
+	
+	private BinaryDecoder(InputStream pInput)
+	{
+		aInput = pInput;
+	}
+	
+	/**
+	 * @param pHeader The first bytes of some content.
+	 * @return True if pHeader starts with the magic number of the binary notation.
+	 * @pre pHeader != null
+	 */
+	public static boolean isBinary(byte[] pHeader)
+	{
+		assert pHeader != null;
+		return pHeader.length >= BinaryEncoder.MAGIC.length && 
+				Arrays.equals(Arrays.copyOf(pHeader, BinaryEncoder.MAGIC.length), BinaryEncoder.MAGIC);
+	}
+	
+	/**
+	 * @return The number of bytes needed to recognize the binary notation.
+	 */
+	public static int headerLength()
+	{
+		return BinaryEncoder.MAGIC.length;
+	}
+	
+	/**
+	 * Reads a graph in binary notation from pInput.
+	 * 
+	 * @param pInput The stream to read from, positioned at the magic number. It is not closed.
+	 * @return The decoded graph.
+	 * @throws IOException If there is a problem reading from pInput.
+	 * @throws DeserializationException If the content is not a valid encoding of a graph.
+	 * @pre pInput != null
+	 */
+	public static Diagram decode(InputStream pInput) throws IOException
+	{
+		assert pInput != null;
+		try
+		{
+			return new BinaryDecoder(pInput).decodeGraph();
+		}
+		catch( JSONException exception )
+		{
+			throw new DeserializationException("Cannot decode serialized object", exception);
+		}
+	}
+	
+	private Diagram decodeGraph() throws IOException
+	{
+		byte[] header = new byte[BinaryEncoder.MAGIC.length];
+		for( int i = 0; i < header.length; i++ )
+		{
+			header[i] = (byte) readByte();
+		}
+		if( !isBinary(header) )
+		{
+			throw new DeserializationException("Not a binary diagram");
+		}
+		int version = readByte();
+		if( version != BinaryEncoder.FORMAT_VERSION )
+		{
+			throw new DeserializationException("Unsupported binary format version: " + version);
+		}
+		readString(); // The JetUML version
+		Diagram graph = JsonDecoder.createDiagram(readName());
+		DeserializationContext context = new DeserializationContext(graph);
+		
+		// Children can refer to nodes that come later
+		List<JSONObject> parents = new ArrayList<>();
+		int numberOfNodes = readInteger();
+		for( int i = 0; i < numberOfNodes; i++ )
+		{
+			JSONObject object = readObject();
+			context.addNode(JsonDecoder.decodeNode(object), object.getInt("id"));
+			if( object.has("children") )
+			{
+				parents.add(object);
+			}
+		}
+		for( JSONObject parent : parents )
+		{
+			JsonDecoder.decodeChildren(context, context.getNode(parent.getInt("id")), parent.getJSONArray("children"));
+		}
+		JsonDecoder.restoreRootNodes(context);
+		
+		int numberOfEdges = readInteger();
+		List<Edge> edges = new ArrayList<>();
+		for( int i = 0; i < numberOfEdges; i++ )
+		{
+			edges.add(JsonDecoder.decodeEdge(context, readObject()));
+		}
+		graph.addElements(Collections.emptyList(), edges);
+		return graph;
+	}
+	
+	private JSONObject readObject() throws IOException
+	{
+		JSONObject object = new JSONObject();
+		int numberOfProperties = readInteger();
+		for( int i = 0; i < numberOfProperties; i++ )
+		{
+			String name = readName();
+			object.put(name, readValue());
+		}
+		return object;
+	}
+	
+	private Object readValue() throws IOException
+	{
+		int tag = readByte();
+		switch( tag )
+		{
+		case BinaryEncoder.TAG_STRING:
+			return readString();
+		case BinaryEncoder.TAG_INTEGER:
+			return readInteger();
+		case BinaryEncoder.TAG_TRUE:
+			return true;
+		case BinaryEncoder.TAG_FALSE:
+			return false;
+		case BinaryEncoder.TAG_INTEGER_ARRAY:
+			JSONArray array = new JSONArray();
+			int length = readInteger();
+			for( int i = 0; i < length; i++ )
+			{
+				array.put(readInteger());
+			}
+			return array;
+		default:
+			throw new DeserializationException("Invalid value tag: " + tag);
+		}
+	}
+	
+	private String readName() throws IOException
+	{
+		int index = readInteger();
+		if( index == aStringTable.size() )
+		{
+			aStringTable.add(readString());
+		}
+		else if( index < 0 || index > aStringTable.size() )
+		{
+			throw new DeserializationException("Invalid name index: " + index);
+		}
+		return aStringTable.get(index);
+	}
+	
+	private String readString() throws IOException
+	{
+		int length = readInteger();
+		if( length < 0 )
+		{
+			throw new DeserializationException("Invalid string length: " + length);
+		}
+		// The string is read in chunks, so that an invalid length
+		// does not cause a large allocation before the end of the input.
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.min(length, CHUNK_SIZE));
+		byte[] chunk = new byte[Math.min(length, CHUNK_SIZE)];
+		int remaining = length;
+		while( remaining > 0 )
+		{
+			int read = aInput.read(chunk, 0, Math.min(remaining, chunk.length));
+			if( read < 0 )
+			{
+				throw new EOFException();
+			}
+			bytes.write(chunk, 0, read);
+			remaining -= read;
+		}
+		return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+	}
+	
+	private int readInteger() throws IOException
+	{
+		int value = 0;
+		for( int shift = 0; shift < 35; shift += 7 )
+		{
+			int next = readByte();
+			value |= (next & 0x7F) << shift;
+			if( (next & 0x80) == 0 )
+			{
+				return (value >>> 1) ^ -(value & 1);
+			}
+		}
+		throw new DeserializationException("Invalid variable-length integer");
+	}
+	
+	private int readByte() throws IOException
+	{
+		int next = aInput.read();
+		if( next < 0 )
+		{
+			throw new EOFException();
+		}
+		return next;
+	}
+}
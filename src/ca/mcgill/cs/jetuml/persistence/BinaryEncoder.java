@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2018 by the contributors of the JetUML project.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package ca.mcgill.cs.jetuml.persistence;
+
+import static ca.mcgill.cs.jetuml.application.ApplicationResources.RESOURCES;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import ca.mcgill.cs.jetuml.diagram.Diagram;
+import ca.mcgill.cs.jetuml.diagram.Edge;
+import ca.mcgill.cs.jetuml.diagram.Node;
+
+/**
+ * Converts a graph to a compact binary notation. The binary notation
+ * describes exactly the same information as the JSON notation produced
+ * by JsonEncoder, so the two notations can be converted into each other
+ * without loss. The notation includes:
+ * * A magic number and the version of the binary notation
+ * * The JetUML version
+ * * The graph type
+ * * The number of nodes, followed by the node encodings
+ * * The number of edges, followed by the edge encodings
+ * 
+ * Each node or edge is encoded as the number of its properties followed by 
+ * the name and value of each property, as in its JSON encoding. Integers are 
+ * written as variable-length integers, and strings are prefixed by their length. 
+ * Names (of types and properties) are written through a string table: the first 
+ * occurrence of a name is written in full and assigned the next index, and subsequent 
+ * occurrences are written as this index.
+ */
+public final class BinaryEncoder
+{
+	/* The first bytes of a binary encoding. */
+	static final byte[] MAGIC = {'J', 'E', 'T', 'B'};
+	static final int FORMAT_VERSION = 1;
+	
+	/* The tags that precede each value. */
+	static final int TAG_STRING = 0;
+	static final int TAG_INTEGER = 1;
+	static final int TAG_TRUE = 2;
+	static final int TAG_FALSE = 3;
+	static final int TAG_INTEGER_ARRAY = 4;
+	
+	private final OutputStream aOutput;
+	private final Map<String, Integer> aStringTable = new HashMap<>();
+	
+	private BinaryEncoder(OutputStream pOutput)
+	{
+		aOutput = pOutput;
+	}
+	
+	/**
+	 * Writes the binary encoding of pGraph to pOutput, one element at a time.
+	 * 
+	 * @param pGraph The graph to serialize.
+	 * @param pOutput The stream to write the encoding to. It is not closed.
+	 * @throws IOException If there is a problem writing to pOutput.
+	 * @pre pGraph != null && pOutput != null
+	 */
+	public static void encode(Diagram pGraph, OutputStream pOutput) throws IOException
+	{
+		encode(pGraph, pOutput, ProgressListener.NONE);
+	}
+	
+	/**
+	 * Writes the binary encoding of pGraph to pOutput, one element at a time, 
+	 * and notifies pProgress after each element is written.
+	 * 
+	 * @param pGraph The graph to serialize.
+	 * @param pOutput The stream to write the encoding to. It is not closed.
+	 * @param pProgress Notified of the number of nodes and edges written.
+	 * @throws IOException If there is a problem writing to pOutput.
+	 * @pre pGraph != null && pOutput != null && pProgress != null
+	 */
+	public static void encode(Diagram pGraph, OutputStream pOutput, ProgressListener pProgress) throws IOException
+	{
+		assert pGraph != null && pOutput != null && pProgress != null;
+		new BinaryEncoder(pOutput).encodeGraph(pGraph, pProgress);
+	}
+	
+	private void encodeGraph(Diagram pGraph, ProgressListener pProgress) throws IOException
+	{
+		SerializationContext context = new SerializationContext(pGraph);
+		long total = context.size() + pGraph.numberOfEdges();
+		long workDone = 0;
+		aOutput.write(MAGIC);
+		aOutput.write(FORMAT_VERSION);
+		writeString(RESOURCES.getString("application.version.number"));
+		writeName(TypeRegistry.nameOf(pGraph));
+		writeInteger(context.size());
+		for( Node node : context )
+		{
+			writeObject(JsonEncoder.encodeNode(node, context));
+			pProgress.progressed(++workDone, total);
+		}
+		writeInteger(pGraph.numberOfEdges());
+		for( Edge edge : pGraph.edges() )
+		{
+			writeObject(JsonEncoder.encodeEdge(edge, context));
+			pProgress.progressed(++workDone, total);
+		}
+	}
+	
+	private void writeObject(JSONObject pObject) throws IOException
+	{
+		writeInteger(pObject.length());
+		for( String key : pObject.keySet() )
+		{
+			writeName(key);
+			writeValue(pObject.get(key));
+		}
+	}
+	
+	private void writeValue(Object pValue) throws IOException
+	{
+		if( pValue instanceof String )
+		{
+			aOutput.write(TAG_STRING);
+			writeString((String) pValue);
+		}
+		else if( pValue instanceof Integer )
+		{
+			aOutput.write(TAG_INTEGER);
+			writeInteger((int) pValue);
+		}
+		else if( pValue instanceof Boolean )
+		{
+			aOutput.write((boolean) pValue ? TAG_TRUE : TAG_FALSE);
+		}
+		else if( pValue instanceof JSONArray )
+		{
+			JSONArray array = (JSONArray) pValue;
+			aOutput.write(TAG_INTEGER_ARRAY);
+			writeInteger(array.length());
+			for( int i = 0; i < array.length(); i++ )
+			{
+				writeInteger(array.getInt(i));
+			}
+		}
+		else
+		{
+			throw new IllegalArgumentException("Unsupported value: " + pValue);
+		}
+	}
+	
+	/*
+	 * Writes the index of pName in the string table, followed
+	 * by the name itself if it was not already in the table.
+	 */
+	private void writeName(String pName) throws IOException
+	{
+		Integer index = aStringTable.get(pName);
+		if( index == null )
+		{
+			writeInteger(aStringTable.size());
+			writeString(pName);
+			aStringTable.put(pName, aStringTable.size());
+		}
+		else
+		{
+			writeInteger(index);
+		}
+	}
+	
+	private void writeString(String pString) throws IOException
+	{
+		byte[] bytes = pString.getBytes(StandardCharsets.UTF_8);
+		writeInteger(bytes.length);
+		aOutput.write(bytes);
+	}
+	
+	/*
+	 * Writes pValue as a variable-length integer of 7 bits per byte, 
+	 * after mapping it to a positive integer so that small negative 
+	 * values also use few bytes.
+	 */
+	private void writeInteger(int pValue) throws IOException
+	{
+		int value = (pValue << 1) ^ (pValue >> 31);
+		while( (value & ~0x7F) != 0 )
+		{
+			aOutput.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		aOutput.write(value);
+	}
+}
@@ -20,6 +20,9 @@
  *******************************************************************************/
 package ca.mcgill.cs.jetuml.persistence;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import ca.mcgill.cs.jetuml.diagram.Diagram;
 import ca.mcgill.cs.jetuml.diagram.Node;
 
@@ -30,6 +33,8 @@ import ca.mcgill.cs.jetuml.diagram.Node;
  */
 public class DeserializationContext extends AbstractContext
 {
+	private final Map<Integer, Node> aNodesById = new HashMap<>();
+	
 	/**
 	 * Initializes an empty context and associates it with
 	 * pGraph.
@@ -52,7 +57,12 @@ public class DeserializationContext extends AbstractContext
 	public void addNode(Node pNode, int pId)
 	{
 		assert pNode != null;
-		aNodes.put(pNode, pId);
+		Integer previous = aNodes.put(pNode, pId);
+		if( previous != null )
+		{
+			aNodesById.remove(previous);
+		}
+		aNodesById.put(pId, pNode);
 	}
 	
 	/**
@@ -62,14 +72,8 @@ public class DeserializationContext extends AbstractContext
 	 */
 	public Node getNode(int pId)
 	{
-		for( Node node : aNodes.keySet() )
-		{
-			if( aNodes.get(node) == pId )
-			{
-				return node;
-			}
-		}
-		assert false;
-		return null;
+		Node node = aNodesById.get(pId);
+		assert node != null;
+		return node;
 	}
 }
@@ -0,0 +1,797 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2018 by the contributors of the JetUML project.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package ca.mcgill.cs.jetuml.persistence;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import ca.mcgill.cs.jetuml.diagram.Diagram;
+import ca.mcgill.cs.jetuml.diagram.DiagramElement;
+import ca.mcgill.cs.jetuml.diagram.Edge;
+import ca.mcgill.cs.jetuml.diagram.Node;
+import ca.mcgill.cs.jetuml.diagram.nodes.ChildNode;
+import ca.mcgill.cs.jetuml.diagram.nodes.ParentNode;
+
+/**
+ * An append-only file that records the changes made to a diagram, so that 
+ * the diagram can be recovered if the application ends without saving it.
+ * 
+ * The journal starts with a snapshot of the whole diagram. Each call to 
+ * record() then appends one line that only describes the elements added, 
+ * removed, or changed since the previous call, so the cost of recording 
+ * a change does not depend on the size of the diagram. Once enough changes 
+ * are recorded, the journal is compacted into a new snapshot.
+ * 
+ * Nodes and edges are identified by numbers that are only meaningful within
+ * a journal. Each line is a JSON object that can have the following properties:
+ * "diagram" (the type of diagram, in snapshots only), "file" (the file the diagram
+ * is associated with), "nodes" and "edges" (the elements added or changed, 
+ * encoded as in diagram files, with an "index" for edges), and "removedNodes" and 
+ * "removedEdges" (the identifiers of the elements removed).
+ * 
+ * A journal holds a lock on a companion file as long as it is open, so
+ * that the journals left behind by an application that did not terminate 
+ * normally can be told apart from those in use.
+ * 
+ * The records are prepared on the thread that changes the diagram, and 
+ * written by an executor, in order. Snapshots are encoded by the executor 
+ * from a copy of the diagram, so a large diagram can be compacted without
+ * blocking the thread that changes it. A failure to write the journal is 
+ * reported by the next call that writes to it.
+ */
+public final class DiagramJournal
+{
+	private static final String EXTENSION = ".journal";
+	private static final String LOCK_EXTENSION = ".lock";
+	private static final int COMPACTION_THRESHOLD = 1000; // Number of records
+	
+	private final Diagram aDiagram;
+	private final File aJournalFile;
+	private final FileChannel aLockChannel;
+	private final FileLock aLock;
+	private final Executor aExecutor;
+	private FileChannel aOutput; // Only used by the executor
+	private volatile IOException aFailure;
+	private JournalContext aContext;
+	private Optional<File> aFile = Optional.empty();
+	private int aNumberOfRecords = 0;
+	
+	/*
+	 * A write to the journal, performed by the executor.
+	 */
+	@FunctionalInterface
+	private interface Write
+	{
+		void run() throws IOException;
+	}
+	
+	/*
+	 * The identifiers of the nodes and edges in the journal, and the last
+	 * recorded children of each node, to detect the children that were removed.
+	 */
+	private static final class JournalContext extends AbstractContext
+	{
+		private final Map<Node, List<ChildNode>> aChildren = new IdentityHashMap<>();
+		private final Map<Edge, Integer> aEdges = new IdentityHashMap<>();
+		private int aNextNodeId = 0;
+		private int aNextEdgeId = 0;
+		
+		JournalContext(Diagram pDiagram)
+		{
+			super(pDiagram);
+		}
+		
+		boolean contains(Node pNode)
+		{
+			return aNodes.containsKey(pNode);
+		}
+		
+		void add(Node pNode)
+		{
+			if( !aNodes.containsKey(pNode) )
+			{
+				aNodes.put(pNode, aNextNodeId++);
+			}
+		}
+		
+		int remove(Node pNode)
+		{
+			aChildren.remove(pNode);
+			return aNodes.remove(pNode);
+		}
+		
+		List<ChildNode> setChildren(Node pNode, List<ChildNode> pChildren)
+		{
+			List<ChildNode> previous = aChildren.put(pNode, new ArrayList<>(pChildren));
+			return previous == null ? Collections.emptyList() : previous;
+		}
+		
+		Optional<Integer> getEdgeId(Edge pEdge)
+		{
+			return Optional.ofNullable(aEdges.get(pEdge));
+		}
+		
+		int addEdge(Edge pEdge)
+		{
+			return aEdges.computeIfAbsent(pEdge, pKey -> aNextEdgeId++);
+		}
+		
+		int removeEdge(Edge pEdge)
+		{
+			return aEdges.remove(pEdge);
+		}
+	}
+	
+	/**
+	 * The state of a diagram recovered from a journal.
+	 */
+	public static final class Recovery
+	{
+		private final Diagram aDiagram;
+		private final Optional<File> aFile;
+		
+		private Recovery(Diagram pDiagram, Optional<File> pFile)
+		{
+			aDiagram = pDiagram;
+			aFile = pFile;
+		}
+		
+		/**
+		 * @return The diagram, as it was when the last change was recorded.
+		 */
+		public Diagram getDiagram()
+		{
+			return aDiagram;
+		}
+		
+		/**
+		 * @return The file the diagram was associated with, if any.
+		 */
+		public Optional<File> getFile()
+		{
+			return aFile;
+		}
+	}
+	
+	private DiagramJournal(Diagram pDiagram, File pJournalFile, FileChannel pLockChannel, FileLock pLock, Executor pExecutor)
+	{
+		aDiagram = pDiagram;
+		aJournalFile = pJournalFile;
+		aLockChannel = pLockChannel;
+		aLock = pLock;
+		aExecutor = pExecutor;
+	}
+	
+	/**
+	 * Creates a new journal for pDiagram in pDirectory, and starts 
+	 * tracking the changes to pDiagram. The journal is written by 
+	 * the calling thread.
+	 * 
+	 * @param pDiagram The diagram to record.
+	 * @param pDirectory The directory where to create the journal. It is created if necessary.
+	 * @return The new journal, which starts with a snapshot of pDiagram.
+	 * @throws IOException If the journal cannot be created.
+	 * @pre pDiagram != null && pDirectory != null
+	 */
+	public static DiagramJournal create(Diagram pDiagram, File pDirectory) throws IOException
+	{
+		return create(pDiagram, pDirectory, Runnable::run);
+	}
+	
+	/**
+	 * Creates a new journal for pDiagram in pDirectory, and starts 
+	 * tracking the changes to pDiagram. The journal is written by 
+	 * pExecutor, which must run the writes one at a time, in the 
+	 * order in which they are submitted.
+	 * 
+	 * @param pDiagram The diagram to record.
+	 * @param pDirectory The directory where to create the journal. It is created if necessary.
+	 * @param pExecutor The executor that writes the journal.
+	 * @return The new journal, which starts with a snapshot of pDiagram.
+	 * @throws IOException If the journal cannot be created.
+	 * @pre pDiagram != null && pDirectory != null && pExecutor != null
+	 */
+	public static DiagramJournal create(Diagram pDiagram, File pDirectory, Executor pExecutor) throws IOException
+	{
+		assert pDiagram != null && pDirectory != null && pExecutor != null;
+		Files.createDirectories(pDirectory.toPath());
+		File journalFile = File.createTempFile("diagram", EXTENSION, pDirectory);
+		FileChannel lockChannel = FileChannel.open(lockFileFor(journalFile).toPath(), 
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		DiagramJournal journal = new DiagramJournal(pDiagram, journalFile, lockChannel, lockChannel.lock(), pExecutor);
+		pDiagram.trackChangedElements();
+		pDiagram.consumeChangedElements();
+		journal.compact();
+		return journal;
+	}
+	
+	/**
+	 * Records the file that the diagram is associated with.
+	 * 
+	 * @param pFile The file of the diagram.
+	 * @throws IOException If the journal cannot be written, or if a previous write failed.
+	 * @pre pFile != null
+	 */
+	public void setFile(File pFile) throws IOException
+	{
+		assert pFile != null;
+		aFile = Optional.of(pFile.getAbsoluteFile());
+		JSONObject record = new JSONObject();
+		record.put("file", aFile.get().getPath());
+		append(record);
+	}
+	
+	/**
+	 * Appends a record of the changes made to the diagram since the 
+	 * previous record. Does nothing if there are no changes.
+	 * 
+	 * @throws IOException If the journal cannot be written, or if a previous write failed.
+	 */
+	public void record() throws IOException
+	{
+		Set<DiagramElement> changed = aDiagram.consumeChangedElements();
+		JSONArray nodes = new JSONArray();
+		JSONArray removedNodes = new JSONArray();
+		JSONArray edges = new JSONArray();
+		JSONArray removedEdges = new JSONArray();
+		Set<Node> recorded = Collections.newSetFromMap(new IdentityHashMap<>());
+		for( DiagramElement element : changed )
+		{
+			if( element instanceof Node )
+			{
+				Node node = (Node) element;
+				if( aDiagram.contains(node) )
+				{
+					recordNode(node, nodes, removedNodes, recorded);
+				}
+				else if( aContext.contains(node) )
+				{
+					removeNode(node, removedNodes);
+				}
+			}
+		}
+		for( DiagramElement element : changed )
+		{
+			if( element instanceof Edge )
+			{
+				Edge edge = (Edge) element;
+				if( aDiagram.contains(edge) )
+				{
+					edges.put(recordEdge(edge, aDiagram.indexOf(edge), nodes, removedNodes, recorded));
+				}
+				else
+				{
+					aContext.getEdgeId(edge).ifPresent(id -> removedEdges.put(aContext.removeEdge(edge)));
+				}
+			}
+		}
+		JSONObject record = new JSONObject();
+		putIfNotEmpty(record, "nodes", nodes);
+		putIfNotEmpty(record, "removedNodes", removedNodes);
+		putIfNotEmpty(record, "edges", edges);
+		putIfNotEmpty(record, "removedEdges", removedEdges);
+		if( record.length() > 0 )
+		{
+			append(record);
+			if( aNumberOfRecords >= COMPACTION_THRESHOLD )
+			{
+				compact();
+			}
+		}
+	}
+	
+	/**
+	 * Replaces the content of the journal with a snapshot of the diagram. 
+	 * The new content is written to a temporary file, which then replaces
+	 * the journal, so that the journal remains usable if the compaction
+	 * is interrupted. The snapshot is encoded by the executor, from a copy
+	 * of the diagram whose elements get the same identifiers as those 
+	 * of the diagram.
+	 * 
+	 * @throws IOException If the journal cannot be written, or if a previous write failed.
+	 */
+	public void compact() throws IOException
+	{
+		aDiagram.consumeChangedElements();
+		aContext = index(aDiagram, new ArrayList<>());
+		Diagram copy = aDiagram.duplicate();
+		Optional<File> file = aFile;
+		aNumberOfRecords = 0;
+		submit(() -> writeSnapshot(copy, file));
+	}
+	
+	/*
+	 * Identifies the nodes of pDiagram and their descendants depth-first, 
+	 * then its edges in order, so that a diagram and its copy get the same
+	 * identifiers. The nodes are added to pNodes, children first.
+	 */
+	private static JournalContext index(Diagram pDiagram, List<Node> pNodes)
+	{
+		JournalContext context = new JournalContext(pDiagram);
+		for( Node node : pDiagram.rootNodes() )
+		{
+			index(node, context, pNodes);
+		}
+		for( Edge edge : pDiagram.edges() )
+		{
+			context.addEdge(edge);
+		}
+		return context;
+	}
+	
+	private static void index(Node pNode, JournalContext pContext, List<Node> pNodes)
+	{
+		pContext.add(pNode);
+		List<ChildNode> children = Collections.emptyList();
+		if( pNode instanceof ParentNode )
+		{
+			children = ((ParentNode)pNode).getChildren();
+		}
+		pContext.setChildren(pNode, children);
+		for( ChildNode child : children )
+		{
+			index(child, pContext, pNodes);
+		}
+		pNodes.add(pNode);
+	}
+	
+	/*
+	 * Runs on the executor.
+	 */
+	private void writeSnapshot(Diagram pCopy, Optional<File> pFile) throws IOException
+	{
+		List<Node> nodes = new ArrayList<>();
+		JournalContext context = index(pCopy, nodes);
+		JSONArray encodedNodes = new JSONArray();
+		for( Node node : nodes )
+		{
+			encodedNodes.put(JsonEncoder.encodeNode(node, context));
+		}
+		JSONArray edges = new JSONArray();
+		int index = 0;
+		for( Edge edge : pCopy.edges() )
+		{
+			edges.put(encodeEdge(edge, context.addEdge(edge), index++, context));
+		}
+		JSONObject snapshot = new JSONObject();
+		snapshot.put("diagram", TypeRegistry.nameOf(pCopy));
+		pFile.ifPresent(file -> snapshot.put("file", file.getPath()));
+		snapshot.put("nodes", encodedNodes);
+		snapshot.put("edges", edges);
+		
+		File temporary = new File(aJournalFile.getPath() + ".tmp");
+		try( FileChannel channel = FileChannel.open(temporary.toPath(), StandardOpenOption.CREATE, 
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE) )
+		{
+			write(channel, snapshot.toString());
+			channel.force(true);
+		}
+		if( aOutput != null )
+		{
+			aOutput.close();
+		}
+		Files.move(temporary.toPath(), aJournalFile.toPath(), 
+				StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		aOutput = FileChannel.open(aJournalFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+	}
+	
+	/**
+	 * Closes and deletes the journal, once the writes already submitted 
+	 * are done. This method should be called when the diagram no longer 
+	 * needs to be recovered, because it was saved or its changes were discarded.
+	 * 
+	 * @throws IOException If the journal cannot be deleted, or if a previous write failed.
+	 */
+	public void close() throws IOException
+	{
+		close(true);
+	}
+	
+	/**
+	 * Closes the journal without deleting it, once the writes already submitted 
+	 * are done, so that it is found among the abandoned journals and the diagram 
+	 * is recovered at the next startup. This method should be called when the 
+	 * diagram stops being edited while it still has changes that are not saved.
+	 * 
+	 * @throws IOException If the journal cannot be closed, or if a previous write failed.
+	 */
+	public void release() throws IOException
+	{
+		close(false);
+	}
+	
+	/*
+	 * The journal is closed even if a previous write failed.
+	 */
+	private void close(boolean pDelete) throws IOException
+	{
+		aExecutor.execute(() -> 
+		{
+			try
+			{
+				closeFiles(pDelete);
+			}
+			catch(IOException exception)
+			{
+				aFailure = exception;
+			}
+		});
+		checkFailure();
+	}
+	
+	private void closeFiles(boolean pDelete) throws IOException
+	{
+		try
+		{
+			if( aOutput != null )
+			{
+				aOutput.close();
+			}
+			if( pDelete )
+			{
+				Files.deleteIfExists(aJournalFile.toPath());
+			}
+			aLock.release();
+		}
+		finally
+		{
+			aLockChannel.close();
+			Files.deleteIfExists(lockFileFor(aJournalFile).toPath());
+		}
+	}
+	
+	/**
+	 * @return The file this journal is written to.
+	 */
+	public File getJournalFile()
+	{
+		return aJournalFile;
+	}
+	
+	/**
+	 * Finds the journals in pDirectory that are not used by a running
+	 * application, and that should therefore be recovered.
+	 * 
+	 * @param pDirectory The directory where the journals are written.
+	 * @return The abandoned journal files, oldest first.
+	 * @pre pDirectory != null
+	 */
+	public static List<File> findAbandonedJournals(File pDirectory)
+	{
+		assert pDirectory != null;
+		List<File> result = new ArrayList<>();
+		File[] journals = pDirectory.listFiles((pDirectory2, pName) -> pName.endsWith(EXTENSION));
+		if( journals == null )
+		{
+			return result;
+		}
+		for( File journal : journals )
+		{
+			if( !isLocked(journal) )
+			{
+				result.add(journal);
+			}
+		}
+		result.sort((pFile1, pFile2) -> Long.compare(pFile1.lastModified(), pFile2.lastModified()));
+		return result;
+	}
+	
+	/**
+	 * Rebuilds the diagram recorded in pJournal. If the last line of
+	 * the journal is incomplete, because the application stopped while
+	 * it was written, it is ignored.
+	 * 
+	 * @param pJournal The journal file.
+	 * @return The recovered diagram.
+	 * @throws IOException If the journal cannot be read.
+	 * @throws DeserializationException If the journal is not valid.
+	 * @pre pJournal != null
+	 */
+	public static Recovery replay(File pJournal) throws IOException
+	{
+		assert pJournal != null;
+		try( BufferedReader reader = Files.newBufferedReader(pJournal.toPath(), StandardCharsets.UTF_8) )
+		{
+			Map<Integer, JSONObject> nodes = new LinkedHashMap<>();
+			List<JSONObject> edges = new ArrayList<>();
+			Optional<String> diagram = Optional.empty();
+			Optional<File> file = Optional.empty();
+			String line = reader.readLine();
+			while( line != null )
+			{
+				String next = reader.readLine();
+				JSONObject record;
+				try
+				{
+					record = new JSONObject(line);
+				}
+				catch( JSONException exception )
+				{
+					if( next == null )
+					{
+						break; // Interrupted while writing the last record
+					}
+					throw new DeserializationException("Invalid journal record", exception);
+				}
+				if( record.has("diagram") )
+				{
+					diagram = Optional.of(record.getString("diagram"));
+				}
+				if( record.has("file") )
+				{
+					file = Optional.of(new File(record.getString("file")));
+				}
+				apply(record, nodes, edges);
+				line = next;
+			}
+			if( !diagram.isPresent() )
+			{
+				throw new DeserializationException("Incomplete journal");
+			}
+			JSONObject object = new JSONObject();
+			object.put("diagram", diagram.get());
+			object.put("nodes", new JSONArray(nodes.values()));
+			object.put("edges", new JSONArray(edges));
+			return new Recovery(JsonDecoder.decode(object), file);
+		}
+		catch( JSONException exception )
+		{
+			throw new DeserializationException("Invalid journal record", exception);
+		}
+	}
+	
+	/**
+	 * Deletes a journal that was recovered.
+	 * 
+	 * @param pJournal The journal file.
+	 * @throws IOException If the journal cannot be deleted.
+	 * @pre pJournal != null
+	 */
+	public static void delete(File pJournal) throws IOException
+	{
+		assert pJournal != null;
+		Files.deleteIfExists(pJournal.toPath());
+		Files.deleteIfExists(lockFileFor(pJournal).toPath());
+	}
+	
+	/*
+	 * Applies a record to the nodes, indexed by identifier, and the edges, in order.
+	 */
+	private static void apply(JSONObject pRecord, Map<Integer, JSONObject> pNodes, List<JSONObject> pEdges)
+	{
+		JSONArray removedNodes = pRecord.optJSONArray("removedNodes");
+		for( int i = 0; removedNodes != null && i < removedNodes.length(); i++ )
+		{
+			pNodes.remove(removedNodes.getInt(i));
+		}
+		JSONArray nodes = pRecord.optJSONArray("nodes");
+		for( int i = 0; nodes != null && i < nodes.length(); i++ )
+		{
+			JSONObject node = nodes.getJSONObject(i);
+			pNodes.put(node.getInt("id"), node);
+		}
+		Set<Integer> removedEdges = new HashSet<>();
+		JSONArray removed = pRecord.optJSONArray("removedEdges");
+		for( int i = 0; removed != null && i < removed.length(); i++ )
+		{
+			removedEdges.add(removed.getInt(i));
+		}
+		List<JSONObject> changedEdges = new ArrayList<>();
+		JSONArray edges = pRecord.optJSONArray("edges");
+		for( int i = 0; edges != null && i < edges.length(); i++ )
+		{
+			changedEdges.add(edges.getJSONObject(i));
+			removedEdges.add(edges.getJSONObject(i).getInt("id"));
+		}
+		// The changed edges are removed, then inserted back at their new position 
+		// in increasing order, which leaves the other edges in their relative order.
+		pEdges.removeIf(pEdge -> removedEdges.contains(pEdge.getInt("id")));
+		changedEdges.sort((pEdge1, pEdge2) -> Integer.compare(pEdge1.getInt("index"), pEdge2.getInt("index")));
+		for( JSONObject edge : changedEdges )
+		{
+			pEdges.add(Math.min(edge.getInt("index"), pEdges.size()), edge);
+		}
+	}
+	
+	/*
+	 * Adds the encoding of pNode to pNodes, along with the encoding of its
+	 * descendants that are not in the journal yet. The descendants of pNode
+	 * that were removed since it was last recorded are added to pRemoved.
+	 */
+	private void recordNode(Node pNode, JSONArray pNodes, JSONArray pRemoved, Set<Node> pRecorded)
+	{
+		if( !pRecorded.add(pNode) )
+		{
+			return;
+		}
+		aContext.add(pNode);
+		List<ChildNode> children = Collections.emptyList();
+		if( pNode instanceof ParentNode )
+		{
+			children = ((ParentNode)pNode).getChildren();
+		}
+		for( ChildNode child : children )
+		{
+			if( !aContext.contains(child) )
+			{
+				recordNode(child, pNodes, pRemoved, pRecorded);
+			}
+		}
+		for( ChildNode previous : aContext.setChildren(pNode, children) )
+		{
+			if( !aDiagram.contains(previous) && aContext.contains(previous) )
+			{
+				removeNode(previous, pRemoved);
+			}
+		}
+		pNodes.put(JsonEncoder.encodeNode(pNode, aContext));
+	}
+	
+	/*
+	 * Removes pNode and its descendants that are no longer in the diagram
+	 * from the journal, and adds their identifiers to pRemoved.
+	 */
+	private void removeNode(Node pNode, JSONArray pRemoved)
+	{
+		List<ChildNode> children = aContext.setChildren(pNode, Collections.emptyList());
+		pRemoved.put(aContext.remove(pNode));
+		for( ChildNode child : children )
+		{
+			if( !aDiagram.contains(child) && aContext.contains(child) )
+			{
+				removeNode(child, pRemoved);
+			}
+		}
+	}
+	
+	private JSONObject recordEdge(Edge pEdge, int pIndex, JSONArray pNodes, JSONArray pRemoved, Set<Node> pRecorded)
+	{
+		for( Node node : new Node[] {pEdge.getStart(), pEdge.getEnd()} )
+		{
+			if( !aContext.contains(node) ) 
+			{
+				recordNode(node, pNodes, pRemoved, pRecorded);
+			}
+		}
+		return encodeEdge(pEdge, aContext.addEdge(pEdge), pIndex, aContext);
+	}
+	
+	private static JSONObject encodeEdge(Edge pEdge, int pId, int pIndex, JournalContext pContext)
+	{
+		JSONObject object = JsonEncoder.encodeEdge(pEdge, pContext);
+		object.put("id", pId);
+		object.put("index", pIndex);
+		return object;
+	}
+	
+	private static void putIfNotEmpty(JSONObject pRecord, String pKey, JSONArray pArray)
+	{
+		if( pArray.length() > 0 )
+		{
+			pRecord.put(pKey, pArray);
+		}
+	}
+	
+	private void append(JSONObject pRecord) throws IOException
+	{
+		String line = pRecord.toString();
+		aNumberOfRecords++;
+		submit(() -> write(aOutput, line));
+	}
+	
+	/*
+	 * Submits pWrite to the executor, unless a previous write failed.
+	 */
+	private void submit(Write pWrite) throws IOException
+	{
+		checkFailure();
+		aExecutor.execute(() -> 
+		{
+			if( aFailure == null )
+			{
+				try
+				{
+					pWrite.run();
+				}
+				catch(IOException exception)
+				{
+					aFailure = exception;
+				}
+			}
+		});
+		checkFailure();
+	}
+	
+	private void checkFailure() throws IOException
+	{
+		IOException failure = aFailure;
+		if( failure != null )
+		{
+			throw failure;
+		}
+	}
+	
+	/*
+	 * Writes pRecord on its own line. The line is written with a single
+	 * call, so that it survives a crash of the application as soon as 
+	 * this method returns.
+	 */
+	private static void write(FileChannel pChannel, String pRecord) throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.wrap((pRecord + "\n").getBytes(StandardCharsets.UTF_8));
+		while( buffer.hasRemaining() )
+		{
+			pChannel.write(buffer);
+		}
+	}
+	
+	private static File lockFileFor(File pJournal)
+	{
+		String path = pJournal.getPath();
+		return new File(path.substring(0, path.length() - EXTENSION.length()) + LOCK_EXTENSION);
+	}
+	
+	private static boolean isLocked(File pJournal)
+	{
+		File lockFile = lockFileFor(pJournal);
+		if( !lockFile.exists() )
+		{
+			return false;
+		}
+		try( FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.WRITE) )
+		{
+			FileLock lock = channel.tryLock();
+			if( lock == null )
+			{
+				return true;
+			}
+			lock.release();
+			return false;
+		}
+		catch( IOException | OverlappingFileLockException exception )
+		{
+			return true; // Locked by this application
+		}
+	}
+}
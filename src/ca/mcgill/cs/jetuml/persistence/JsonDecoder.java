@@ -20,9 +20,15 @@
  *******************************************************************************/
 package ca.mcgill.cs.jetuml.persistence;
 
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
 import ca.mcgill.cs.jetuml.diagram.Diagram;
 import ca.mcgill.cs.jetuml.diagram.Edge;
@@ -32,14 +38,10 @@ import ca.mcgill.cs.jetuml.diagram.nodes.ChildNode;
 import ca.mcgill.cs.jetuml.diagram.nodes.ParentNode;
 
 /**
- * Converts a JSONObject to a graph.
+ * Converts a JSONObject, or JSON text read from a stream, to a graph.
  */
 public final class JsonDecoder
 {
-	private static final String PREFIX_DIAGRAMS = "ca.mcgill.cs.jetuml.diagram.";
-	private static final String PREFIX_NODES = "ca.mcgill.cs.jetuml.diagram.nodes.";
-	private static final String PREFIX_EDGES = "ca.mcgill.cs.jetuml.diagram.edges.";
-	
 	private JsonDecoder() {}
 	
 	/**
@@ -52,8 +54,7 @@ public final class JsonDecoder
 		assert pGraph != null;
 		try
 		{
-			Class<?> diagramClass = Class.forName(PREFIX_DIAGRAMS + pGraph.getString("diagram"));
-			Diagram graph = (Diagram) diagramClass.getDeclaredConstructor().newInstance();
+			Diagram graph = createDiagram(pGraph.getString("diagram"));
 			DeserializationContext context = new DeserializationContext(graph);
 			decodeNodes(context, pGraph);
 			restoreChildren(context, pGraph);
@@ -61,12 +62,82 @@ public final class JsonDecoder
 			decodeEdges(context, pGraph);
 			return graph;
 		}
-		catch( JSONException | ReflectiveOperationException exception )
+		catch( JSONException exception )
 		{
 			throw new DeserializationException("Cannot decode serialized object", exception);
 		}
 	}
 	
+	/**
+	 * Decodes a graph from JSON text, in a single pass over the text and
+	 * without building a JSON object for the entire graph. The text can be 
+	 * laid out on any number of lines, and its properties can appear in any order.
+	 * 
+	 * @param pReader A reader for the JSON text that encodes the graph. It is not closed.
+	 * @return The decoded graph.
+	 * @throws DeserializationException If it's not possible to decode the text into a valid graph.
+	 * @pre pReader != null
+	 */
+	public static Diagram decode(Reader pReader)
+	{
+		assert pReader != null;
+		try
+		{
+			return new JsonStreamDecoder(new JSONTokener(pReader)).decode();
+		}
+		catch( JSONException exception )
+		{
+			throw new DeserializationException("Cannot decode serialized object", exception);
+		}
+	}
+	
+	/*
+	 * Creates an empty diagram of the type named pType.
+	 */
+	static Diagram createDiagram(String pType)
+	{
+		return TypeRegistry.newDiagram(pType);
+	}
+	
+	/*
+	 * Creates the node encoded by pObject, without its children.
+	 */
+	static Node decodeNode(JSONObject pObject)
+	{
+		Node node = TypeRegistry.newNode(pObject.getString("type"));
+		for( Property property : node.properties() )
+		{
+			property.set(pObject.get(property.getName()));
+		}
+		return node;
+	}
+	
+	/*
+	 * Adds pChildren, an array of node identifiers, as the children of pParent.
+	 */
+	static void decodeChildren(DeserializationContext pContext, Node pParent, JSONArray pChildren)
+	{
+		for( int j = 0; j < pChildren.length(); j++ )
+		{
+			((ParentNode)pParent).addChild((ChildNode)pContext.getNode(pChildren.getInt(j)));
+		}
+	}
+	
+	/*
+	 * Creates the edge encoded by pObject and connects it in the context's graph,
+	 * without adding it to the graph.
+	 */
+	static Edge decodeEdge(DeserializationContext pContext, JSONObject pObject)
+	{
+		Edge edge = TypeRegistry.newEdge(pObject.getString("type"));
+		for( Property property : edge.properties())
+		{
+			property.set(pObject.get(property.getName()));
+		}
+		edge.connect(pContext.getNode(pObject.getInt("start")), pContext.getNode(pObject.getInt("end")), pContext.getGraph());
+		return edge;
+	}
+	
 	/* 
 	 * Extracts information about nodes from pObject and creates new objects
 	 * to represent them in pGraph.
@@ -77,36 +148,25 @@ public final class JsonDecoder
 		JSONArray nodes = pObject.getJSONArray("nodes");
 		for( int i = 0; i < nodes.length(); i++ )
 		{
-			try
-			{
-				JSONObject object = nodes.getJSONObject(i);
-				Class<?> nodeClass = Class.forName(PREFIX_NODES + object.getString("type"));
-				Node node = (Node) nodeClass.getDeclaredConstructor().newInstance();
-				for( Property property : node.properties() )
-				{
-					property.set(object.get(property.getName()));
-				}
-				pContext.addNode(node, object.getInt("id"));
-			}
-			catch( ReflectiveOperationException exception )
-			{
-				throw new DeserializationException("Cannot instantiate serialized object", exception);
-			}
+			JSONObject object = nodes.getJSONObject(i);
+			pContext.addNode(decodeNode(object), object.getInt("id"));
 		}
 	}
 	
 	/* 
-	 * Discovers the root nodes and stores them in the graph.
+	 * Discovers the root nodes and stores them in the graph, in a single batch.
 	 */
-	private static void restoreRootNodes(DeserializationContext pContext)
+	static void restoreRootNodes(DeserializationContext pContext)
 	{
+		List<Node> rootNodes = new ArrayList<>();
 		for( Node node : pContext )
 		{
 			if( !(node instanceof ChildNode) || ((ChildNode)node).getParent() == null )
 			{
-				pContext.getGraph().addRootNode(node);
+				rootNodes.add(node);
 			}
 		}
+		pContext.getGraph().addElements(rootNodes, Collections.emptyList());
 	}
 	
 	/* 
@@ -121,12 +181,7 @@ public final class JsonDecoder
 			JSONObject object = nodes.getJSONObject(i);
 			if( object.has("children"))
 			{
-				Node node = pContext.getNode( object.getInt("id"));
-				JSONArray children = object.getJSONArray("children");
-				for( int j = 0; j < children.length(); j++ )
-				{
-					((ParentNode)node).addChild((ChildNode)pContext.getNode(children.getInt(j)));
-				}
+				decodeChildren(pContext, pContext.getNode(object.getInt("id")), object.getJSONArray("children"));
 			}
 		}
 	}
@@ -139,25 +194,11 @@ public final class JsonDecoder
 	private static void decodeEdges(DeserializationContext pContext, JSONObject pObject)
 	{
 		JSONArray edges = pObject.getJSONArray("edges");
+		List<Edge> decoded = new ArrayList<>();
 		for( int i = 0; i < edges.length(); i++ )
 		{
-			try
-			{
-				JSONObject object = edges.getJSONObject(i);
-				Class<?> edgeClass = Class.forName(PREFIX_EDGES + object.getString("type"));
-				Edge edge = (Edge) edgeClass.getDeclaredConstructor().newInstance();
-				
-				for( Property property : edge.properties())
-				{
-					property.set(object.get(property.getName()));
-				}
-				edge.connect(pContext.getNode(object.getInt("start")), pContext.getNode(object.getInt("end")), pContext.getGraph());
-				pContext.getGraph().addEdge(edge);
-			}
-			catch( ReflectiveOperationException exception )
-			{
-				throw new DeserializationException("Cannot instantiate serialized object", exception);
-			}
+			decoded.add(decodeEdge(pContext, edges.getJSONObject(i)));
 		}
+		pContext.getGraph().addElements(Collections.emptyList(), decoded);
 	}
 }
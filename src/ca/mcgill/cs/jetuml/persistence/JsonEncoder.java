@@ -22,7 +22,12 @@ package ca.mcgill.cs.jetuml.persistence;
 
 import static ca.mcgill.cs.jetuml.application.ApplicationResources.RESOURCES;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.util.function.Function;
+
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
 import ca.mcgill.cs.jetuml.diagram.Diagram;
@@ -39,6 +44,10 @@ import ca.mcgill.cs.jetuml.diagram.nodes.ParentNode;
  * * The graph type
  * * An array of node encodings
  * * An array of edge encodings
+ * 
+ * The encoding can either be obtained as a JSON object, or 
+ * written directly to a character stream without building a JSON object 
+ * for the entire graph. Both ways produce the same JSON text.
  */
 public final class JsonEncoder
 {
@@ -54,13 +63,110 @@ public final class JsonEncoder
 		
 		JSONObject object = new JSONObject();
 		object.put("version", RESOURCES.getString("application.version.number"));
-		object.put("diagram", pGraph.getClass().getSimpleName());
+		object.put("diagram", TypeRegistry.nameOf(pGraph));
 		SerializationContext context = new SerializationContext(pGraph);
 		object.put("nodes", encodeNodes(context));
 		object.put("edges", encodeEdges(context));
 		return object;
 	}
 	
+	/**
+	 * Writes the encoding of pGraph to pWriter, one element at a time. The
+	 * text written is identical to the result of encode(pGraph).toString(), but
+	 * the memory required does not depend on the size of the graph, beyond
+	 * the identifiers of its nodes.
+	 * 
+	 * @param pGraph The graph to serialize.
+	 * @param pWriter The writer to write the encoding to. It is not closed.
+	 * @throws IOException If there is a problem writing to pWriter.
+	 * @pre pGraph != null && pWriter != null
+	 */
+	public static void encode(Diagram pGraph, Writer pWriter) throws IOException
+	{
+		encode(pGraph, pWriter, ProgressListener.NONE);
+	}
+	
+	/**
+	 * Writes the encoding of pGraph to pWriter, one element at a time, and 
+	 * notifies pProgress after each element is written.
+	 * 
+	 * @param pGraph The graph to serialize.
+	 * @param pWriter The writer to write the encoding to. It is not closed.
+	 * @param pProgress Notified of the number of nodes and edges written.
+	 * @throws IOException If there is a problem writing to pWriter.
+	 * @pre pGraph != null && pWriter != null && pProgress != null
+	 */
+	public static void encode(Diagram pGraph, Writer pWriter, ProgressListener pProgress) throws IOException
+	{
+		assert pGraph != null && pWriter != null && pProgress != null;
+		SerializationContext context = new SerializationContext(pGraph);
+		long total = context.size() + pGraph.numberOfEdges();
+		
+		// The keys are written in the order in which a JSON object would write them.
+		JSONObject header = new JSONObject();
+		header.put("version", RESOURCES.getString("application.version.number"));
+		header.put("diagram", TypeRegistry.nameOf(pGraph));
+		header.put("nodes", JSONObject.NULL);
+		header.put("edges", JSONObject.NULL);
+		
+		try
+		{
+			pWriter.write('{');
+			boolean first = true;
+			for( String key : header.keySet() )
+			{
+				if( !first )
+				{
+					pWriter.write(',');
+				}
+				first = false;
+				pWriter.write(JSONObject.quote(key));
+				pWriter.write(':');
+				if( key.equals("nodes") )
+				{
+					writeArray(pWriter, context, node -> encodeNode(node, context), pProgress, 0, total);
+				}
+				else if( key.equals("edges") )
+				{
+					writeArray(pWriter, pGraph.edges(), edge -> encodeEdge(edge, context), 
+							pProgress, context.size(), total);
+				}
+				else
+				{
+					pWriter.write(JSONObject.quote(header.getString(key)));
+				}
+			}
+			pWriter.write('}');
+		}
+		catch( JSONException exception )
+		{
+			if( exception.getCause() instanceof IOException )
+			{
+				throw (IOException) exception.getCause();
+			}
+			throw exception;
+		}
+	}
+	
+	private static <T> void writeArray(Writer pWriter, Iterable<T> pElements, 
+			Function<T, JSONObject> pEncoder, ProgressListener pProgress, long pWorkDone, long pTotalWork) throws IOException
+	{
+		long workDone = pWorkDone;
+		pWriter.write('[');
+		boolean first = true;
+		for( T element : pElements )
+		{
+			if( !first )
+			{
+				pWriter.write(',');
+			}
+			first = false;
+			pEncoder.apply(element).write(pWriter);
+			pProgress.progressed(++workDone, pTotalWork);
+		}
+		pWriter.write(']');
+	}
+	
 	private static JSONArray encodeNodes(SerializationContext pContext)
 	{
 		JSONArray nodes = new JSONArray();
@@ -71,11 +177,15 @@ public final class JsonEncoder
 		return nodes;
 	}
 	
-	private static JSONObject encodeNode(Node pNode, SerializationContext pContext)
+	/*
+	 * Also used by other encoders, so that all formats describe elements 
+	 * with the same JSON model.
+	 */
+	static JSONObject encodeNode(Node pNode, AbstractContext pContext)
 	{
 		JSONObject object = toJSONObject(pNode.properties());
 		object.put("id", pContext.getId(pNode));
-		object.put("type", pNode.getClass().getSimpleName());
+		object.put("type", TypeRegistry.nameOf(pNode));
 		if( pNode instanceof ParentNode )
 		{
 			object.put("children", encodeChildren(pNode, pContext));
@@ -83,7 +193,7 @@ public final class JsonEncoder
 		return object;
 	}
 	
-	private static JSONArray encodeChildren(Node pNode, SerializationContext pContext)
+	private static JSONArray encodeChildren(Node pNode, AbstractContext pContext)
 	{
 		JSONArray children = new JSONArray();
 		for( ChildNode child : ((ParentNode)pNode).getChildren())
@@ -98,16 +208,20 @@ public final class JsonEncoder
 		JSONArray edges = new JSONArray();
 		for( Edge edge : pContext.getGraph().edges() ) 
 		{
-			JSONObject object = toJSONObject(edge.properties());
-			object.put("type", edge.getClass().getSimpleName());
-			object.put("start", pContext.getId(edge.getStart()));
-			object.put("end", pContext.getId(edge.getEnd()));
-			
-			edges.put(object);
+			edges.put(encodeEdge(edge, pContext));
 		}
 		return edges;
 	}
 	
+	static JSONObject encodeEdge(Edge pEdge, AbstractContext pContext)
+	{
+		JSONObject object = toJSONObject(pEdge.properties());
+		object.put("type", TypeRegistry.nameOf(pEdge));
+		object.put("start", pContext.getId(pEdge.getStart()));
+		object.put("end", pContext.getId(pEdge.getEnd()));
+		return object;
+	}
+	
 	private static JSONObject toJSONObject(Properties pProperties)
 	{
 		JSONObject object = new JSONObject();
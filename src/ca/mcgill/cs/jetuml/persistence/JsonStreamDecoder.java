@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2018 by the contributors of the JetUML project.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package ca.mcgill.cs.jetuml.persistence;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import ca.mcgill.cs.jetuml.diagram.Diagram;
+import ca.mcgill.cs.jetuml.diagram.Edge;
+import ca.mcgill.cs.jetuml.diagram.Node;
+
+/**
+ * Decodes a graph by pulling the JSON text of its encoding from a 
+ * tokener one element at a time. Only the object that encodes the current
+ * element is parsed into a JSONObject.
+ * 
+ * Each node is created as soon as it is read. Because a node can refer to 
+ * children that appear later in the text, and because the properties of the
+ * encoding can appear in any order, references between elements are resolved once all 
+ * the nodes and the type of the diagram are known. Edges read after this point 
+ * are created immediately, and edges read before it are kept until then.
+ * All the edges are added to the diagram in a single batch at the end.
+ */
+final class JsonStreamDecoder
+{
+	private final JSONTokener aTokener;
+	private Diagram aGraph; // Null until the type of diagram is read
+	private final Map<Integer, Node> aNodes = new HashMap<>();
+	private final List<Node> aParents = new ArrayList<>();
+	private final List<JSONArray> aChildren = new ArrayList<>(); // The identifiers of the children of each parent
+	private final List<JSONObject> aPendingEdges = new ArrayList<>();
+	private final List<Edge> aEdges = new ArrayList<>();
+	private DeserializationContext aContext; // Null until the references between nodes are resolved
+	private boolean aHasNodes = false;
+	private boolean aHasEdges = false;
+	
+	/**
+	 * @param pTokener The tokener positioned at the start of the encoding.
+	 * @pre pTokener != null
+	 */
+	JsonStreamDecoder(JSONTokener pTokener)
+	{
+		assert pTokener != null;
+		aTokener = pTokener;
+	}
+	
+	/**
+	 * Reads the encoding of a graph and decodes it.
+	 * 
+	 * @return The decoded graph.
+	 * @throws JSONException If the text is not a valid encoding.
+	 * @throws DeserializationException If the encoding does not describe a valid graph.
+	 */
+	Diagram decode()
+	{
+		readObject(this::readProperty);
+		if( aGraph == null || !aHasNodes || !aHasEdges )
+		{
+			throw new DeserializationException("Incomplete serialized object");
+		}
+		resolveNodes();
+		aPendingEdges.forEach(edge -> aEdges.add(JsonDecoder.decodeEdge(aContext, edge)));
+		aGraph.addElements(Collections.emptyList(), aEdges);
+		return aGraph;
+	}
+	
+	private void readProperty(String pKey)
+	{
+		if( pKey.equals("diagram") )
+		{
+			aGraph = JsonDecoder.createDiagram(aTokener.nextValue().toString());
+		}
+		else if( pKey.equals("nodes") )
+		{
+			readArray(this::readNode);
+			aHasNodes = true;
+		}
+		else if( pKey.equals("edges") )
+		{
+			if( aGraph != null && aHasNodes )
+			{
+				resolveNodes();
+				readArray(edge -> aEdges.add(JsonDecoder.decodeEdge(aContext, edge)));
+			}
+			else
+			{
+				readArray(aPendingEdges::add);
+			}
+			aHasEdges = true;
+		}
+		else
+		{
+			aTokener.nextValue(); // Ignored, e.g., the version
+		}
+	}
+	
+	private void readNode(JSONObject pObject)
+	{
+		Node node = JsonDecoder.decodeNode(pObject);
+		aNodes.put(pObject.getInt("id"), node);
+		if( pObject.has("children") )
+		{
+			aParents.add(node);
+			aChildren.add(pObject.getJSONArray("children"));
+		}
+	}
+	
+	/*
+	 * Adds all the nodes to the context, restores the parent-child 
+	 * relations, and adds the root nodes to the graph. Only has an effect 
+	 * the first time it is called.
+	 */
+	private void resolveNodes()
+	{
+		if( aContext != null )
+		{
+			return;
+		}
+		aContext = new DeserializationContext(aGraph);
+		aNodes.forEach((id, node) -> aContext.addNode(node, id));
+		for( int i = 0; i < aParents.size(); i++ )
+		{
+			JsonDecoder.decodeChildren(aContext, aParents.get(i), aChildren.get(i));
+		}
+		JsonDecoder.restoreRootNodes(aContext);
+	}
+	
+	/*
+	 * Reads a JSON object and calls pPropertyReader with the key of each 
+	 * property, when the tokener is positioned at the start of its value.
+	 */
+	private void readObject(Consumer<String> pPropertyReader)
+	{
+		if( aTokener.nextClean() != '{' )
+		{
+			throw aTokener.syntaxError("A JSONObject text must begin with '{'");
+		}
+		char next = aTokener.nextClean();
+		while( next != '}' )
+		{
+			aTokener.back();
+			String key = aTokener.nextValue().toString();
+			if( aTokener.nextClean() != ':' )
+			{
+				throw aTokener.syntaxError("Expected a ':' after a key");
+			}
+			pPropertyReader.accept(key);
+			next = aTokener.nextClean();
+			if( next == ',' )
+			{
+				next = aTokener.nextClean();
+			}
+			else if( next != '}' )
+			{
+				throw aTokener.syntaxError("Expected a ',' or '}'");
+			}
+		}
+	}
+	
+	/*
+	 * Reads a JSON array of objects and calls pElementReader with 
+	 * each object, as soon as it is read.
+	 */
+	private void readArray(Consumer<JSONObject> pElementReader)
+	{
+		if( aTokener.nextClean() != '[' )
+		{
+			throw aTokener.syntaxError("A JSONArray text must start with '['");
+		}
+		char next = aTokener.nextClean();
+		while( next != ']' )
+		{
+			aTokener.back();
+			pElementReader.accept(new JSONObject(aTokener));
+			next = aTokener.nextClean();
+			if( next == ',' )
+			{
+				next = aTokener.nextClean();
+			}
+			else if( next != ']' )
+			{
+				throw aTokener.syntaxError("Expected a ',' or ']'");
+			}
+		}
+	}
+}
@@ -20,27 +20,60 @@
  *******************************************************************************/
 package ca.mcgill.cs.jetuml.persistence;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
-
-import org.json.JSONException;
-import org.json.JSONObject;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import ca.mcgill.cs.jetuml.diagram.Diagram;
 
 /**
  * Services for saving and loading Diagram objects (i.e., UML diagrams).
+ * Diagrams can be saved in different formats, and optionally compressed 
+ * with gzip. When reading a diagram, its format and compression are 
+ * detected automatically.
  */
 public final class PersistenceService
 {
+	/**
+	 * The formats in which diagrams can be saved.
+	 */
+	public enum Format
+	{
+		/** The JSON notation produced by JsonEncoder. */
+		JSON, 
+		/** The compact binary notation produced by BinaryEncoder. */
+		BINARY
+	}
+	
+	private static final String COMPRESSED_EXTENSION = ".gz";
+	private static final String TEMPORARY_EXTENSION = ".tmp";
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final byte[] GZIP_MAGIC = {(byte) GZIPInputStream.GZIP_MAGIC, (byte) (GZIPInputStream.GZIP_MAGIC >> 8)};
+	
 	private PersistenceService() {}
 	
 	/**
-     * Saves the current graph in a file. 
+     * Saves the current graph in a file, in JSON notation. The file
+     * is compressed if its name ends with ".gz".
      * 
      * @param pGraph The graph to save
      * @param pFile The file to save
@@ -50,15 +83,152 @@ public final class PersistenceService
      */
 	public static void save(Diagram pGraph, File pFile) throws IOException
 	{
-		assert pGraph != null && pFile != null;
-		try( PrintWriter out = new PrintWriter(new FileWriter(pFile)))
+		save(pGraph, pFile, ProgressListener.NONE);
+	}
+	
+	/**
+     * Saves the current graph in a file, in JSON notation, and notifies 
+     * pProgress of the number of elements written. The file is compressed 
+     * if its name ends with ".gz".
+     * 
+     * @param pGraph The graph to save
+     * @param pFile The file to save
+     * @param pProgress Notified of the number of nodes and edges written.
+     * @throws IOException If there is a problem writing to pFile.
+     * @pre pGraph != null && pFile != null && pProgress != null
+     */
+	public static void save(Diagram pGraph, File pFile, ProgressListener pProgress) throws IOException
+	{
+		save(pGraph, pFile, Format.JSON, pFile.getName().endsWith(COMPRESSED_EXTENSION), pProgress);
+	}
+	
+	/**
+     * Saves the current graph in a file, in the requested format, without compression. 
+     * 
+     * @param pGraph The graph to save
+     * @param pFile The file to save
+     * @param pFormat The format of the file.
+     * @throws IOException If there is a problem writing to pFile.
+     * @pre pGraph != null && pFile != null && pFormat != null
+     */
+	public static void save(Diagram pGraph, File pFile, Format pFormat) throws IOException
+	{
+		save(pGraph, pFile, pFormat, false);
+	}
+	
+	/**
+     * Saves the current graph in a file, in the requested format. The 
+     * encoding is compressed as it is written, if requested. 
+     * 
+     * The graph is first written to a temporary file next to pFile, which
+     * is synchronized with the storage device and then moved in place of pFile
+     * in a single step. Whenever the save is interrupted, pFile is either left 
+     * as it was, or completely replaced.
+     * 
+     * @param pGraph The graph to save
+     * @param pFile The file to save
+     * @param pFormat The format of the file.
+     * @param pCompressed True to compress the file with gzip.
+     * @throws IOException If there is a problem writing to pFile.
+     * @pre pGraph != null && pFile != null && pFormat != null
+     */
+	public static void save(Diagram pGraph, File pFile, Format pFormat, boolean pCompressed) throws IOException
+	{
+		save(pGraph, pFile, pFormat, pCompressed, ProgressListener.NONE);
+	}
+	
+	/**
+     * Saves the current graph in a file, as save(pGraph, pFile, pFormat, pCompressed)
+     * does, and notifies pProgress of the number of elements written.
+     * 
+     * @param pGraph The graph to save
+     * @param pFile The file to save
+     * @param pFormat The format of the file.
+     * @param pCompressed True to compress the file with gzip.
+     * @param pProgress Notified of the number of nodes and edges written.
+     * @throws IOException If there is a problem writing to pFile.
+     * @pre pGraph != null && pFile != null && pFormat != null && pProgress != null
+     */
+	public static void save(Diagram pGraph, File pFile, Format pFormat, boolean pCompressed, 
+			ProgressListener pProgress) throws IOException
+	{
+		assert pGraph != null && pFile != null && pFormat != null && pProgress != null;
+		Path target = pFile.toPath().toAbsolutePath();
+		Path temporary = target.resolveSibling(target.getFileName() + TEMPORARY_EXTENSION);
+		try
+		{
+			try( OutputStream file = syncOnClose(FileChannel.open(temporary, 
+					StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)))
+			{
+				// The compressed stream already writes to the file when it is created
+				try( OutputStream out = new BufferedOutputStream(pCompressed ? new GZIPOutputStream(file) : file, BUFFER_SIZE))
+				{
+					if( pFormat == Format.BINARY )
+					{
+						BinaryEncoder.encode(pGraph, out, pProgress);
+					}
+					else
+					{
+						BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out));
+						JsonEncoder.encode(pGraph, writer, pProgress);
+						writer.newLine();
+						writer.flush();
+					}
+				}
+			}
+			try
+			{
+				Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			}
+			catch( AtomicMoveNotSupportedException exception )
+			{
+				Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		finally
 		{
-			out.println(JsonEncoder.encode(pGraph).toString());
+			Files.deleteIfExists(temporary);
 		}
 	}
 	
+	/*
+	 * Returns a stream that writes to pChannel, and that forces the data
+	 * written to the storage device before closing pChannel. Closing the 
+	 * stream again has no effect.
+	 */
+	private static OutputStream syncOnClose(FileChannel pChannel)
+	{
+		return new FilterOutputStream(Channels.newOutputStream(pChannel))
+		{
+			@Override
+			public void write(byte[] pBytes, int pOffset, int pLength) throws IOException
+			{
+				out.write(pBytes, pOffset, pLength);
+			}
+			
+			@Override
+			public void close() throws IOException
+			{
+				if( !pChannel.isOpen() )
+				{
+					return;
+				}
+				try
+				{
+					flush();
+					pChannel.force(true);
+				}
+				finally
+				{
+					out.close();
+				}
+			}
+		};
+	}
+	
 	/**
-	 * Reads a graph from a file.
+	 * Reads a graph from a file, in any of the supported formats,
+	 * compressed or not.
 	 * 
 	 * @param pFile The file to read the graph from.
 	 * @return The graph that is read in
@@ -68,15 +238,111 @@ public final class PersistenceService
 	 */
 	public static Diagram read(File pFile) throws IOException, DeserializationException
 	{
-		assert pFile != null;
-		try( BufferedReader in = new BufferedReader(new FileReader(pFile)))
+		return read(pFile, ProgressListener.NONE);
+	}
+	
+	/**
+	 * Reads a graph from a file, in any of the supported formats,
+	 * compressed or not, and notifies pProgress of the number of 
+	 * bytes of the file read.
+	 * 
+	 * @param pFile The file to read the graph from.
+	 * @param pProgress Notified of the number of bytes read.
+	 * @return The graph that is read in
+	 * @throws IOException if the graph cannot be read.
+	 * @throws DeserializationException if there is a problem decoding the file.
+	 * @pre pFile != null && pProgress != null
+	 */
+	public static Diagram read(File pFile, ProgressListener pProgress) throws IOException, DeserializationException
+	{
+		assert pFile != null && pProgress != null;
+		try( InputStream file = new BufferedInputStream(reportProgress(new FileInputStream(pFile), pFile.length(), pProgress)))
 		{
-			Diagram graph = JsonDecoder.decode(new JSONObject(in.readLine()));
-			return graph;
+			if( Arrays.equals(GZIP_MAGIC, peek(file, GZIP_MAGIC.length)) )
+			{
+				try( InputStream in = new BufferedInputStream(new GZIPInputStream(file)))
+				{
+					return decode(in);
+				}
+			}
+			return decode(file);
 		}
-		catch( JSONException e )
+	}
+	
+	/*
+	 * Returns a stream that reads from pInput, and that notifies pProgress
+	 * of the number of bytes read out of pSize.
+	 */
+	private static InputStream reportProgress(InputStream pInput, long pSize, ProgressListener pProgress)
+	{
+		return new FilterInputStream(pInput)
+		{
+			private long aRead = 0;
+			
+			@Override
+			public int read() throws IOException
+			{
+				int result = in.read();
+				progressed(result < 0 ? -1 : 1);
+				return result;
+			}
+			
+			@Override
+			public int read(byte[] pBytes, int pOffset, int pLength) throws IOException
+			{
+				int result = in.read(pBytes, pOffset, pLength);
+				progressed(result);
+				return result;
+			}
+			
+			@Override
+			public long skip(long pBytes) throws IOException
+			{
+				long result = in.skip(pBytes);
+				aRead += result;
+				return result;
+			}
+			
+			private void progressed(int pRead)
+			{
+				if( pRead > 0 )
+				{
+					aRead += pRead;
+					pProgress.progressed(aRead, pSize);
+				}
+			}
+		};
+	}
+	
+	/*
+	 * Decodes the graph in pInput, in the format it was saved in.
+	 * pInput must support mark and reset.
+	 */
+	private static Diagram decode(InputStream pInput) throws IOException
+	{
+		if( BinaryDecoder.isBinary(peek(pInput, BinaryDecoder.headerLength())) )
+		{
+			return BinaryDecoder.decode(pInput);
+		}
+		return JsonDecoder.decode(new InputStreamReader(pInput));
+	}
+	
+	/*
+	 * Returns up to pLength bytes at the start of pInput, 
+	 * without consuming them.
+	 */
+	private static byte[] peek(InputStream pInput, int pLength) throws IOException
+	{
+		pInput.mark(pLength);
+		byte[] header = new byte[pLength];
+		int length = 0;
+		int read = 0;
+		while( length < pLength && read >= 0 )
 		{
-			throw new DeserializationException("Cannot decode the file", e);
+			read = pInput.read(header, length, pLength - length);
+			length += Math.max(read, 0);
 		}
+		pInput.reset();
+		return Arrays.copyOf(header, length);
 	}
 }
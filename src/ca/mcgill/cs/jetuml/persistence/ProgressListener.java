@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2018 by the contributors of the JetUML project.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package ca.mcgill.cs.jetuml.persistence;
+
+/**
+ * Is notified of the progress of a diagram being saved or read.
+ */
+@FunctionalInterface
+public interface ProgressListener
+{
+	/**
+	 * A listener that ignores the progress.
+	 */
+	ProgressListener NONE = (pWorkDone, pTotalWork) -> {};
+	
+	/**
+	 * Called every time some work is done.
+	 * 
+	 * @param pWorkDone The amount of work done so far.
+	 * @param pTotalWork The total amount of work.
+	 */
+	void progressed(long pWorkDone, long pTotalWork);
+}
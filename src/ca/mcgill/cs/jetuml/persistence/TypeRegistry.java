@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2018 by the contributors of the JetUML project.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package ca.mcgill.cs.jetuml.persistence;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import ca.mcgill.cs.jetuml.diagram.ClassDiagram;
+import ca.mcgill.cs.jetuml.diagram.Diagram;
+import ca.mcgill.cs.jetuml.diagram.Edge;
+import ca.mcgill.cs.jetuml.diagram.Node;
+import ca.mcgill.cs.jetuml.diagram.ObjectDiagram;
+import ca.mcgill.cs.jetuml.diagram.SequenceDiagram;
+import ca.mcgill.cs.jetuml.diagram.StateDiagram;
+import ca.mcgill.cs.jetuml.diagram.UseCaseDiagram;
+import ca.mcgill.cs.jetuml.diagram.edges.AggregationEdge;
+import ca.mcgill.cs.jetuml.diagram.edges.AssociationEdge;
+import ca.mcgill.cs.jetuml.diagram.edges.CallEdge;
+import ca.mcgill.cs.jetuml.diagram.edges.DependencyEdge;
+import ca.mcgill.cs.jetuml.diagram.edges.GeneralizationEdge;
+import ca.mcgill.cs.jetuml.diagram.edges.NoteEdge;
+import ca.mcgill.cs.jetuml.diagram.edges.ObjectCollaborationEdge;
+import ca.mcgill.cs.jetuml.diagram.edges.ObjectReferenceEdge;
+import ca.mcgill.cs.jetuml.diagram.edges.ReturnEdge;
+import ca.mcgill.cs.jetuml.diagram.edges.StateTransitionEdge;
+import ca.mcgill.cs.jetuml.diagram.edges.UseCaseAssociationEdge;
+import ca.mcgill.cs.jetuml.diagram.edges.UseCaseDependencyEdge;
+import ca.mcgill.cs.jetuml.diagram.edges.UseCaseGeneralizationEdge;
+import ca.mcgill.cs.jetuml.diagram.nodes.ActorNode;
+import ca.mcgill.cs.jetuml.diagram.nodes.CallNode;
+import ca.mcgill.cs.jetuml.diagram.nodes.ClassNode;
+import ca.mcgill.cs.jetuml.diagram.nodes.FieldNode;
+import ca.mcgill.cs.jetuml.diagram.nodes.FinalStateNode;
+import ca.mcgill.cs.jetuml.diagram.nodes.ImplicitParameterNode;
+import ca.mcgill.cs.jetuml.diagram.nodes.InitialStateNode;
+import ca.mcgill.cs.jetuml.diagram.nodes.InterfaceNode;
+import ca.mcgill.cs.jetuml.diagram.nodes.NoteNode;
+import ca.mcgill.cs.jetuml.diagram.nodes.ObjectNode;
+import ca.mcgill.cs.jetuml.diagram.nodes.PackageNode;
+import ca.mcgill.cs.jetuml.diagram.nodes.PointNode;
+import ca.mcgill.cs.jetuml.diagram.nodes.StateNode;
+import ca.mcgill.cs.jetuml.diagram.nodes.UseCaseNode;
+
+/**
+ * Maps the names that identify the types of diagrams, nodes, and edges
+ * in serialized diagrams to factories for these types, and the other way around. 
+ * The name of a type is the simple name of its class. Using this registry 
+ * avoids relying on reflection for every element that is serialized or 
+ * deserialized.
+ * 
+ * Every type of diagram element that can be saved must be registered here.
+ */
+final class TypeRegistry
+{
+	private static final Map<String, Supplier<Diagram>> DIAGRAMS = new HashMap<>();
+	private static final Map<String, Supplier<Node>> NODES = new HashMap<>();
+	private static final Map<String, Supplier<Edge>> EDGES = new HashMap<>();
+	private static final Map<Class<?>, String> NAMES = new IdentityHashMap<>();
+	
+	static
+	{
+		register(DIAGRAMS, ClassDiagram.class, ClassDiagram::new);
+		register(DIAGRAMS, SequenceDiagram.class, SequenceDiagram::new);
+		register(DIAGRAMS, StateDiagram.class, StateDiagram::new);
+		register(DIAGRAMS, ObjectDiagram.class, ObjectDiagram::new);
+		register(DIAGRAMS, UseCaseDiagram.class, UseCaseDiagram::new);
+		
+		register(NODES, ActorNode.class, ActorNode::new);
+		register(NODES, CallNode.class, CallNode::new);
+		register(NODES, ClassNode.class, ClassNode::new);
+		register(NODES, FieldNode.class, FieldNode::new);
+		register(NODES, FinalStateNode.class, FinalStateNode::new);
+		register(NODES, ImplicitParameterNode.class, ImplicitParameterNode::new);
+		register(NODES, InitialStateNode.class, InitialStateNode::new);
+		register(NODES, InterfaceNode.class, InterfaceNode::new);
+		register(NODES, NoteNode.class, NoteNode::new);
+		register(NODES, ObjectNode.class, ObjectNode::new);
+		register(NODES, PackageNode.class, PackageNode::new);
+		register(NODES, PointNode.class, PointNode::new);
+		register(NODES, StateNode.class, StateNode::new);
+		register(NODES, UseCaseNode.class, UseCaseNode::new);
+		
+		register(EDGES, AggregationEdge.class, AggregationEdge::new);
+		register(EDGES, AssociationEdge.class, AssociationEdge::new);
+		register(EDGES, CallEdge.class, CallEdge::new);
+		register(EDGES, DependencyEdge.class, DependencyEdge::new);
+		register(EDGES, GeneralizationEdge.class, GeneralizationEdge::new);
+		register(EDGES, NoteEdge.class, NoteEdge::new);
+		register(EDGES, ObjectCollaborationEdge.class, ObjectCollaborationEdge::new);
+		register(EDGES, ObjectReferenceEdge.class, ObjectReferenceEdge::new);
+		register(EDGES, ReturnEdge.class, ReturnEdge::new);
+		register(EDGES, StateTransitionEdge.class, StateTransitionEdge::new);
+		register(EDGES, UseCaseAssociationEdge.class, UseCaseAssociationEdge::new);
+		register(EDGES, UseCaseDependencyEdge.class, UseCaseDependencyEdge::new);
+		register(EDGES, UseCaseGeneralizationEdge.class, UseCaseGeneralizationEdge::new);
+	}
+	
+	private TypeRegistry() {}
+	
+	private static <T> void register(Map<String, Supplier<T>> pFactories, Class<? extends T> pClass, Supplier<T> pFactory)
+	{
+		pFactories.put(pClass.getSimpleName(), pFactory);
+		NAMES.put(pClass, pClass.getSimpleName());
+	}
+	
+	private static <T> T create(Map<String, Supplier<T>> pFactories, String pName)
+	{
+		Supplier<T> factory = pFactories.get(pName);
+		if( factory == null )
+		{
+			throw new DeserializationException("Unknown type: " + pName);
+		}
+		return factory.get();
+	}
+	
+	/**
+	 * @param pName The name of a type of diagram.
+	 * @return A new, empty diagram of this type.
+	 * @throws DeserializationException If no type of diagram has this name.
+	 */
+	static Diagram newDiagram(String pName)
+	{
+		return create(DIAGRAMS, pName);
+	}
+	
+	/**
+	 * @param pName The name of a type of node.
+	 * @return A new node of this type, with default properties.
+	 * @throws DeserializationException If no type of node has this name.
+	 */
+	static Node newNode(String pName)
+	{
+		return create(NODES, pName);
+	}
+	
+	/**
+	 * @param pName The name of a type of edge.
+	 * @return A new edge of this type, with default properties.
+	 * @throws DeserializationException If no type of edge has this name.
+	 */
+	static Edge newEdge(String pName)
+	{
+		return create(EDGES, pName);
+	}
+	
+	/**
+	 * @param pObject A diagram or diagram element.
+	 * @return The name that identifies the type of pObject.
+	 * @pre pObject != null
+	 */
+	static String nameOf(Object pObject)
+	{
+		assert pObject != null;
+		String name = NAMES.get(pObject.getClass());
+		if( name == null )
+		{
+			name = pObject.getClass().getSimpleName();
+		}
+		return name;
+	}
+}
@@ -55,4 +55,13 @@ public interface DiagramElementView
      * @return true if this element contains aPoint
      */
    	boolean contains(Point pPoint);
+   	
+   	/**
+   	 * Gets a rectangle that includes all the points contained
+   	 * by this element, as determined by contains(Point). This rectangle
+   	 * is used to narrow down the elements to test when searching
+   	 * for an element at a given point.
+   	 * @return the rectangle in which this element can be hit
+   	 */
+   	Rectangle getHitBounds();
 }
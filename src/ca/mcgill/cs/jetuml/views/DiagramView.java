@@ -21,6 +21,7 @@
 
 package ca.mcgill.cs.jetuml.views;
 
+import java.util.List;
 import java.util.Optional;
 
 import ca.mcgill.cs.jetuml.diagram.Diagram;
@@ -39,6 +40,8 @@ import javafx.scene.canvas.GraphicsContext;
 public class DiagramView
 {
 	protected final Diagram aDiagram;
+	private int aNumberOfDrawnElements = 0;
+	private int aNumberOfSkippedElements = 0;
 	
 	/**
 	 * Creates a new DiagramView that wraps pDiagram.
@@ -70,6 +73,46 @@ public class DiagramView
 		assert pGraphics != null;
 		aDiagram.rootNodes().forEach(node -> drawNode(node, pGraphics));
 		aDiagram.edges().forEach( edge -> edge.view().draw(pGraphics));
+		aNumberOfDrawnElements = aDiagram.numberOfRootNodes() + aDiagram.numberOfEdges();
+		aNumberOfSkippedElements = 0;
+	}
+	
+	/**
+	 * Draws the part of the diagram that is visible in pClip onto pGraphics.
+	 * Root nodes (with their descendants) and edges that cannot intersect 
+	 * pClip are not drawn. 
+	 * 
+	 * @param pGraphics the graphics context where the
+	 * diagram should be drawn.
+	 * @param pClip The area of the diagram to draw.
+	 * @pre pGraphics != null && pClip != null.
+	 */
+	public final void draw(GraphicsContext pGraphics, Rectangle pClip)
+	{
+		assert pGraphics != null && pClip != null;
+		List<Node> nodes = aDiagram.rootNodesIn(pClip);
+		List<Edge> edges = aDiagram.edgesIn(pClip);
+		nodes.forEach(node -> drawNode(node, pGraphics));
+		edges.forEach( edge -> edge.view().draw(pGraphics));
+		aNumberOfDrawnElements = nodes.size() + edges.size();
+		aNumberOfSkippedElements = aDiagram.numberOfRootNodes() + aDiagram.numberOfEdges() - aNumberOfDrawnElements;
+	}
+	
+	/**
+	 * @return The number of root nodes and edges drawn by the last call to draw.
+	 */
+	public int getNumberOfDrawnElements()
+	{
+		return aNumberOfDrawnElements;
+	}
+	
+	/**
+	 * @return The number of root nodes and edges that the last call to draw 
+	 * did not draw because they were outside of the area to draw.
+	 */
+	public int getNumberOfSkippedElements()
+	{
+		return aNumberOfSkippedElements;
 	}
 	
 	private void drawNode(Node pNode, GraphicsContext pGraphics)
@@ -92,7 +135,7 @@ public class DiagramView
 	public final Optional<Edge> findEdge(Point pPoint)
 	{
 		assert pPoint != null;
-		for(Edge edge : aDiagram.edges())
+		for(Edge edge : aDiagram.edgesAt(pPoint))
 		{
 			if(edge.view().contains(pPoint))
 			{
@@ -112,7 +155,7 @@ public class DiagramView
 	public final Optional<Node> findNode(Point pPoint)
 	{
 		Node result = null;
-		for(Node node : aDiagram.rootNodes())
+		for(Node node : rootNodesAt(pPoint))
 		{
 			Node temp = deepFindNode(node, pPoint);
 			if (temp != null)
@@ -123,6 +166,20 @@ public class DiagramView
 		return Optional.ofNullable(result);
 	}
 	
+	/**
+	 * Returns the root nodes from which to start searching for a node 
+	 * that contains pPoint. By default, uses the spatial index
+	 * of the diagram.
+	 * 
+	 * @param pPoint The point to test.
+	 * @return The root nodes that should be searched, in diagram order.
+	 * @pre pPoint != null
+	 */
+	protected List<Node> rootNodesAt(Point pPoint)
+	{
+		return aDiagram.rootNodesAt(pPoint);
+	}
+	
 	/**
 	 * Find the "deepest" child that contains pPoint,
 	 * where depth is measured in terms of distance from
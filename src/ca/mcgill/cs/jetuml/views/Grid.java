@@ -21,11 +21,18 @@
 
 package ca.mcgill.cs.jetuml.views;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import ca.mcgill.cs.jetuml.geom.Dimension;
 import ca.mcgill.cs.jetuml.geom.Point;
 import ca.mcgill.cs.jetuml.geom.Rectangle;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
 import javafx.scene.paint.Color;
+import javafx.scene.paint.ImagePattern;
 import javafx.scene.paint.Paint;
 
 /**
@@ -37,30 +44,64 @@ public final class Grid
 	private static final Color GRID_COLOR = Color.rgb(220, 220, 220);
 	private static final double GRID_SIZE = 10;
 	
+	// The patterns used to fill the grid, created lazily for each line width. Only accessed through pattern(double).
+	private static final Map<Double, ImagePattern> PATTERNS = new HashMap<>();
+	
 	private Grid() {}
 	
 	/**
-     * Draws this grid inside a rectangle.
+     * Draws this grid inside a rectangle. The grid lines are
+     * always drawn at multiples of the grid size, whatever
+     * the position of the rectangle, and with the current line
+     * width of pGraphics. Instead of stroking every line, 
+     * this method fills the rectangle with a pattern made of 
+     * a single cell of the grid, so its cost does not depend on
+     * the number of lines.
      * @param pGraphics the graphics context
      * @param pBounds the bounding rectangle
+     * @pre pBounds.getX() >= 0 && pBounds.getY() >= 0
      */
 	public static void draw(GraphicsContext pGraphics, Rectangle pBounds)
 	{
-		Paint oldStroke = pGraphics.getStroke();
-		pGraphics.setStroke(GRID_COLOR);
-		int x1 = pBounds.getX();
-		int y1 = pBounds.getY();
-		int x2 = pBounds.getMaxX();
-		int y2 = pBounds.getMaxY();
-		for(int x = x1; x < x2; x += GRID_SIZE)
-		{
-			ToolGraphics.strokeSharpLine(pGraphics, x, y1, x, y2);
-		}
-		for(int y = y1; y < y2; y += GRID_SIZE)
+		assert pBounds.getX() >= 0 && pBounds.getY() >= 0;
+		Paint oldFill = pGraphics.getFill();
+		pGraphics.setFill(pattern(pGraphics.getLineWidth()));
+		pGraphics.fillRect(pBounds.getX(), pBounds.getY(), pBounds.getWidth(), pBounds.getHeight());
+		pGraphics.setFill(oldFill);
+	}
+	
+	/*
+	 * Returns the pattern of grid cells drawn with lines of width pLineWidth.
+	 * The diagrams are only drawn with a few line widths, so the patterns 
+	 * are kept for the lifetime of the application.
+	 */
+	private static ImagePattern pattern(double pLineWidth)
+	{
+		return PATTERNS.computeIfAbsent(pLineWidth, 
+				pWidth -> new ImagePattern(createTile(pWidth), 0, 0, GRID_SIZE, GRID_SIZE, false));
+	}
+	
+	/*
+	 * Creates an image of one cell of the grid, with a vertical line on its left column
+	 * and a horizontal line on its top row, and transparent everywhere else. A sharp
+	 * line thinner than a pixel only partially covers the pixels it is drawn on, so its 
+	 * width is converted to an opacity. Where both lines cross, the pixel is covered twice.
+	 */
+	static Image createTile(double pLineWidth)
+	{
+		final int size = (int) GRID_SIZE;
+		double opacity = Math.min(1, pLineWidth);
+		Color line = Color.color(GRID_COLOR.getRed(), GRID_COLOR.getGreen(), GRID_COLOR.getBlue(), opacity);
+		WritableImage tile = new WritableImage(size, size);
+		PixelWriter writer = tile.getPixelWriter();
+		for( int i = 1; i < size; i++ )
 		{
-			ToolGraphics.strokeSharpLine(pGraphics, x1, y, x2, y);
+			writer.setColor(i, 0, line);
+			writer.setColor(0, i, line);
 		}
-		pGraphics.setStroke(oldStroke);
+		writer.setColor(0, 0, Color.color(GRID_COLOR.getRed(), GRID_COLOR.getGreen(), GRID_COLOR.getBlue(), 
+				1 - (1 - opacity) * (1 - opacity)));
+		return tile;
 	}
 
 	
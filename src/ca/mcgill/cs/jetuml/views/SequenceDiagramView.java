@@ -21,6 +21,9 @@
 
 package ca.mcgill.cs.jetuml.views;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import ca.mcgill.cs.jetuml.diagram.ControlFlow;
 import ca.mcgill.cs.jetuml.diagram.Diagram;
 import ca.mcgill.cs.jetuml.diagram.DiagramElement;
@@ -46,6 +49,18 @@ public class SequenceDiagramView extends DiagramView
 		super(pDiagram);
 	}
 	
+	/*
+	 * Because the search follows the call edges, a node can be 
+	 * found by searching from a root node that does not contain it.
+	 */
+	@Override
+	protected List<Node> rootNodesAt(Point pPoint)
+	{
+		List<Node> result = new ArrayList<>();
+		aDiagram.rootNodes().forEach(result::add);
+		return result;
+	}
+	
 	@Override
 	protected Node deepFindNode( Node pNode, Point pPoint )
 	{		
@@ -26,7 +26,6 @@ import javafx.geometry.VPos;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
-import javafx.scene.text.Text;
 import javafx.scene.text.TextAlignment;
 import javafx.scene.text.TextBoundsType;
 
@@ -96,35 +95,34 @@ public final class StringViewer
 		{
 			return EMPTY;
 		}
-		Bounds bounds = getLabel(pString).getLayoutBounds(); 
+		Bounds bounds = getLayoutBounds(pString); 
 		return new Rectangle(0, 0, (int) Math.round(bounds.getWidth() + HORIZONTAL_TEXT_PADDING*2), 
 				(int) Math.round(bounds.getHeight() + VERTICAL_TEXT_PADDING*2));
 	}
 	
-	private Text getLabel(String pString)
+	/*
+	 * Measuring a string is expensive, so the bounds are 
+	 * obtained from the shared cache.
+	 */
+	private Bounds getLayoutBounds(String pString)
+	{
+		return TextBoundsCache.instance().getBounds(pString, getFont(), getTextAlignment(), aUnderlined, TextBoundsType.VISUAL);
+	}
+	
+	private TextAlignment getTextAlignment()
 	{
-		Text label = new Text();
-		if (aUnderlined)
-		{
-			label.setUnderline(true);
-		}
-		label.setFont(getFont());
-		label.setBoundsType(TextBoundsType.VISUAL);
-		label.setText(pString);
-		
 		if(aAlignment == Align.LEFT)
 		{
-			label.setTextAlignment(TextAlignment.LEFT);
+			return TextAlignment.LEFT;
 		}
 		else if(aAlignment == Align.CENTER)
 		{
-			label.setTextAlignment(TextAlignment.CENTER);
+			return TextAlignment.CENTER;
 		}
-		else if(aAlignment == Align.RIGHT) 
+		else
 		{
-			label.setTextAlignment(TextAlignment.RIGHT);
+			return TextAlignment.RIGHT;
 		}
-		return label;
 	}
 	
 	/**
@@ -135,9 +133,7 @@ public final class StringViewer
 	 */
 	public void draw(String pString, GraphicsContext pGraphics, Rectangle pRectangle)
 	{
-		Text label = getLabel(pString);
-		
-		pGraphics.setTextAlign(label.getTextAlignment());
+		pGraphics.setTextAlign(getTextAlignment());
 		
 		int textX = 0;
 		int textY = 0;
@@ -160,7 +156,7 @@ public final class StringViewer
 		{
 			int xOffset = 0;
 			int yOffset = 0;
-			Bounds bounds = label.getLayoutBounds();
+			Bounds bounds = getLayoutBounds(pString);
 			if(aAlignment == Align.CENTER)
 			{
 				xOffset = (int) (bounds.getWidth()/2);
@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2018 by the contributors of the JetUML project.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package ca.mcgill.cs.jetuml.views;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import javafx.geometry.Bounds;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextAlignment;
+import javafx.scene.text.TextBoundsType;
+
+/**
+ * A bounded cache of the layout bounds of rendered strings. Measuring 
+ * a string requires creating and laying out a Text node, so the bounds
+ * obtained for a given combination of string and rendering attributes 
+ * are kept and reused. When the cache is full, the least recently used
+ * entry is discarded.
+ * 
+ * The cache keeps statistics on its use, so that its capacity can 
+ * be tuned. Like the rest of the rendering code, it is meant to be
+ * used from the JavaFX application thread only.
+ */
+public final class TextBoundsCache
+{
+	private static final int DEFAULT_CAPACITY = 2048;
+	private static final TextBoundsCache INSTANCE = new TextBoundsCache(DEFAULT_CAPACITY);
+	
+	private final int aCapacity;
+	private final Map<Key, Bounds> aCache;
+	private long aHits = 0;
+	private long aMisses = 0;
+	private long aEvictions = 0;
+	
+	/**
+	 * Creates an empty cache.
+	 * 
+	 * @param pCapacity The maximum number of entries in the cache.
+	 * @pre pCapacity > 0
+	 */
+	TextBoundsCache(int pCapacity)
+	{
+		assert pCapacity > 0;
+		aCapacity = pCapacity;
+		aCache = new LinkedHashMap<Key, Bounds>(16, 0.75f, true)
+		{
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Bounds> pEldest)
+			{
+				if( size() > aCapacity )
+				{
+					aEvictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+	
+	/**
+	 * @return The cache shared by all the views.
+	 */
+	public static TextBoundsCache instance()
+	{
+		return INSTANCE;
+	}
+	
+	/**
+	 * Returns the layout bounds of pString when rendered with
+	 * the given attributes.
+	 * 
+	 * @param pString The string to measure.
+	 * @param pFont The font of the string.
+	 * @param pAlignment The alignment of the string.
+	 * @param pUnderlined True if the string is underlined.
+	 * @param pBoundsType Whether to measure the logical or the visual bounds of the string.
+	 * @return The layout bounds of a Text node showing pString.
+	 * @pre pString != null && pFont != null && pAlignment != null && pBoundsType != null
+	 */
+	public Bounds getBounds(String pString, Font pFont, TextAlignment pAlignment, boolean pUnderlined, 
+			TextBoundsType pBoundsType)
+	{
+		assert pString != null && pFont != null && pAlignment != null && pBoundsType != null;
+		Key key = new Key(pString, pFont, pAlignment, pUnderlined, pBoundsType);
+		Bounds bounds = aCache.get(key);
+		if( bounds != null )
+		{
+			aHits++;
+			return bounds;
+		}
+		aMisses++;
+		Text text = new Text(pString);
+		text.setFont(pFont);
+		text.setTextAlignment(pAlignment);
+		text.setUnderline(pUnderlined);
+		text.setBoundsType(pBoundsType);
+		bounds = text.getLayoutBounds();
+		aCache.put(key, bounds);
+		return bounds;
+	}
+	
+	/**
+	 * @return The maximum number of entries in the cache.
+	 */
+	public int capacity()
+	{
+		return aCapacity;
+	}
+	
+	/**
+	 * @return The number of entries currently in the cache.
+	 */
+	public int size()
+	{
+		return aCache.size();
+	}
+	
+	/**
+	 * @return The number of requests answered from the cache.
+	 */
+	public long hits()
+	{
+		return aHits;
+	}
+	
+	/**
+	 * @return The number of requests that required measuring the string.
+	 */
+	public long misses()
+	{
+		return aMisses;
+	}
+	
+	/**
+	 * @return The number of entries discarded to respect the capacity.
+	 */
+	public long evictions()
+	{
+		return aEvictions;
+	}
+	
+	/**
+	 * Removes all entries from the cache and resets the statistics.
+	 */
+	public void clear()
+	{
+		aCache.clear();
+		aHits = 0;
+		aMisses = 0;
+		aEvictions = 0;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return String.format("%s[size=%d/%d, hits=%d, misses=%d, evictions=%d]", getClass().getSimpleName(),
+				size(), aCapacity, aHits, aMisses, aEvictions);
+	}
+	
+	private static final class Key
+	{
+		private final String aString;
+		private final Font aFont;
+		private final TextAlignment aAlignment;
+		private final boolean aUnderlined;
+		private final TextBoundsType aBoundsType;
+		
+		Key(String pString, Font pFont, TextAlignment pAlignment, boolean pUnderlined, TextBoundsType pBoundsType)
+		{
+			aString = pString;
+			aFont = pFont;
+			aAlignment = pAlignment;
+			aUnderlined = pUnderlined;
+			aBoundsType = pBoundsType;
+		}
+		
+		@Override
+		public boolean equals(Object pObject)
+		{
+			if( this == pObject )
+			{
+				return true;
+			}
+			if( pObject == null || pObject.getClass() != getClass() )
+			{
+				return false;
+			}
+			Key other = (Key) pObject;
+			return aString.equals(other.aString) && aFont.equals(other.aFont) && aAlignment == other.aAlignment &&
+					aUnderlined == other.aUnderlined && aBoundsType == other.aBoundsType;
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return Objects.hash(aString, aFont, aAlignment, aUnderlined, aBoundsType);
+		}
+	}
+}
@@ -27,11 +27,13 @@ import ca.mcgill.cs.jetuml.geom.Direction;
 import ca.mcgill.cs.jetuml.geom.Line;
 import ca.mcgill.cs.jetuml.geom.Point;
 import ca.mcgill.cs.jetuml.geom.Rectangle;
+import ca.mcgill.cs.jetuml.views.TextBoundsCache;
 import ca.mcgill.cs.jetuml.views.ToolGraphics;
 import javafx.geometry.Bounds;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.shape.Shape;
-import javafx.scene.text.Text;
+import javafx.scene.text.TextAlignment;
+import javafx.scene.text.TextBoundsType;
 
 /**
  * Provides shared services for rendering an edge.
@@ -39,13 +41,6 @@ import javafx.scene.text.Text;
 public abstract class AbstractEdgeView implements EdgeView
 {
 	protected static final int MAX_DISTANCE = 3;
-	private static final Text SIZE_TESTER = new Text();
-	
-	static
-	{
-		SIZE_TESTER.setFont(FONT);
-	}
-	
 	private static final int DEGREES_180 = 180;
 	
 	private Edge aEdge;
@@ -68,11 +63,11 @@ public abstract class AbstractEdgeView implements EdgeView
 	 * @return A bounds object to be used as
 	 * metrics for the size of the string when rendered
 	 * in the application font.
+	 * @pre pText != null
 	 */
 	protected static Bounds textBounds( String pText )
 	{
-		SIZE_TESTER.setText(pText);
-		return SIZE_TESTER.getBoundsInLocal();
+		return TextBoundsCache.instance().getBounds(pText, FONT, TextAlignment.LEFT, false, TextBoundsType.LOGICAL);
 	}
 	
 	/**
@@ -97,6 +92,19 @@ public abstract class AbstractEdgeView implements EdgeView
 		return fatPath.contains(pPoint.getX(), pPoint.getY());
 	}
 	
+	/*
+	 * The margin covers the fat path used by contains, as well as
+	 * the rounding of the bounds to integer coordinates.
+	 */
+	@Override
+	public Rectangle getHitBounds()
+	{
+		Rectangle bounds = getBounds();
+		final int margin = 2 * MAX_DISTANCE + 1;
+		return new Rectangle(bounds.getX() - margin, bounds.getY() - margin, 
+				bounds.getWidth() + 2 * margin, bounds.getHeight() + 2 * margin);
+	}
+	
 	@Override
 	public Rectangle getBounds()
 	{
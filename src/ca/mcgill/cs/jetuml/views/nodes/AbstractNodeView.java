@@ -33,6 +33,7 @@ import javafx.scene.canvas.GraphicsContext;
 public abstract class AbstractNodeView implements NodeView
 {
 	private Node aNode;
+	private Rectangle aBounds; // Cached, null if it must be recomputed
 	
 	/**
 	 * @param pNode The node to wrap.
@@ -61,6 +62,40 @@ public abstract class AbstractNodeView implements NodeView
 		return getBounds().contains(pPoint);
 	}
 	
+	/*
+	 * Computing the bounds of a node typically requires measuring
+	 * its text, so the bounds are computed once and reused until
+	 * they are invalidated.
+	 * @see ca.mcgill.cs.jetuml.views.DiagramElementView#getBounds()
+	 */
+	@Override
+	public Rectangle getBounds()
+	{
+		if( aBounds == null )
+		{
+			aBounds = computeBounds();
+		}
+		return aBounds;
+	}
+	
+	/**
+	 * @return The bounding rectangle of the node, computed
+	 * from the current state of the node.
+	 */
+	protected abstract Rectangle computeBounds();
+	
+	@Override
+	public void invalidateBounds()
+	{
+		aBounds = null;
+	}
+	
+	@Override
+	public Rectangle getHitBounds()
+	{
+		return getBounds();
+	}
+	
 	/* 
 	 * The default behavior is to returns a point in the middle of the appropriate side of the bounding box 
 	 * of the node.
@@ -60,7 +60,7 @@ public final class ActorNodeView extends AbstractNodeView
 	}
 	
 	@Override
-	public Rectangle getBounds()
+	protected Rectangle computeBounds()
 	{
 		Rectangle nameBounds = NAME_VIEWER.getBounds(name());
 		return new Rectangle(node().position().getX(), node().position().getY(),
@@ -20,12 +20,8 @@
  *******************************************************************************/
 package ca.mcgill.cs.jetuml.views.nodes;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Optional;
 
-import ca.mcgill.cs.jetuml.diagram.ControlFlow;
-import ca.mcgill.cs.jetuml.diagram.Node;
 import ca.mcgill.cs.jetuml.diagram.SequenceDiagram;
 import ca.mcgill.cs.jetuml.diagram.nodes.CallNode;
 import ca.mcgill.cs.jetuml.diagram.nodes.ImplicitParameterNode;
@@ -42,10 +38,10 @@ import javafx.scene.paint.Color;
  */
 public final class CallNodeView extends AbstractNodeView
 {
-	private static final int WIDTH = 16;
-	private static final int DEFAULT_HEIGHT = 30;
-	private static final int Y_GAP_BIG = 20;
-	private static final int Y_GAP_SMALL = 20; // Was 10, changed to 20 to account for label space
+	static final int WIDTH = 16;
+	static final int DEFAULT_HEIGHT = 30;
+	static final int Y_GAP_BIG = 20;
+	static final int Y_GAP_SMALL = 20; // Was 10, changed to 20 to account for label space
 	
 	private SequenceDiagram aDiagram = null;
 	
@@ -63,7 +59,15 @@ public final class CallNodeView extends AbstractNodeView
 	 */
 	public void setDiagram(SequenceDiagram pDiagram)
 	{
-		aDiagram = pDiagram;
+		if( pDiagram != aDiagram )
+		{
+			aDiagram = pDiagram;
+			if( pDiagram != null )
+			{
+				// The node is now part of the layout of the diagram
+				pDiagram.elementChanged(node());
+			}
+		}
 	}
 	
 	@Override
@@ -122,94 +126,46 @@ public final class CallNodeView extends AbstractNodeView
 		}
 	}
 	
-	/*
-	 * The x position is a function of the position of the implicit parameter
-	 * node and the nesting depth of the call node.
+	/**
+	 * @param pDiagram The diagram to check.
+	 * @return True if this node was connected to pDiagram by a call or return.
 	 */
-	private int getX()
+	boolean isConnectedTo(SequenceDiagram pDiagram)
 	{
-		if(implicitParameter() != null )
-		{
-			int depth = 0;
-			if( aDiagram != null )
-			{
-				depth = new ControlFlow(aDiagram).getNestingDepth(node());
-			}
-			return ((ImplicitParameterNodeView)implicitParameter().view()).getTopRectangle().getCenter().getX() -
-					WIDTH / 2 + depth * WIDTH/2;
-		}
-		else
-		{
-			return 0;
-		}
+		return aDiagram == pDiagram;
 	}
 	
 	/*
-	 * If the node has a caller, the Y coordinate is a gap below the last return Y value
-	 * of the caller or a set distance before the previous call node, whatever is lower.
-	 * If not, it's simply a set distance below the previous call node.
+	 * The bounds of a node connected to a diagram depend on the calls
+	 * in the diagram, so they are obtained from the layout of the diagram.
+	 * @see ca.mcgill.cs.jetuml.views.nodes.AbstractNodeView#getBounds()
 	 */
-	private int getY()
+	@Override
+	public Rectangle getBounds()
 	{
-		if( implicitParameter() == null || aDiagram == null )
-		{
-			return 0; // Only used for the ImageCreator
-		}
-		ControlFlow flow = new ControlFlow(aDiagram);
-		Optional<CallNode> caller = flow.getCaller(node());
-		if( caller.isPresent() )
+		if( aDiagram != null )
 		{
-			int result = 0;
-			if( flow.isNested(node()) && flow.isFirstCallee(node()))
-			{
-				result = ((CallNodeView)caller.get().view()).getY() + Y_GAP_BIG;
-			}
-			else if( flow.isNested(node()) && !flow.isFirstCallee(node()) )
-			{
-				result = ((CallNodeView)flow.getPreviousCallee(node()).view()).getMaxY() + Y_GAP_SMALL;
-			}
-			else if( !flow.isNested(node()) && flow.isFirstCallee(node()) )
+			Optional<Rectangle> bounds = aDiagram.layout().getBounds(node());
+			if( bounds.isPresent() )
 			{
-				result = ((CallNodeView)caller.get().view()).getY() + Y_GAP_SMALL;
+				return bounds.get();
 			}
-			else
-			{
-				result = ((CallNodeView)flow.getPreviousCallee(node()).view()).getMaxY() + Y_GAP_SMALL;
-			}
-			return result;
-		}
-		else
-		{
-			return ((ImplicitParameterNodeView)implicitParameter().view()).getTopRectangle().getMaxY() + Y_GAP_SMALL;
 		}
-	} 
+		return super.getBounds();
+	}
 	
-	/**
-	 * @return If there's no callee, returns a fixed offset from the y position.
-	 * Otherwise, return with a gap from last callee.
+	/*
+	 * Outside of a diagram, the node is positioned at the top of 
+	 * its implicit parameter node, if any.
 	 */
-	public int getMaxY()
+	@Override
+	protected Rectangle computeBounds()
 	{
-		List<Node> callees = new ArrayList<>();
-		if( aDiagram != null )
+		int x = 0;
+		if( implicitParameter() != null )
 		{
-			callees = new ControlFlow(aDiagram).getCallees(node());
+			x = implicitParameter().getTopRectangle().getCenter().getX() - WIDTH / 2;
 		}
-		if( callees.isEmpty() )
-		{
-			return getY() + DEFAULT_HEIGHT;
-		}
-		else
-		{
-			return ((CallNodeView)callees.get(callees.size()-1).view()).getMaxY() + Y_GAP_SMALL;
-		}
-	}
-	
-	@Override
-	public Rectangle getBounds()
-	{
-		int y = getY();
-		return new Rectangle(getX(), y, WIDTH, getMaxY() - y);
+		return new Rectangle(x, 0, WIDTH, DEFAULT_HEIGHT);
 	}
-	
 }
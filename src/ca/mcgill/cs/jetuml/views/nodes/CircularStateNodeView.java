@@ -85,7 +85,7 @@ public final class CircularStateNodeView extends AbstractNodeView
 	}   	 
 
 	@Override
-	public Rectangle getBounds()
+	protected Rectangle computeBounds()
 	{
 		return new Rectangle(node().position().getX(), node().position().getY(), DIAMETER, DIAMETER);
 	}
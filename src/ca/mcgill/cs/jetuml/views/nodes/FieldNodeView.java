@@ -84,7 +84,7 @@ public final class FieldNodeView extends AbstractNodeView
 	}
 	
 	@Override
-	public Rectangle getBounds()
+	protected Rectangle computeBounds()
 	{
 		ObjectNode parent = (ObjectNode)((FieldNode)node()).getParent();
 		if( parent != null )
@@ -23,7 +23,10 @@ package ca.mcgill.cs.jetuml.views.nodes;
 import static ca.mcgill.cs.jetuml.geom.Util.max;
 
 import java.util.List;
+import java.util.Optional;
 
+import ca.mcgill.cs.jetuml.diagram.Diagram;
+import ca.mcgill.cs.jetuml.diagram.SequenceDiagram;
 import ca.mcgill.cs.jetuml.diagram.nodes.ChildNode;
 import ca.mcgill.cs.jetuml.diagram.nodes.ImplicitParameterNode;
 import ca.mcgill.cs.jetuml.geom.Direction;
@@ -80,6 +83,17 @@ public final class ImplicitParameterNodeView extends AbstractNodeView
 		final Rectangle bounds = getBounds();
 		return bounds.getX() <= pPoint.getX() && pPoint.getX() <= bounds.getX() + bounds.getWidth();
 	}
+	
+	/*
+	 * Consistently with contains, the node can be hit
+	 * at any y-coordinate.
+	 */
+	@Override
+	public Rectangle getHitBounds()
+	{
+		final Rectangle bounds = getBounds();
+		return new Rectangle(bounds.getX(), Integer.MIN_VALUE / 2, bounds.getWidth(), Integer.MAX_VALUE);
+	}
 
 	@Override
 	public Point getConnectionPoint(Direction pDirection)
@@ -118,13 +132,41 @@ public final class ImplicitParameterNodeView extends AbstractNodeView
 		return new Rectangle(node().position().getX(), 0, width, TOP_HEIGHT);
 	}
 
+	/*
+	 * The bounds of a node in a diagram depend on the calls in the 
+	 * diagram, so they are obtained from the layout of the diagram.
+	 * @see ca.mcgill.cs.jetuml.views.nodes.AbstractNodeView#getBounds()
+	 */
 	@Override
 	public Rectangle getBounds()
+	{
+		Optional<Diagram> diagram = node().getDiagram();
+		if( diagram.isPresent() && diagram.get() instanceof SequenceDiagram )
+		{
+			Optional<Rectangle> bounds = ((SequenceDiagram)diagram.get()).layout().getBounds(node());
+			if( bounds.isPresent() )
+			{
+				return bounds.get();
+			}
+		}
+		return super.getBounds();
+	}
+	
+	@Override
+	protected Rectangle computeBounds()
+	{
+		return computeBounds(getMaxXYofChildren());
+	}
+	
+	/*
+	 * Computes the bounds of the node given the bottom right 
+	 * corner of the area occupied by its children.
+	 */
+	Rectangle computeBounds(Point pChildrenMaxXY)
 	{
 		Rectangle topRectangle = getTopRectangle();
-		Point childrenMaxXY = getMaxXYofChildren();
-		int width = max(topRectangle.getWidth(), DEFAULT_WIDTH, childrenMaxXY.getX() - node().position().getX());
-		int height = max(DEFAULT_HEIGHT, childrenMaxXY.getY() + TAIL_HEIGHT);
+		int width = max(topRectangle.getWidth(), DEFAULT_WIDTH, pChildrenMaxXY.getX() - node().position().getX());
+		int height = max(DEFAULT_HEIGHT, pChildrenMaxXY.getY() + TAIL_HEIGHT);
 		return new Rectangle(node().position().getX(), 0, width, height);
 	}
 }
@@ -153,7 +153,7 @@ public class InterfaceNodeView extends AbstractNodeView
 	}
 
 	@Override
-	public Rectangle getBounds()
+	protected Rectangle computeBounds()
 	{
 		Rectangle top = computeTop();
 		Rectangle bottom = computeBottom();
@@ -38,4 +38,10 @@ public interface NodeView extends DiagramElementView
      * @return the recommended connection point
 	 */
 	Point getConnectionPoint(Direction pDirection);
+	
+	/**
+	 * Indicates that the bounds of the node may have changed, 
+	 * so any bounds previously computed for it must be discarded.
+	 */
+	void invalidateBounds();
 }
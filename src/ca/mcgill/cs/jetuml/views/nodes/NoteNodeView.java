@@ -94,7 +94,7 @@ public final class NoteNodeView extends AbstractNodeView
 	}
 	
 	@Override
-	public Rectangle getBounds()
+	protected Rectangle computeBounds()
 	{
 		Rectangle textBounds = NOTE_VIEWER.getBounds(name()); 
 		return new Rectangle(node().position().getX(), node().position().getY(), 
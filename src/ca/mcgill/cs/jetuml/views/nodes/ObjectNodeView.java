@@ -97,7 +97,7 @@ public final class ObjectNodeView extends AbstractNodeView
 	}
 	
 	@Override
-	public Rectangle getBounds()
+	protected Rectangle computeBounds()
 	{
 		Rectangle bounds = getTopRectangle();
 		int leftWidth = 0;
@@ -170,7 +170,7 @@ public final class PackageNodeView extends AbstractNodeView
 	}
 	
 	@Override
-	public Rectangle getBounds()
+	protected Rectangle computeBounds()
 	{
 		return getTopBounds().add(getBottomBounds());
 	}
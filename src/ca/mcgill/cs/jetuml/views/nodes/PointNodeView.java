@@ -42,7 +42,7 @@ public final class PointNodeView extends AbstractNodeView
 	}
 	
 	@Override
-	public Rectangle getBounds()
+	protected Rectangle computeBounds()
 	{
 		return new Rectangle(node().position().getX(), node().position().getY(), 0, 0);
 	}
@@ -52,6 +52,13 @@ public final class PointNodeView extends AbstractNodeView
 	{
 		return node().position().distance(pPoint) < SELECTION_DISTANCE;
 	}
+	
+	@Override
+	public Rectangle getHitBounds()
+	{
+		return new Rectangle(node().position().getX() - SELECTION_DISTANCE, node().position().getY() - SELECTION_DISTANCE, 
+				2 * SELECTION_DISTANCE, 2 * SELECTION_DISTANCE);
+	}
 
 	@Override
 	public Point getConnectionPoint(Direction pDirection)
@@ -0,0 +1,268 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2018 by the contributors of the JetUML project.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package ca.mcgill.cs.jetuml.views.nodes;
+
+import static ca.mcgill.cs.jetuml.views.nodes.CallNodeView.DEFAULT_HEIGHT;
+import static ca.mcgill.cs.jetuml.views.nodes.CallNodeView.WIDTH;
+import static ca.mcgill.cs.jetuml.views.nodes.CallNodeView.Y_GAP_BIG;
+import static ca.mcgill.cs.jetuml.views.nodes.CallNodeView.Y_GAP_SMALL;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import ca.mcgill.cs.jetuml.diagram.Edge;
+import ca.mcgill.cs.jetuml.diagram.Node;
+import ca.mcgill.cs.jetuml.diagram.SequenceDiagram;
+import ca.mcgill.cs.jetuml.diagram.edges.CallEdge;
+import ca.mcgill.cs.jetuml.diagram.nodes.CallNode;
+import ca.mcgill.cs.jetuml.diagram.nodes.ChildNode;
+import ca.mcgill.cs.jetuml.diagram.nodes.ImplicitParameterNode;
+import ca.mcgill.cs.jetuml.geom.Point;
+import ca.mcgill.cs.jetuml.geom.Rectangle;
+
+/**
+ * The position and size of all the call nodes and implicit parameter 
+ * nodes of a sequence diagram. The geometry of a call node depends on 
+ * its caller, on the calls that precede it, and on all its callees, so
+ * it is computed for the entire diagram in a single pass over the
+ * control flow, and then simply looked up by the views.
+ * 
+ * A layout is a snapshot: it must be discarded as soon as the 
+ * diagram changes.
+ * 
+ * Call nodes whose view is not connected to the diagram, and nodes 
+ * that are not in the diagram, are not part of the layout.
+ */
+public final class SequenceDiagramLayout
+{
+	private final SequenceDiagram aDiagram;
+	private final Map<Node, List<CallNode>> aCallees = new IdentityHashMap<>();
+	private final Map<Node, CallNode> aCallers = new IdentityHashMap<>();
+	private final Map<Node, Integer> aCalleeIndices = new IdentityHashMap<>(); // In the callees of the caller
+	private final Map<CallNode, Integer> aY = new IdentityHashMap<>();
+	private final Map<CallNode, Integer> aMaxY = new IdentityHashMap<>();
+	private final Map<Node, Rectangle> aBounds = new IdentityHashMap<>();
+	private final Map<CallNode, Integer> aNestingDepths = new IdentityHashMap<>();
+	
+	/**
+	 * Computes the layout of pDiagram.
+	 * 
+	 * @param pDiagram The diagram to lay out.
+	 * @pre pDiagram != null
+	 */
+	public SequenceDiagramLayout(SequenceDiagram pDiagram)
+	{
+		assert pDiagram != null;
+		aDiagram = pDiagram;
+		for( Edge edge : aDiagram.edges() )
+		{
+			if( edge.getClass() == CallEdge.class )
+			{
+				List<CallNode> callees = aCallees.computeIfAbsent(edge.getStart(), key -> new ArrayList<>());
+				callees.add((CallNode) edge.getEnd());
+				if( !aCallers.containsKey(edge.getEnd()) )
+				{
+					aCallers.put(edge.getEnd(), (CallNode) edge.getStart());
+					aCalleeIndices.put(edge.getEnd(), callees.size() - 1);
+				}
+			}
+		}
+		List<CallNode> callNodes = new ArrayList<>();
+		for( Node node : aDiagram.rootNodes() )
+		{
+			if( node.getClass() == ImplicitParameterNode.class )
+			{
+				for( ChildNode child : ((ImplicitParameterNode)node).getChildren() )
+				{
+					if( ((CallNodeView)child.view()).isConnectedTo(aDiagram) )
+					{
+						callNodes.add((CallNode)child);
+					}
+				}
+			}
+		}
+		for( CallNode node : callNodes )
+		{
+			if( !aCallers.containsKey(node) )
+			{
+				layOutCalls(node, new IdentityHashMap<>());
+			}
+		}
+		for( CallNode node : callNodes )
+		{
+			int y = getY(node);
+			int x = ((ImplicitParameterNode)node.getParent()).getTopRectangle().getCenter().getX() - 
+					WIDTH / 2 + getNestingDepth(node) * WIDTH / 2;
+			aBounds.put(node, new Rectangle(x, y, WIDTH, getMaxY(node) - y));
+		}
+		for( Node node : aDiagram.rootNodes() )
+		{
+			if( node.getClass() == ImplicitParameterNode.class )
+			{
+				aBounds.put(node, layOutImplicitParameter((ImplicitParameterNode) node));
+			}
+		}
+	}
+	
+	/**
+	 * @param pNode The node to look up.
+	 * @return The bounds of pNode, if it is part of the layout.
+	 * @pre pNode != null
+	 */
+	public Optional<Rectangle> getBounds(Node pNode)
+	{
+		assert pNode != null;
+		return Optional.ofNullable(aBounds.get(pNode));
+	}
+	
+	/**
+	 * @param pNode The node to look up.
+	 * @return The number of call nodes upstream in the control-flow
+	 * that are on the same implicit parameter node as pNode.
+	 * @pre pNode != null
+	 */
+	public int getNestingDepth(CallNode pNode)
+	{
+		assert pNode != null;
+		Integer depth = aNestingDepths.get(pNode);
+		if( depth == null )
+		{
+			depth = 0;
+			CallNode caller = aCallers.get(pNode);
+			while( caller != null )
+			{
+				if( caller.getParent() == pNode.getParent() )
+				{
+					depth++;
+				}
+				caller = aCallers.get(caller);
+			}
+			aNestingDepths.put(pNode, depth);
+		}
+		return depth;
+	}
+	
+	/*
+	 * Visits the calls made from pCaller in depth-first order, so that the 
+	 * y-coordinate of each node is computed after those of its caller and
+	 * preceding callees, and the maximal y-coordinate of each node after 
+	 * those of its callees. This keeps the recursion as deep as the nesting 
+	 * of calls rather than as long as the call sequence. pDepths counts the 
+	 * nodes of each implicit parameter on the current call stack.
+	 */
+	private void layOutCalls(CallNode pCaller, Map<Node, Integer> pDepths)
+	{
+		aNestingDepths.put(pCaller, pDepths.getOrDefault(pCaller.getParent(), 0));
+		getY(pCaller);
+		pDepths.merge(pCaller.getParent(), 1, Integer::sum);
+		for( CallNode callee : callees(pCaller) )
+		{
+			if( aCallers.get(callee) == pCaller && !aY.containsKey(callee) )
+			{
+				layOutCalls(callee, pDepths);
+			}
+		}
+		pDepths.merge(pCaller.getParent(), -1, Integer::sum);
+		getMaxY(pCaller);
+	}
+	
+	private List<CallNode> callees(Node pNode)
+	{
+		return aCallees.getOrDefault(pNode, Collections.emptyList());
+	}
+	
+	/*
+	 * If the node has a caller, the Y coordinate is a gap below the last return Y value
+	 * of the caller or a set distance before the previous call node, whatever is lower.
+	 * If not, it's simply a set distance below the previous call node.
+	 */
+	private int getY(CallNode pNode)
+	{
+		Integer y = aY.get(pNode);
+		if( y == null )
+		{
+			CallNode caller = aCallers.get(pNode);
+			if( caller == null )
+			{
+				y = ((ImplicitParameterNode)pNode.getParent()).getTopRectangle().getMaxY() + Y_GAP_SMALL;
+			}
+			else
+			{
+				int index = aCalleeIndices.get(pNode);
+				if( index == 0 )
+				{
+					boolean nested = caller.getParent() == pNode.getParent();
+					y = getY(caller) + (nested ? Y_GAP_BIG : Y_GAP_SMALL);
+				}
+				else
+				{
+					y = getMaxY(callees(caller).get(index - 1)) + Y_GAP_SMALL;
+				}
+			}
+			aY.put(pNode, y);
+		}
+		return y;
+	}
+	
+	/*
+	 * If there's no callee, returns a fixed offset from the y position.
+	 * Otherwise, return with a gap from last callee.
+	 */
+	private int getMaxY(CallNode pNode)
+	{
+		Integer maxY = aMaxY.get(pNode);
+		if( maxY == null )
+		{
+			List<CallNode> callees = callees(pNode);
+			if( callees.isEmpty() )
+			{
+				maxY = getY(pNode) + DEFAULT_HEIGHT;
+			}
+			else
+			{
+				maxY = getMaxY(callees.get(callees.size() - 1)) + Y_GAP_SMALL;
+			}
+			aMaxY.put(pNode, maxY);
+		}
+		return maxY;
+	}
+	
+	private Rectangle layOutImplicitParameter(ImplicitParameterNode pNode)
+	{
+		int maxX = 0;
+		int maxY = 0;
+		for( ChildNode child : pNode.getChildren() )
+		{
+			Rectangle bounds = aBounds.get(child);
+			if( bounds == null )
+			{
+				bounds = child.view().getBounds();
+			}
+			maxX = Math.max(maxX, bounds.getMaxX());
+			maxY = Math.max(maxY, bounds.getMaxY());
+		}
+		return ((ImplicitParameterNodeView)pNode.view()).computeBounds(new Point(maxX, maxY));
+	}
+}
@@ -56,7 +56,7 @@ public final class StateNodeView extends AbstractNodeView
 	}
 	
 	@Override
-	public Rectangle getBounds()
+	protected Rectangle computeBounds()
 	{
 		Rectangle bounds = NAME_VIEWER.getBounds(name());
 		return new Rectangle(node().position().getX(), node().position().getY(), 
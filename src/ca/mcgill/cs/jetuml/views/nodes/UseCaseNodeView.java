@@ -58,7 +58,7 @@ public final class UseCaseNodeView extends AbstractNodeView
 	}
 	
 	@Override
-	public Rectangle getBounds()
+	protected Rectangle computeBounds()
 	{
 		return new Rectangle(node().position().getX(), node().position().getY(), 
 				Math.max(DEFAULT_WIDTH,  NAME_VIEWER.getBounds(name()).getWidth()), 
@@ -22,10 +22,12 @@ package ca.mcgill.cs.jetuml.diagram;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Before;
@@ -338,4 +340,119 @@ public class TestClassDiagram
 		assertTrue(result.contains(aEdge2));
 		assertTrue(result.contains(aEdge3));
 	}
+	
+	@Test
+	public void testEdgesConnectedToInsertedEdgesInOrder()
+	{
+		aDiagram.addRootNode(aClassNode1);
+		aDiagram.addRootNode(aClassNode2);
+		aDiagram.addRootNode(aClassNode3);
+		aEdge1.connect(aClassNode1, aClassNode2, aDiagram);
+		aEdge2.connect(aClassNode1, aClassNode3, aDiagram);
+		aEdge3.connect(aClassNode2, aClassNode1, aDiagram);
+		aDiagram.addEdge(aEdge1);
+		aDiagram.addEdge(aEdge3);
+		aDiagram.addEdge(1, aEdge2);
+		List<Edge> result = aDiagram.edgesConnectedTo(aClassNode1);
+		assertEquals(3, result.size());
+		assertSame(aEdge1, result.get(0));
+		assertSame(aEdge2, result.get(1));
+		assertSame(aEdge3, result.get(2));
+		aDiagram.removeEdge(aEdge1);
+		aDiagram.addEdge(0, aEdge1);
+		result = aDiagram.edgesConnectedTo(aClassNode1);
+		assertSame(aEdge1, result.get(0));
+		assertSame(aEdge2, result.get(1));
+		assertSame(aEdge3, result.get(2));
+	}
+	
+	@Test
+	public void testEdgesConnectedToAfterRemoval()
+	{
+		aDiagram.addRootNode(aClassNode1);
+		aDiagram.addRootNode(aClassNode2);
+		aEdge1.connect(aClassNode1, aClassNode1, aDiagram);
+		aEdge2.connect(aClassNode1, aClassNode2, aDiagram);
+		aDiagram.addEdge(aEdge1);
+		aDiagram.addEdge(aEdge2);
+		assertEquals(2, aDiagram.edgesConnectedTo(aClassNode1).size());
+		aDiagram.removeEdge(aEdge1);
+		assertEquals(1, aDiagram.edgesConnectedTo(aClassNode1).size());
+		aDiagram.removeEdge(aEdge2);
+		assertTrue(aDiagram.edgesConnectedTo(aClassNode1).isEmpty());
+		assertTrue(aDiagram.edgesConnectedTo(aClassNode2).isEmpty());
+	}
+	
+	@Test
+	public void testDuplicate()
+	{
+		aPackageNode1.addChild(aClassNode1);
+		aDiagram.addRootNode(aPackageNode1);
+		aDiagram.addRootNode(aClassNode2);
+		aClassNode2.setName("Original");
+		aEdge1.connect(aClassNode1, aClassNode2, aDiagram);
+		aDiagram.addEdge(aEdge1);
+		
+		Diagram copy = aDiagram.duplicate();
+		assertSame(ClassDiagram.class, copy.getClass());
+		assertEquals(2, copy.numberOfRootNodes());
+		assertEquals(1, copy.numberOfEdges());
+		PackageNode package1 = (PackageNode) copy.rootNodes().iterator().next();
+		Edge edge = copy.edges().iterator().next();
+		assertFalse(package1 == aPackageNode1);
+		assertFalse(edge == aEdge1);
+		assertSame(package1.getChildren().get(0), edge.getStart());
+		assertSame(package1, ((ClassNode) edge.getStart()).getParent());
+		assertSame(copy, edge.getDiagram());
+		assertTrue(copy.contains(edge.getEnd()));
+		
+		aClassNode2.setName("Changed");
+		aClassNode2.translate(10, 10);
+		assertEquals("Original", ((ClassNode) edge.getEnd()).getName());
+		assertEquals(0, edge.getEnd().position().getX());
+	}
+	
+	@Test
+	public void testAddAndRemoveElements()
+	{
+		aDiagram.addRootNode(aClassNode1);
+		aEdge1.connect(aClassNode1, aClassNode1, aDiagram);
+		aDiagram.addEdge(aEdge1);
+		aPackageNode1.addChild(aClassNode2);
+		aEdge2.connect(aClassNode1, aClassNode2, aDiagram);
+		aEdge3.connect(aClassNode2, aClassNode3, aDiagram);
+		
+		aDiagram.addElements(Arrays.asList(aPackageNode1, aClassNode3), Arrays.asList(aEdge2, aEdge3));
+		assertEquals(Arrays.asList(aClassNode1, aPackageNode1, aClassNode3), aDiagram.rootNodes());
+		assertEquals(Arrays.asList(aEdge1, aEdge2, aEdge3), aDiagram.edges());
+		assertTrue(aDiagram.contains(aClassNode2));
+		assertSame(aDiagram, aClassNode3.getDiagram().get());
+		assertEquals(Arrays.asList(aEdge1, aEdge2), aDiagram.edgesConnectedTo(aClassNode1));
+		assertEquals(Arrays.asList(aEdge2, aEdge3), aDiagram.edgesConnectedTo(aClassNode2));
+		assertEquals(2, aDiagram.indexOf(aEdge3));
+		
+		aDiagram.removeElements(Arrays.asList(aPackageNode1, aClassNode3), Arrays.asList(aEdge2, aEdge3));
+		assertEquals(Arrays.asList(aClassNode1), aDiagram.rootNodes());
+		assertEquals(Arrays.asList(aEdge1), aDiagram.edges());
+		assertFalse(aDiagram.contains(aClassNode2));
+		assertFalse(aClassNode3.getDiagram().isPresent());
+		assertEquals(Arrays.asList(aEdge1), aDiagram.edgesConnectedTo(aClassNode1));
+		assertNull(aEdge2.getDiagram());
+		assertNull(aEdge3.getDiagram());
+	}
+	
+	@Test
+	public void testRemovedEdgeIsDetached()
+	{
+		aDiagram.addRootNode(aClassNode1);
+		aDiagram.addRootNode(aClassNode2);
+		aEdge1.connect(aClassNode1, aClassNode2, aDiagram);
+		aDiagram.addEdge(aEdge1);
+		assertNull(aEdge1.clone().getDiagram());
+		
+		aDiagram.removeEdge(aEdge1);
+		assertNull(aEdge1.getDiagram());
+		aDiagram.addEdge(0, aEdge1);
+		assertSame(aDiagram, aEdge1.getDiagram());
+	}
 }
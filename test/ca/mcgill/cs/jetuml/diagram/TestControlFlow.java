@@ -218,4 +218,34 @@ public class TestControlFlow
 		assertSame(aCall3, aFlow.getPreviousCallee(aCall2));
 		assertSame(aCall2, aFlow.getPreviousCallee(aCall6));
 	}
+	
+	@Test
+	public void testGetCallsAfterInsertion()
+	{
+		CallNode callee = new CallNode();
+		aParameter2.addChild(callee);
+		CallEdge edge = new CallEdge();
+		edge.connect(aCall1, callee, aDiagram);
+		aDiagram.addEdge(aDiagram.indexOf(aCallEdge3), edge);
+		List<CallEdge> calls = aFlow.getCalls(aCall1);
+		assertEquals(4, calls.size());
+		assertSame(aCallEdge1, calls.get(0));
+		assertSame(aCallEdge2, calls.get(1));
+		assertSame(edge, calls.get(2));
+		assertSame(aCallEdge3, calls.get(3));
+		assertSame(aCall1, aFlow.getCaller(callee).get());
+		assertSame(callee, aFlow.getPreviousCallee(aCall6));
+	}
+	
+	@Test
+	public void testGetCallsAfterRemoval()
+	{
+		aDiagram.removeEdge(aCallEdge1);
+		assertFalse(aFlow.getCaller(aCall3).isPresent());
+		assertTrue(aFlow.isFirstCallee(aCall2));
+		assertEquals(2, aFlow.getCalls(aCall1).size());
+		aDiagram.removeEdge(aCallEdge5);
+		assertTrue(aFlow.hasNoCallees(aCall4));
+		assertFalse(aFlow.getCaller(aCall5).isPresent());
+	}
 }
@@ -45,6 +45,7 @@ import ca.mcgill.cs.jetuml.diagram.nodes.NoteNode;
 import ca.mcgill.cs.jetuml.diagram.nodes.PackageNode;
 import ca.mcgill.cs.jetuml.geom.Dimension;
 import ca.mcgill.cs.jetuml.geom.Point;
+import ca.mcgill.cs.jetuml.gui.SelectionModel;
 
 public class TestClassDiagramBuilder
 {
@@ -68,6 +69,61 @@ public class TestClassDiagramBuilder
 		aBuilder = new ClassDiagramBuilder(aDiagram);
 	}
 	
+	/*
+	 * The nodes and edges created by buildRing.
+	 */
+	private static final class Ring
+	{
+		private final ClassNode[] aNodes;
+		private final Edge[] aEdges;
+		
+		Ring(ClassNode[] pNodes, Edge[] pEdges)
+		{
+			aNodes = pNodes;
+			aEdges = pEdges;
+		}
+	}
+	
+	/*
+	 * Adds pSize class nodes laid out on a grid to the diagram, 
+	 * and connects them in a ring by pSize dependency edges.
+	 */
+	private Ring buildRing(int pSize)
+	{
+		return buildRing(pSize, true);
+	}
+	
+	/*
+	 * Same as above, but if pAdd is false, the elements are not added to 
+	 * the diagram, and the edges are connected in another diagram, as when
+	 * they are copied from it.
+	 */
+	private Ring buildRing(int pSize, boolean pAdd)
+	{
+		ClassDiagram diagram = pAdd ? aDiagram : new ClassDiagram();
+		ClassNode[] nodes = new ClassNode[pSize];
+		for( int i = 0; i < pSize; i++ )
+		{
+			nodes[i] = new ClassNode();
+			nodes[i].moveTo(new Point((i % 50) * 100, (i / 50) * 100));
+			if( pAdd )
+			{
+				aDiagram.addRootNode(nodes[i]);
+			}
+		}
+		Edge[] edges = new Edge[pSize];
+		for( int i = 0; i < pSize; i++ )
+		{
+			edges[i] = new DependencyEdge();
+			edges[i].connect(nodes[i], nodes[(i + 1) % pSize], diagram);
+			if( pAdd )
+			{
+				aDiagram.addEdge(edges[i]);
+			}
+		}
+		return new Ring(nodes, edges);
+	}
+	
 	private int numberOfRootNodes()
 	{
 		int sum = 0;
@@ -400,4 +456,219 @@ public class TestClassDiagramBuilder
 		operation.undo();
 		assertEquals(2, numberOfRootNodes());
 	}
+	
+	/*
+	 * Selects and deletes all the elements of a diagram with 10000 nodes and
+	 * 10000 edges, then undoes the deletion. Must complete well within the timeout. 
+	 */
+	@Test(timeout = 10000)
+	public void testSelectAllAndRemoveLargeDiagram()
+	{
+		final int size = 10000;
+		Ring ring = buildRing(size);
+		ClassNode[] nodes = ring.aNodes;
+		Edge[] edges = ring.aEdges;
+		SelectionModel selection = new SelectionModel(() -> {});
+		selection.selectAll(aDiagram);
+		DiagramOperationProcessor processor = new DiagramOperationProcessor();
+		processor.executeNewOperation(aBuilder.createRemoveElementsOperation(selection));
+		assertEquals(0, numberOfRootNodes());
+		assertEquals(0, numberOfEdges());
+		
+		processor.undoLastExecutedOperation();
+		assertEquals(size, numberOfRootNodes());
+		assertEquals(size, numberOfEdges());
+		for( int i = 0; i < size; i++ )
+		{
+			assertTrue(aDiagram.contains(nodes[i]));
+			assertEquals(i, aDiagram.indexOf(edges[i]));
+			assertSame(edges[(i + size - 1) % size], aDiagram.edgesConnectedTo(nodes[i]).get(i == 0 ? 1 : 0));
+		}
+	}
+	
+	/*
+	 * Same as above, but the deletion is recorded as a checkpoint,
+	 * and a package keeps one of its two children.
+	 */
+	@Test(timeout = 10000)
+	public void testRemoveLargeDiagramWithCheckpoint()
+	{
+		final int size = 5000;
+		Ring ring = buildRing(size);
+		ClassNode[] nodes = ring.aNodes;
+		Edge[] edges = ring.aEdges;
+		PackageNode packageNode = new PackageNode();
+		ClassNode child1 = new ClassNode();
+		ClassNode child2 = new ClassNode();
+		packageNode.addChild(child1);
+		packageNode.addChild(child2);
+		aDiagram.addRootNode(packageNode);
+		
+		SelectionModel selection = new SelectionModel(() -> {});
+		selection.selectAll(aDiagram);
+		selection.removeFromSelection(packageNode);
+		selection.addToSelection(child1);
+		DiagramOperationProcessor processor = new DiagramOperationProcessor();
+		processor.enableCheckpoints(aDiagram, DiagramOperationProcessor.DEFAULT_CHECKPOINT_THRESHOLD);
+		processor.executeNewOperation(aBuilder.createRemoveElementsOperation(selection));
+		assertEquals(1, numberOfRootNodes());
+		assertEquals(0, numberOfEdges());
+		assertEquals(Arrays.asList(child2), packageNode.getChildren());
+		assertFalse(nodes[0].getDiagram().isPresent());
+		
+		processor.undoLastExecutedOperation();
+		assertEquals(size + 1, numberOfRootNodes());
+		assertEquals(size, numberOfEdges());
+		assertEquals(Arrays.asList(child1, child2), packageNode.getChildren());
+		assertSame(packageNode, child1.getParent());
+		for( int i = 0; i < size; i++ )
+		{
+			assertSame(nodes[i], getRootNode(i));
+			assertSame(aDiagram, nodes[i].getDiagram().get());
+			assertEquals(i, aDiagram.indexOf(edges[i]));
+			assertSame(edges[(i + size - 1) % size], aDiagram.edgesConnectedTo(nodes[i]).get(i == 0 ? 1 : 0));
+		}
+		assertTrue(aDiagram.rootNodesAt(new Point(510, 510)).contains(nodes[255]));
+		
+		processor.redoLastUndoneOperation();
+		assertEquals(1, numberOfRootNodes());
+		assertEquals(0, numberOfEdges());
+		assertEquals(Arrays.asList(child2), packageNode.getChildren());
+		assertTrue(aDiagram.rootNodesAt(new Point(510, 510)).isEmpty());
+	}
+	
+	/*
+	 * Deletes one node in ten from a diagram with 10000 nodes connected 
+	 * in a ring by 10000 edges, then undoes the deletion. Must complete 
+	 * well within the timeout.
+	 */
+	@Test(timeout = 10000)
+	public void testRemoveNodesFromLargeDiagram()
+	{
+		final int size = 10000;
+		Ring ring = buildRing(size);
+		ClassNode[] nodes = ring.aNodes;
+		Edge[] edges = ring.aEdges;
+		ArrayList<DiagramElement> selection = new ArrayList<>();
+		for( int i = 0; i < size; i += 10 )
+		{
+			selection.add(nodes[i]);
+			selection.add(edges[i]); // Also a co-removal of nodes[i]
+		}
+		DiagramOperation operation = aBuilder.createRemoveElementsOperation(selection);
+		operation.execute();
+		assertEquals(size - size / 10, numberOfRootNodes());
+		assertEquals(size - 2 * size / 10, numberOfEdges());
+		assertFalse(aDiagram.contains(edges[size - 1]));
+		assertTrue(aDiagram.contains(edges[1]));
+		
+		operation.undo();
+		assertEquals(size, numberOfRootNodes());
+		for( int i = 0; i < size; i++ )
+		{
+			assertEquals(i, aDiagram.indexOf(edges[i]));
+		}
+	}
+	
+	@Test
+	public void testRemovePackageAndChild()
+	{
+		PackageNode packageNode = new PackageNode();
+		ClassNode child = new ClassNode();
+		ClassNode node = new ClassNode();
+		packageNode.addChild(child);
+		aDiagram.addRootNode(packageNode);
+		aDiagram.addRootNode(node);
+		DependencyEdge edge = new DependencyEdge();
+		edge.connect(node, child, aDiagram);
+		aDiagram.addEdge(edge);
+		
+		DiagramOperation operation = aBuilder.createRemoveElementsOperation(Arrays.asList(child, packageNode));
+		operation.execute();
+		assertEquals(1, numberOfRootNodes());
+		assertEquals(0, numberOfEdges());
+		operation.undo();
+		assertEquals(2, numberOfRootNodes());
+		assertEquals(1, numberOfEdges());
+		assertSame(packageNode, child.getParent());
+		assertEquals(Arrays.asList(child), packageNode.getChildren());
+	}
+	
+	/*
+	 * Adds 10000 nodes connected in a ring by 10000 edges in a 
+	 * single operation, as when pasting, then undoes and redoes it.
+	 * Must complete well within the timeout.
+	 */
+	@Test(timeout = 10000)
+	public void testAddElementsToLargeDiagram()
+	{
+		final int size = 10000;
+		ClassNode existing = new ClassNode();
+		aDiagram.addRootNode(existing);
+		Ring ring = buildRing(size, false);
+		ClassNode[] nodes = ring.aNodes;
+		Edge[] edges = ring.aEdges;
+		ArrayList<DiagramElement> elements = new ArrayList<>(Arrays.asList(nodes));
+		elements.addAll(Arrays.asList(edges));
+		DiagramOperation operation = aBuilder.createAddElementsOperation(elements);
+		operation.execute();
+		assertEquals(size + 1, numberOfRootNodes());
+		assertEquals(size, numberOfEdges());
+		assertSame(existing, getRootNode(0));
+		for( int i = 0; i < size; i++ )
+		{
+			assertSame(nodes[i], getRootNode(i + 1));
+			assertEquals(i, aDiagram.indexOf(edges[i]));
+			assertSame(aDiagram, edges[i].getDiagram());
+			assertEquals(2, aDiagram.edgesConnectedTo(nodes[i]).size());
+		}
+		
+		operation.undo();
+		assertEquals(1, numberOfRootNodes());
+		assertEquals(0, numberOfEdges());
+		operation.execute();
+		assertEquals(size + 1, numberOfRootNodes());
+		assertEquals(size, numberOfEdges());
+	}
+	
+	@Test
+	public void testSmallOperationWithoutCheckpoint()
+	{
+		ClassNode node = new ClassNode();
+		aDiagram.addRootNode(node);
+		DiagramOperationProcessor processor = new DiagramOperationProcessor();
+		processor.enableCheckpoints(aDiagram, DiagramOperationProcessor.DEFAULT_CHECKPOINT_THRESHOLD);
+		DiagramOperation operation = aBuilder.createRemoveElementsOperation(Arrays.asList(node));
+		processor.executeNewOperation(operation);
+		assertEquals(operation.getEstimatedSize(), processor.getEstimatedSize());
+	}
+	
+	/*
+	 * Undoes a paste recorded as a checkpoint, then adds a node:
+	 * the paste can no longer be redone over the new node.
+	 */
+	@Test
+	public void testNewOperationAfterUndoingCheckpoint()
+	{
+		ArrayList<DiagramElement> elements = new ArrayList<>();
+		for( int i = 0; i < 300; i++ )
+		{
+			elements.add(new ClassNode());
+		}
+		DiagramOperationProcessor processor = new DiagramOperationProcessor();
+		processor.enableCheckpoints(aDiagram, DiagramOperationProcessor.DEFAULT_CHECKPOINT_THRESHOLD);
+		processor.executeNewOperation(aBuilder.createAddElementsOperation(elements));
+		assertEquals(300, numberOfRootNodes());
+		processor.undoLastExecutedOperation();
+		assertEquals(0, numberOfRootNodes());
+		
+		ClassNode node = new ClassNode();
+		processor.executeNewOperation(aBuilder.createAddNodeOperation(node, new Point(10, 10)));
+		assertFalse(processor.canRedo());
+		assertEquals(1, numberOfRootNodes());
+		assertSame(node, getRootNode(0));
+		processor.undoLastExecutedOperation();
+		assertEquals(0, numberOfRootNodes());
+		assertFalse(processor.canUndo());
+	}
 }
@@ -134,4 +134,15 @@ public class TestCompoundOperation
 		aOperation.add(new SimpleOperation(()-> aBuilder.append("A"), ()->aBuilder.append("1")));
 		assertFalse(aOperation.isEmpty());
 	}
+	
+	@Test
+	public void testEstimatedSize()
+	{
+		assertEquals(SimpleOperation.OPERATION_SIZE, aOperation.getEstimatedSize());
+		aOperation.add(new SimpleOperation(()-> aBuilder.append("A"), ()->aBuilder.append("1")));
+		CompoundOperation sub = new CompoundOperation();
+		sub.add(new SimpleOperation(()-> aBuilder.append("B"), ()->aBuilder.append("2")));
+		aOperation.add(sub);
+		assertEquals(4 * SimpleOperation.OPERATION_SIZE, aOperation.getEstimatedSize());
+	}
 }
@@ -26,6 +26,9 @@ import static org.junit.Assert.*;
 import org.junit.Before;
 import org.junit.Test;
 
+import ca.mcgill.cs.jetuml.diagram.Node;
+import ca.mcgill.cs.jetuml.diagram.nodes.ClassNode;
+
 public class TestDiagramOperationProcessor
 {
 	private StringBuilder aBuilder;
@@ -48,6 +51,21 @@ public class TestDiagramOperationProcessor
 				()-> aBuilder.deleteCharAt(aBuilder.length()-1));
 	}
 	
+	/*
+	 * Moves pNodes by (pX, pY) and returns the corresponding
+	 * compound operation, as after dragging a selection.
+	 */
+	private CompoundOperation move(int pX, int pY, Node... pNodes)
+	{
+		CompoundOperation result = new CompoundOperation();
+		for( Node node : pNodes )
+		{
+			node.translate(pX, pY);
+			result.add(new MoveNodeOperation(node, pX, pY));
+		}
+		return result;
+	}
+	
 	@Test
 	public void testEmpty()
 	{
@@ -134,4 +152,163 @@ public class TestDiagramOperationProcessor
 		assertFalse(aProcessor.canRedo());
 		assertEquals("ABC", aBuilder.toString());
 	}
+	
+	@Test
+	public void testEstimatedSize()
+	{
+		assertEquals(0, aProcessor.getEstimatedSize());
+		aProcessor.executeNewOperation(createOperation('A'));
+		aProcessor.executeNewOperation(createOperation('B'));
+		assertEquals(2, aProcessor.getNumberOfOperations());
+		assertEquals(2 * SimpleOperation.OPERATION_SIZE, aProcessor.getEstimatedSize());
+		aProcessor.undoLastExecutedOperation();
+		assertEquals(2, aProcessor.getNumberOfOperations());
+		assertEquals(2 * SimpleOperation.OPERATION_SIZE, aProcessor.getEstimatedSize());
+	}
+	
+	@Test
+	public void testEvictByCount()
+	{
+		aProcessor = new DiagramOperationProcessor(2, DiagramOperationProcessor.DEFAULT_MAXIMUM_SIZE);
+		aProcessor.executeNewOperation(createOperation('A'));
+		aProcessor.executeNewOperation(createOperation('B'));
+		aProcessor.executeNewOperation(createOperation('C'));
+		assertEquals(2, aProcessor.getNumberOfOperations());
+		assertEquals(2 * SimpleOperation.OPERATION_SIZE, aProcessor.getEstimatedSize());
+		aProcessor.undoLastExecutedOperation();
+		aProcessor.undoLastExecutedOperation();
+		assertFalse(aProcessor.canUndo());
+		assertEquals("A", aBuilder.toString());
+		
+		aProcessor.executeNewOperation(createOperation('D'));
+		aProcessor.executeNewOperation(createOperation('E'));
+		aProcessor.executeNewOperation(createOperation('F'));
+		assertEquals(2, aProcessor.getNumberOfOperations());
+		assertEquals("ADEF", aBuilder.toString());
+		aProcessor.undoLastExecutedOperation();
+		aProcessor.undoLastExecutedOperation();
+		assertFalse(aProcessor.canUndo());
+		assertEquals("AD", aBuilder.toString());
+	}
+	
+	@Test
+	public void testNewOperationDiscardsUndone()
+	{
+		aProcessor.executeNewOperation(createOperation('A'));
+		aProcessor.executeNewOperation(createOperation('B'));
+		aProcessor.undoLastExecutedOperation();
+		aProcessor.executeNewOperation(createOperation('C'));
+		assertFalse(aProcessor.canRedo());
+		assertEquals(2, aProcessor.getNumberOfOperations());
+		assertEquals(2 * SimpleOperation.OPERATION_SIZE, aProcessor.getEstimatedSize());
+		assertEquals("AC", aBuilder.toString());
+		
+		aProcessor.undoLastExecutedOperation();
+		aProcessor.storeAlreadyExecutedOperation(createOperation('D'));
+		assertFalse(aProcessor.canRedo());
+		aProcessor.undoLastExecutedOperation();
+		aProcessor.storeMergeableOperation(createOperation('E'));
+		assertFalse(aProcessor.canRedo());
+		assertEquals(2, aProcessor.getNumberOfOperations());
+	}
+	
+	@Test
+	public void testEvictBySize()
+	{
+		aProcessor = new DiagramOperationProcessor(DiagramOperationProcessor.DEFAULT_MAXIMUM_OPERATIONS, 
+				3 * SimpleOperation.OPERATION_SIZE);
+		CompoundOperation large = new CompoundOperation();
+		large.add(createOperation('A'));
+		large.add(createOperation('B'));
+		aProcessor.executeNewOperation(large);
+		assertEquals(3 * SimpleOperation.OPERATION_SIZE, aProcessor.getEstimatedSize());
+		aProcessor.executeNewOperation(createOperation('C'));
+		assertEquals(1, aProcessor.getNumberOfOperations());
+		assertEquals(SimpleOperation.OPERATION_SIZE, aProcessor.getEstimatedSize());
+		aProcessor.undoLastExecutedOperation();
+		assertFalse(aProcessor.canUndo());
+		assertEquals("AB", aBuilder.toString());
+	}
+	
+	@Test
+	public void testKeepsOversizedOperation()
+	{
+		aProcessor = new DiagramOperationProcessor(1, 1);
+		aProcessor.executeNewOperation(createOperation('A'));
+		aProcessor.executeNewOperation(createOperation('B'));
+		assertEquals(1, aProcessor.getNumberOfOperations());
+		aProcessor.undoLastExecutedOperation();
+		assertEquals("A", aBuilder.toString());
+		assertFalse(aProcessor.canUndo());
+	}
+	
+	@Test
+	public void testMergeMoves()
+	{
+		Node node1 = new ClassNode();
+		Node node2 = new ClassNode();
+		aProcessor.setMergeWindow(Long.MAX_VALUE);
+		aProcessor.storeMergeableOperation(move(10, 0, node1, node2));
+		aProcessor.storeMergeableOperation(move(5, 20, node1, node2));
+		aProcessor.storeMergeableOperation(move(0, 30, node1, node2));
+		assertEquals(1, aProcessor.getNumberOfOperations());
+		assertEquals(3 * SimpleOperation.OPERATION_SIZE, aProcessor.getEstimatedSize());
+		assertEquals(15, node2.position().getX());
+		assertEquals(50, node2.position().getY());
+		
+		aProcessor.undoLastExecutedOperation();
+		assertFalse(aProcessor.canUndo());
+		assertEquals(0, node1.position().getX());
+		assertEquals(0, node1.position().getY());
+		assertEquals(0, node2.position().getX());
+		assertEquals(0, node2.position().getY());
+		aProcessor.redoLastUndoneOperation();
+		assertEquals(15, node1.position().getX());
+		assertEquals(50, node1.position().getY());
+		
+		// No merging after an undo or redo
+		aProcessor.storeMergeableOperation(move(10, 0, node1, node2));
+		assertEquals(2, aProcessor.getNumberOfOperations());
+	}
+	
+	@Test
+	public void testMoveDifferentSelection()
+	{
+		Node node1 = new ClassNode();
+		Node node2 = new ClassNode();
+		aProcessor.setMergeWindow(Long.MAX_VALUE);
+		aProcessor.storeMergeableOperation(move(10, 0, node1, node2));
+		aProcessor.storeMergeableOperation(move(10, 0, node1));
+		aProcessor.storeMergeableOperation(move(10, 0, node2));
+		aProcessor.executeNewOperation(new MoveNodeOperation(node2, 10, 0));
+		aProcessor.storeMergeableOperation(move(10, 0, node2));
+		assertEquals(5, aProcessor.getNumberOfOperations());
+	}
+	
+	@Test
+	public void testMergeWindow() throws InterruptedException
+	{
+		Node node = new ClassNode();
+		aProcessor.setMergeWindow(0);
+		aProcessor.storeMergeableOperation(move(10, 0, node));
+		Thread.sleep(5);
+		aProcessor.storeMergeableOperation(move(10, 0, node));
+		assertEquals(2, aProcessor.getNumberOfOperations());
+		aProcessor.undoLastExecutedOperation();
+		assertEquals(10, node.position().getX());
+	}
+	
+	@Test
+	public void testMergeLongMove() throws InterruptedException
+	{
+		Node node = new ClassNode();
+		aProcessor.setMergeWindow(50);
+		aProcessor.storeMergeableOperation(move(10, 0, node));
+		long start = System.nanoTime();
+		Thread.sleep(100); // The second move lasts longer than the merge window
+		aProcessor.storeMergeableOperation(move(10, 0, node), start);
+		assertEquals(1, aProcessor.getNumberOfOperations());
+		aProcessor.undoLastExecutedOperation();
+		assertEquals(0, node.position().getX());
+	}
 }
@@ -24,11 +24,14 @@ package ca.mcgill.cs.jetuml.diagram.builder;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
 
+import java.util.Arrays;
+
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import ca.mcgill.cs.jetuml.JavaFXLoader;
+import ca.mcgill.cs.jetuml.diagram.DiagramSnapshot;
 import ca.mcgill.cs.jetuml.diagram.Node;
 import ca.mcgill.cs.jetuml.diagram.SequenceDiagram;
 import ca.mcgill.cs.jetuml.diagram.edges.CallEdge;
@@ -127,4 +130,30 @@ public class TestSequenceDiagramBuilder
 		assertSame(aDefaultCallNode1, aImplicitParameterNode1.getChildren().get(0));
 		assertSame(aCallNode1, aImplicitParameterNode1.getChildren().get(1));
 	}
+	
+	@Test
+	public void testRestoreReorderedCallNodes()
+	{
+		aImplicitParameterNode1.addChild(aDefaultCallNode1);
+		aImplicitParameterNode1.addChild(aDefaultCallNode2);
+		aImplicitParameterNode1.addChild(aCallNode1);
+		aDiagram.addRootNode(aImplicitParameterNode1);
+		aDiagram.addRootNode(aImplicitParameterNode2);
+		DiagramSnapshot snapshot = aDiagram.snapshot();
+		
+		aImplicitParameterNode1.addChild(aDefaultCallNode1);
+		aImplicitParameterNode1.addChild(aDefaultCallNode2);
+		assertEquals(Arrays.asList(aCallNode1, aDefaultCallNode1, aDefaultCallNode2), aImplicitParameterNode1.getChildren());
+		aDiagram.restore(snapshot);
+		assertEquals(Arrays.asList(aDefaultCallNode1, aDefaultCallNode2, aCallNode1), aImplicitParameterNode1.getChildren());
+		
+		aImplicitParameterNode1.addChild(aDefaultCallNode1);
+		aImplicitParameterNode2.addChild(aCallNode1);
+		assertEquals(Arrays.asList(aDefaultCallNode2, aDefaultCallNode1), aImplicitParameterNode1.getChildren());
+		
+		aDiagram.restore(snapshot);
+		assertEquals(Arrays.asList(aDefaultCallNode1, aDefaultCallNode2, aCallNode1), aImplicitParameterNode1.getChildren());
+		assertEquals(0, aImplicitParameterNode2.getChildren().size());
+		assertSame(aImplicitParameterNode1, aCallNode1.getParent());
+	}
 }
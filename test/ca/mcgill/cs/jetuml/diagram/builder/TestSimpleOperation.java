@@ -25,6 +25,9 @@ import static org.junit.Assert.*;
 
 import org.junit.Test;
 
+import ca.mcgill.cs.jetuml.diagram.nodes.ClassNode;
+import ca.mcgill.cs.jetuml.diagram.nodes.PackageNode;
+
 public class TestSimpleOperation
 {
 	private class Box
@@ -43,4 +46,19 @@ public class TestSimpleOperation
 		operation.undo();
 		assertEquals(2, box.aValue);
 	}
+	
+	@Test
+	public void testEstimatedSize()
+	{
+		assertEquals(SimpleOperation.OPERATION_SIZE, new SimpleOperation(()-> {}, ()-> {}).getEstimatedSize());
+		PackageNode packageNode = new PackageNode();
+		SimpleOperation operation = new SimpleOperation(()-> {}, ()-> {}, packageNode);
+		assertEquals(SimpleOperation.OPERATION_SIZE + SimpleOperation.ELEMENT_SIZE, operation.getEstimatedSize());
+		PackageNode inner = new PackageNode();
+		inner.addChild(new ClassNode());
+		packageNode.addChild(inner);
+		packageNode.addChild(new ClassNode());
+		operation = new SimpleOperation(()-> {}, ()-> {}, packageNode);
+		assertEquals(SimpleOperation.OPERATION_SIZE + 4 * SimpleOperation.ELEMENT_SIZE, operation.getEstimatedSize());
+	}
 }
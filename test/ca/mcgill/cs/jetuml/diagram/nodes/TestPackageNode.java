@@ -24,11 +24,15 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 
+import java.util.Arrays;
+import java.util.HashSet;
+
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import ca.mcgill.cs.jetuml.JavaFXLoader;
+import ca.mcgill.cs.jetuml.diagram.ClassDiagram;
 import ca.mcgill.cs.jetuml.diagram.nodes.ClassNode;
 import ca.mcgill.cs.jetuml.diagram.nodes.PackageNode;
 import ca.mcgill.cs.jetuml.geom.Direction;
@@ -173,4 +177,24 @@ public class TestPackageNode
 		assertEquals("c2", c2Clone.getName().toString());
 		assertFalse(c2Clone == aClass2);
 	}
+	
+	@Test
+	public void testTranslate()
+	{
+		ClassDiagram diagram = new ClassDiagram();
+		aPackage1.addChild(aClass1);
+		aPackage1.addChild(aPackage2);
+		aPackage2.addChild(aClass2);
+		aClass2.translate(10, 10);
+		diagram.addRootNode(aPackage1);
+		diagram.trackChangedElements();
+		
+		aPackage1.translate(5, 20);
+		assertEquals(new Point(5, 20), aPackage1.position());
+		assertEquals(new Point(5, 20), aClass1.position());
+		assertEquals(new Point(5, 20), aPackage2.position());
+		assertEquals(new Point(15, 30), aClass2.position());
+		assertEquals(new HashSet<>(Arrays.asList(aPackage1, aClass1, aPackage2, aClass2)), 
+				new HashSet<>(diagram.consumeChangedElements()));
+	}
 }
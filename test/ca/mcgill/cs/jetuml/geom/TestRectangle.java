@@ -115,4 +115,18 @@ public class TestRectangle
 		rectangle = rectangle.add( new Rectangle(0,0,20,20));
 		assertEquals( new Rectangle(0,0,20,20), rectangle);
 	}
+	
+	@Test
+	public void testIntersects()
+	{
+		Rectangle rectangle = new Rectangle(10,10,20,20);
+		assertTrue(rectangle.intersects(rectangle));
+		assertTrue(rectangle.intersects(new Rectangle(0,0,100,100)));
+		assertTrue(rectangle.intersects(new Rectangle(15,15,5,5)));
+		assertTrue(rectangle.intersects(new Rectangle(25,0,50,15)));
+		assertTrue(rectangle.intersects(new Rectangle(30,30,10,10)));
+		assertFalse(rectangle.intersects(new Rectangle(31,10,10,10)));
+		assertFalse(rectangle.intersects(new Rectangle(10,0,20,9)));
+		assertFalse(new Rectangle(0,0,5,5).intersects(rectangle));
+	}
 }
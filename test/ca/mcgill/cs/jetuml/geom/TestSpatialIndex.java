@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2018 by the contributors of the JetUML project.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package ca.mcgill.cs.jetuml.geom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestSpatialIndex
+{
+	private Map<String, Rectangle> aBounds;
+	private SpatialIndex<String> aIndex;
+	
+	@Before
+	public void setup()
+	{
+		aBounds = new IdentityHashMap<>();
+		aIndex = new SpatialIndex<>(aBounds::get, 1000, 100);
+	}
+	
+	private String add(String pName, Rectangle pBounds)
+	{
+		aBounds.put(pName, pBounds);
+		aIndex.add(pName);
+		return pName;
+	}
+	
+	@Test
+	public void testEmpty()
+	{
+		assertEquals(0, aIndex.size());
+		assertTrue(aIndex.candidatesAt(new Point(50, 50)).isEmpty());
+	}
+	
+	@Test
+	public void testCandidatesAt()
+	{
+		String a = add("A", new Rectangle(10, 10, 50, 50));
+		String b = add("B", new Rectangle(150, 150, 200, 20));
+		assertEquals(2, aIndex.size());
+		List<String> candidates = aIndex.candidatesAt(new Point(20, 20));
+		assertEquals(1, candidates.size());
+		assertTrue(candidates.contains(a));
+		candidates = aIndex.candidatesAt(new Point(320, 160));
+		assertEquals(1, candidates.size());
+		assertTrue(candidates.contains(b));
+		assertTrue(aIndex.candidatesAt(new Point(500, 500)).isEmpty());
+	}
+	
+	@Test
+	public void testObjectsIn()
+	{
+		String a = add("A", new Rectangle(10, 10, 50, 50));
+		String b = add("B", new Rectangle(150, 150, 200, 20));
+		add("C", new Rectangle(80, 80, 10, 10));
+		List<String> objects = aIndex.objectsIn(new Rectangle(0, 0, 70, 70));
+		assertEquals(1, objects.size());
+		assertTrue(objects.contains(a));
+		objects = aIndex.objectsIn(new Rectangle(0, 0, 1000, 170));
+		assertEquals(3, objects.size());
+		objects = aIndex.objectsIn(new Rectangle(300, 100, 500, 500));
+		assertEquals(1, objects.size());
+		assertTrue(objects.contains(b));
+		assertTrue(aIndex.objectsIn(new Rectangle(500, 500, 100, 100)).isEmpty());
+	}
+	
+	@Test
+	public void testAddTwice()
+	{
+		String a = add("A", new Rectangle(10, 10, 50, 50));
+		aIndex.add(a);
+		assertEquals(1, aIndex.size());
+		assertEquals(1, aIndex.candidatesAt(new Point(20, 20)).size());
+	}
+	
+	@Test
+	public void testRemove()
+	{
+		String a = add("A", new Rectangle(10, 10, 50, 50));
+		aIndex.candidatesAt(new Point(20, 20));
+		aIndex.remove(a);
+		assertFalse(aIndex.contains(a));
+		assertEquals(0, aIndex.size());
+		assertTrue(aIndex.candidatesAt(new Point(20, 20)).isEmpty());
+		aIndex.remove(a); // No effect
+	}
+	
+	@Test
+	public void testInvalidate()
+	{
+		String a = add("A", new Rectangle(10, 10, 50, 50));
+		assertEquals(1, aIndex.candidatesAt(new Point(20, 20)).size());
+		aBounds.put(a, new Rectangle(510, 510, 50, 50));
+		// Not yet invalidated: still indexed at its old position
+		assertEquals(1, aIndex.candidatesAt(new Point(20, 20)).size());
+		aIndex.invalidate(a);
+		assertTrue(aIndex.candidatesAt(new Point(20, 20)).isEmpty());
+		assertEquals(1, aIndex.candidatesAt(new Point(520, 520)).size());
+	}
+	
+	@Test
+	public void testInvalidateAll()
+	{
+		String a = add("A", new Rectangle(10, 10, 50, 50));
+		String b = add("B", new Rectangle(110, 10, 50, 50));
+		aIndex.candidatesAt(new Point(20, 20));
+		aBounds.put(a, new Rectangle(110, 110, 10, 10));
+		aBounds.put(b, new Rectangle(110, 110, 10, 10));
+		aIndex.invalidateAll();
+		assertTrue(aIndex.candidatesAt(new Point(20, 20)).isEmpty());
+		assertEquals(2, aIndex.candidatesAt(new Point(115, 115)).size());
+	}
+	
+	@Test
+	public void testOutsideExtent()
+	{
+		String a = add("A", new Rectangle(-50, -50, 20, 20));
+		String b = add("B", new Rectangle(2000, 10, 20, 20));
+		assertTrue(aIndex.candidatesAt(new Point(-40, -40)).contains(a));
+		assertTrue(aIndex.candidatesAt(new Point(5000, 50)).contains(b));
+		assertFalse(aIndex.candidatesAt(new Point(5000, 50)).contains(a));
+	}
+	
+	@Test
+	public void testSpanningCells()
+	{
+		String a = add("A", new Rectangle(50, 50, 300, 300));
+		assertTrue(aIndex.candidatesAt(new Point(60, 60)).contains(a));
+		assertTrue(aIndex.candidatesAt(new Point(200, 300)).contains(a));
+		assertTrue(aIndex.candidatesAt(new Point(340, 340)).contains(a));
+		assertFalse(aIndex.candidatesAt(new Point(450, 340)).contains(a));
+	}
+	
+	@Test
+	public void testClear()
+	{
+		add("A", new Rectangle(10, 10, 50, 50));
+		aIndex.clear();
+		assertEquals(0, aIndex.size());
+		assertTrue(aIndex.candidatesAt(new Point(20, 20)).isEmpty());
+	}
+	
+	@Test
+	public void testConsumeChangedArea()
+	{
+		String a = add("A", new Rectangle(10, 10, 50, 50));
+		String b = add("B", new Rectangle(150, 150, 200, 20));
+		assertEquals(new Rectangle(10, 10, 340, 160), aIndex.consumeChangedArea().get());
+		assertFalse(aIndex.consumeChangedArea().isPresent());
+		
+		// Moved
+		aBounds.put(a, new Rectangle(20, 30, 50, 50));
+		aIndex.invalidate(a);
+		assertEquals(new Rectangle(10, 10, 60, 70), aIndex.consumeChangedArea().get());
+		
+		// Invalidated but not moved
+		aIndex.invalidate(b);
+		aIndex.invalidateAll();
+		assertFalse(aIndex.consumeChangedArea().isPresent());
+		
+		// Changes accumulate across queries
+		aBounds.put(b, new Rectangle(150, 160, 200, 20));
+		aIndex.invalidateAll();
+		aIndex.candidatesAt(new Point(0, 0));
+		aIndex.remove(a);
+		assertEquals(new Rectangle(20, 30, 330, 150), aIndex.consumeChangedArea().get());
+	}
+}
@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2018 by the contributors of the JetUML project.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package ca.mcgill.cs.jetuml.gui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import ca.mcgill.cs.jetuml.JavaFXLoader;
+import ca.mcgill.cs.jetuml.diagram.ClassDiagram;
+import ca.mcgill.cs.jetuml.diagram.Diagram;
+import ca.mcgill.cs.jetuml.diagram.nodes.ClassNode;
+import ca.mcgill.cs.jetuml.persistence.DeserializationException;
+import javafx.application.Platform;
+
+public class TestDiagramFileTasks
+{
+	private static final File TEST_FILE = new File("testdata/tmp.class.jet");
+	
+	private final AtomicReference<Diagram> aDiagram = new AtomicReference<>();
+	private final AtomicReference<Throwable> aException = new AtomicReference<>();
+	
+	/**
+	 * Load JavaFX toolkit and environment.
+	 */
+	@BeforeClass
+	@SuppressWarnings("unused")
+	public static void setupClass()
+	{
+		JavaFXLoader loader = JavaFXLoader.instance();
+	}
+	
+	@After
+	public void tearDown()
+	{
+		TEST_FILE.delete();
+	}
+	
+	/*
+	 * Reads pFile in the background and waits for the result.
+	 */
+	private void read(File pFile) throws InterruptedException
+	{
+		CountDownLatch done = new CountDownLatch(1);
+		Platform.runLater(() -> DiagramFileTasks.read(pFile, pDiagram -> 
+		{
+			aDiagram.set(pDiagram);
+			done.countDown();
+		}, pException -> 
+		{
+			aException.set(pException);
+			done.countDown();
+		}));
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	public void testSaveUsesSnapshot() throws Exception
+	{
+		ClassDiagram diagram = new ClassDiagram();
+		ClassNode node = new ClassNode();
+		node.setName("Saved");
+		diagram.addRootNode(node);
+		CountDownLatch done = new CountDownLatch(1);
+		Platform.runLater(() -> 
+		{
+			DiagramFileTasks.save(diagram, TEST_FILE, () -> done.countDown(), pException -> 
+			{
+				aException.set(pException);
+				done.countDown();
+			});
+			// Changes made after the task is submitted are not saved
+			node.setName("Changed");
+			diagram.addRootNode(new ClassNode());
+		});
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertNull(aException.get());
+		
+		read(TEST_FILE);
+		assertEquals(1, aDiagram.get().numberOfRootNodes());
+		assertEquals("Saved", ((ClassNode) aDiagram.get().rootNodes().iterator().next()).getName());
+	}
+	
+	@Test
+	public void testReadMissingFile() throws Exception
+	{
+		read(new File("testdata/missing.class.jet"));
+		assertNull(aDiagram.get());
+		assertTrue(aException.get() instanceof IOException);
+	}
+	
+	@Test
+	public void testReadInvalidFile() throws Exception
+	{
+		Files.write(TEST_FILE.toPath(), "{\"diagram\":".getBytes());
+		read(TEST_FILE);
+		assertNull(aDiagram.get());
+		assertTrue(aException.get() instanceof DeserializationException);
+	}
+}
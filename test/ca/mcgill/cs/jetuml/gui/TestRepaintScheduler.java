@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2018 by the contributors of the JetUML project.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package ca.mcgill.cs.jetuml.gui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import ca.mcgill.cs.jetuml.JavaFXLoader;
+import javafx.application.Platform;
+
+public class TestRepaintScheduler
+{
+	private final AtomicInteger aPaints = new AtomicInteger();
+	private final RepaintScheduler aScheduler = new RepaintScheduler(() -> aPaints.incrementAndGet());
+	
+	/**
+	 * Load JavaFX toolkit and environment.
+	 */
+	@BeforeClass
+	@SuppressWarnings("unused")
+	public static void setupClass()
+	{
+		JavaFXLoader loader = JavaFXLoader.instance();
+	}
+	
+	/*
+	 * Runs pAction on the JavaFX application thread and waits for it to complete.
+	 */
+	private static void runOnFXThread(Runnable pAction) throws InterruptedException
+	{
+		CountDownLatch done = new CountDownLatch(1);
+		Platform.runLater(() -> 
+		{
+			try
+			{
+				pAction.run();
+			}
+			finally
+			{
+				done.countDown();
+			}
+		});
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	public void testFlushCoalescesRequests() throws InterruptedException
+	{
+		runOnFXThread(() -> 
+		{
+			aScheduler.requestRepaint();
+			aScheduler.requestRepaint();
+			aScheduler.requestRepaint();
+			assertTrue(aScheduler.isRepaintPending());
+			aScheduler.flush();
+			aScheduler.flush();
+		});
+		assertFalse(aScheduler.isRepaintPending());
+		assertEquals(1, aPaints.get());
+		assertEquals(1, aScheduler.getNumberOfFrames());
+		assertEquals(3, aScheduler.getNumberOfRequests());
+	}
+	
+	@Test
+	public void testRepaintAtNextPulse() throws InterruptedException
+	{
+		runOnFXThread(() -> 
+		{
+			for( int i = 0; i < 100; i++ )
+			{
+				aScheduler.requestRepaint();
+			}
+		});
+		long deadline = System.currentTimeMillis() + 5000;
+		while( aPaints.get() == 0 && System.currentTimeMillis() < deadline )
+		{
+			Thread.sleep(10);
+		}
+		runOnFXThread(() -> {}); // Makes the state of the scheduler visible to this thread
+		assertEquals(1, aPaints.get());
+		assertEquals(1, aScheduler.getNumberOfFrames());
+		assertEquals(100, aScheduler.getNumberOfRequests());
+		assertFalse(aScheduler.isRepaintPending());
+	}
+}
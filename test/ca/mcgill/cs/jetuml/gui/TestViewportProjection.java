@@ -24,6 +24,8 @@ import static org.junit.Assert.*;
 
 import org.junit.Test;
 
+import ca.mcgill.cs.jetuml.geom.Rectangle;
+
 public class TestViewportProjection
 {
 	@Test
@@ -50,6 +52,15 @@ public class TestViewportProjection
 		assertEquals(0.25, projection.getHeightRatio(), 0.0);
 	}
 	
+	@Test
+	public void testGetVisibleArea()
+	{
+		ViewportProjection projection = new ViewportProjection(1000, 500, 1000, 500, 0, 0);
+		assertEquals(new Rectangle(0, 0, 1000, 500), projection.getVisibleArea());
+		projection = new ViewportProjection(500, 250, 1000, 1000, 0.5, 1);
+		assertEquals(new Rectangle(250, 750, 500, 250), projection.getVisibleArea());
+	}
+	
 	@Test
 	public void testGetHiddenLeft()
 	{
@@ -24,6 +24,10 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import org.json.JSONArray;
 import org.json.JSONObject;
 
@@ -55,6 +59,39 @@ final class PersistenceTestUtils
 		return properties;
 	}
 	
+	/*
+	 * Describes every element of pDiagram by its JSON encoding, without 
+	 * the node identifiers, which are arbitrary. The description of the
+	 * nodes and of the edges between them is independent of the identity 
+	 * and order of the elements.
+	 */
+	static List<String> describe(Diagram pDiagram)
+	{
+		SerializationContext context = new SerializationContext(pDiagram);
+		List<String> result = new ArrayList<>();
+		for( Node node : context )
+		{
+			result.add(describe(node, context));
+		}
+		for( Edge edge : pDiagram.edges() )
+		{
+			JSONObject object = JsonEncoder.encodeEdge(edge, context);
+			object.remove("start");
+			object.remove("end");
+			result.add(object + " from " + describe(edge.getStart(), context) + " to " + describe(edge.getEnd(), context));
+		}
+		Collections.sort(result);
+		return result;
+	}
+	
+	static String describe(Node pNode, SerializationContext pContext)
+	{
+		JSONObject object = JsonEncoder.encodeNode(pNode, pContext);
+		object.remove("id");
+		object.remove("children");
+		return object.toString();
+	}
+	
 	static void assertHasKeys(JSONObject pObject, String... pKeys)
 	{
 		for( String key : pKeys )
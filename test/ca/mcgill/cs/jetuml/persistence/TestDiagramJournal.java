@@ -0,0 +1,281 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2018 by the contributors of the JetUML project.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package ca.mcgill.cs.jetuml.persistence;
+
+import static ca.mcgill.cs.jetuml.persistence.PersistenceTestUtils.describe;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import ca.mcgill.cs.jetuml.JavaFXLoader;
+import ca.mcgill.cs.jetuml.diagram.ClassDiagram;
+import ca.mcgill.cs.jetuml.diagram.Diagram;
+import ca.mcgill.cs.jetuml.diagram.DiagramElement;
+import ca.mcgill.cs.jetuml.diagram.Edge;
+import ca.mcgill.cs.jetuml.diagram.Node;
+import ca.mcgill.cs.jetuml.diagram.builder.ClassDiagramBuilder;
+import ca.mcgill.cs.jetuml.diagram.builder.DiagramOperationProcessor;
+import ca.mcgill.cs.jetuml.diagram.edges.DependencyEdge;
+import ca.mcgill.cs.jetuml.diagram.nodes.ClassNode;
+import ca.mcgill.cs.jetuml.diagram.nodes.PackageNode;
+import ca.mcgill.cs.jetuml.diagram.nodes.StateNode;
+import ca.mcgill.cs.jetuml.geom.Point;
+
+public class TestDiagramJournal
+{
+	private File aDirectory;
+	private DiagramJournal aJournal;
+	
+	/**
+	 * Load JavaFX toolkit and environment.
+	 */
+	@BeforeClass
+	@SuppressWarnings("unused")
+	public static void setupClass()
+	{
+		JavaFXLoader loader = JavaFXLoader.instance();
+	}
+	
+	@Before
+	public void setUp() throws IOException
+	{
+		aDirectory = Files.createTempDirectory("journal").toFile();
+	}
+	
+	@After
+	public void tearDown() throws IOException
+	{
+		if( aJournal != null )
+		{
+			aJournal.close();
+		}
+		for( File file : aDirectory.listFiles() )
+		{
+			file.delete();
+		}
+		aDirectory.delete();
+	}
+	
+	private void assertRecovered(Diagram pDiagram) throws IOException
+	{
+		Diagram recovered = DiagramJournal.replay(aJournal.getJournalFile()).getDiagram();
+		assertEquals(pDiagram.getClass(), recovered.getClass());
+		assertEquals(describe(pDiagram), describe(recovered));
+		assertEquals(pDiagram.numberOfRootNodes(), recovered.numberOfRootNodes());
+		assertEquals(describeEdgesInOrder(pDiagram), describeEdgesInOrder(recovered));
+	}
+	
+	private static List<String> describeEdgesInOrder(Diagram pDiagram)
+	{
+		SerializationContext context = new SerializationContext(pDiagram);
+		List<String> result = new ArrayList<>();
+		for( Edge edge : pDiagram.edges() )
+		{
+			result.add(describe(edge.getStart(), context) + " -> " + describe(edge.getEnd(), context));
+		}
+		return result;
+	}
+	
+	private int numberOfLines() throws IOException
+	{
+		return Files.readAllLines(aJournal.getJournalFile().toPath(), StandardCharsets.UTF_8).size();
+	}
+	
+	@Test
+	public void testSnapshot() throws Exception
+	{
+		Diagram diagram = PersistenceService.read(new File("testdata/testPersistenceService.sequence.jet"));
+		aJournal = DiagramJournal.create(diagram, aDirectory);
+		assertEquals(1, numberOfLines());
+		assertRecovered(diagram);
+		assertFalse(DiagramJournal.replay(aJournal.getJournalFile()).getFile().isPresent());
+	}
+	
+	@Test
+	public void testRecordOperations() throws Exception
+	{
+		ClassDiagram diagram = new ClassDiagram();
+		ClassDiagramBuilder builder = new ClassDiagramBuilder(diagram);
+		DiagramOperationProcessor processor = new DiagramOperationProcessor();
+		aJournal = DiagramJournal.create(diagram, aDirectory);
+		processor.addOperationListener(pOperation -> 
+		{
+			try
+			{
+				aJournal.record();
+			}
+			catch(IOException exception)
+			{
+				throw new RuntimeException(exception);
+			}
+		});
+		
+		PackageNode package1 = new PackageNode();
+		ClassNode class1 = new ClassNode();
+		ClassNode class2 = new ClassNode();
+		ClassNode class3 = new ClassNode();
+		processor.executeNewOperation(builder.createAddNodeOperation(package1, new Point(10, 10)));
+		processor.executeNewOperation(builder.createAddNodeOperation(class1, new Point(20, 20)));
+		processor.executeNewOperation(builder.createAddNodeOperation(class2, new Point(300, 300)));
+		processor.executeNewOperation(builder.createAddNodeOperation(class3, new Point(500, 300)));
+		assertEquals(1, package1.getChildren().size());
+		assertRecovered(diagram);
+		
+		DependencyEdge edge1 = new DependencyEdge();
+		DependencyEdge edge2 = new DependencyEdge();
+		processor.executeNewOperation(builder.createAddEdgeOperation(edge1, new Point(301, 301), new Point(21, 21)));
+		processor.executeNewOperation(builder.createAddEdgeOperation(edge2, new Point(301, 301), new Point(501, 301)));
+		assertEquals(2, diagram.numberOfEdges());
+		assertRecovered(diagram);
+		
+		processor.executeNewOperation(builder.createMoveNodeOperation(class2, 50, 0));
+		class3.setName("Renamed");
+		edge2.setMiddleLabel("label");
+		processor.storeAlreadyExecutedOperation(builder.createMoveNodeOperation(class3, 0, 0));
+		assertRecovered(diagram);
+		
+		// Removing the child also removes its edge
+		processor.executeNewOperation(builder.createRemoveElementsOperation(Arrays.asList(class1)));
+		assertTrue(package1.getChildren().isEmpty());
+		assertEquals(1, diagram.numberOfEdges());
+		assertRecovered(diagram);
+		
+		// The edge is restored at its original position
+		processor.undoLastExecutedOperation();
+		assertEquals(1, package1.getChildren().size());
+		assertEquals(2, diagram.numberOfEdges());
+		assertRecovered(diagram);
+		
+		processor.executeNewOperation(builder.createRemoveElementsOperation(Arrays.<DiagramElement>asList(package1)));
+		assertEquals(2, diagram.numberOfRootNodes());
+		assertRecovered(diagram);
+		
+		int lines = numberOfLines();
+		aJournal.compact();
+		assertTrue(lines > 1);
+		assertEquals(1, numberOfLines());
+		assertRecovered(diagram);
+	}
+	
+	@Test
+	public void testRecordInBackground() throws Exception
+	{
+		Diagram diagram = PersistenceService.read(new File("testdata/testPersistenceService.state.jet"));
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		aJournal = DiagramJournal.create(diagram, aDirectory, executor);
+		
+		// The records written after the snapshot refer to the nodes of the copy it was encoded from
+		Node node = diagram.rootNodes().iterator().next();
+		node.translate(30, 40);
+		aJournal.record();
+		StateNode added = new StateNode();
+		diagram.addRootNode(added);
+		aJournal.record();
+		aJournal.compact();
+		diagram.removeRootNode(added);
+		aJournal.record();
+		aJournal.release();
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+		assertEquals(2, numberOfLines());
+		assertRecovered(diagram);
+		DiagramJournal.delete(aJournal.getJournalFile());
+		aJournal = null;
+		assertEquals(0, aDirectory.listFiles().length);
+	}
+	
+	@Test
+	public void testFile() throws Exception
+	{
+		aJournal = DiagramJournal.create(new ClassDiagram(), aDirectory);
+		aJournal.setFile(new File("test.class.jet"));
+		assertEquals(new File("test.class.jet").getAbsoluteFile(), DiagramJournal.replay(aJournal.getJournalFile()).getFile().get());
+		aJournal.compact();
+		assertEquals(new File("test.class.jet").getAbsoluteFile(), DiagramJournal.replay(aJournal.getJournalFile()).getFile().get());
+	}
+	
+	@Test
+	public void testInterruptedRecord() throws Exception
+	{
+		ClassDiagram diagram = new ClassDiagram();
+		aJournal = DiagramJournal.create(diagram, aDirectory);
+		diagram.addRootNode(new ClassNode());
+		aJournal.record();
+		Files.write(aJournal.getJournalFile().toPath(), "{\"nodes\":[{\"na".getBytes(StandardCharsets.UTF_8), 
+				StandardOpenOption.APPEND);
+		assertRecovered(diagram);
+	}
+	
+	@Test(expected = DeserializationException.class)
+	public void testCorruptedJournal() throws Exception
+	{
+		aJournal = DiagramJournal.create(new ClassDiagram(), aDirectory);
+		Files.write(aJournal.getJournalFile().toPath(), "{\"nodes\":[{\"na\n{}\n".getBytes(StandardCharsets.UTF_8), 
+				StandardOpenOption.APPEND);
+		DiagramJournal.replay(aJournal.getJournalFile());
+	}
+	
+	@Test
+	public void testFindAbandonedJournals() throws Exception
+	{
+		aJournal = DiagramJournal.create(new ClassDiagram(), aDirectory);
+		assertTrue(DiagramJournal.findAbandonedJournals(aDirectory).isEmpty());
+		
+		File abandoned = new File(aDirectory, "abandoned.journal");
+		Files.copy(aJournal.getJournalFile().toPath(), abandoned.toPath());
+		assertEquals(Arrays.asList(abandoned), DiagramJournal.findAbandonedJournals(aDirectory));
+		DiagramJournal.delete(abandoned);
+		
+		aJournal.close();
+		aJournal = null;
+		assertEquals(0, aDirectory.listFiles().length);
+	}
+	
+	@Test
+	public void testRelease() throws Exception
+	{
+		Diagram diagram = PersistenceService.read(new File("testdata/testPersistenceService.state.jet"));
+		aJournal = DiagramJournal.create(diagram, aDirectory);
+		aJournal.release();
+		assertEquals(Arrays.asList(aJournal.getJournalFile()), DiagramJournal.findAbandonedJournals(aDirectory));
+		assertRecovered(diagram);
+		DiagramJournal.delete(aJournal.getJournalFile());
+		aJournal = null;
+		assertEquals(0, aDirectory.listFiles().length);
+	}
+}
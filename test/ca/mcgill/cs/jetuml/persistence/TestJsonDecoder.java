@@ -20,11 +20,24 @@
  *******************************************************************************/
 package ca.mcgill.cs.jetuml.persistence;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.StringReader;
+
+import org.json.JSONArray;
 import org.json.JSONObject;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import ca.mcgill.cs.jetuml.JavaFXLoader;
+import ca.mcgill.cs.jetuml.diagram.ClassDiagram;
+import ca.mcgill.cs.jetuml.diagram.Diagram;
+import ca.mcgill.cs.jetuml.diagram.Edge;
+import ca.mcgill.cs.jetuml.diagram.Node;
+import ca.mcgill.cs.jetuml.diagram.edges.DependencyEdge;
+import ca.mcgill.cs.jetuml.diagram.nodes.ClassNode;
+import ca.mcgill.cs.jetuml.diagram.nodes.PackageNode;
 
 public class TestJsonDecoder
 {
@@ -62,4 +75,72 @@ public class TestJsonDecoder
 		object.put("diagram", "StateDiagram");
 		JsonDecoder.decode(object);
 	}
+	
+	/*
+	 * Try to decode a stream that contains
+	 * the diagram type but no nodes or edges.
+	 */
+	@Test(expected=DeserializationException.class)
+	public void testIncompleteStream()
+	{
+		JsonDecoder.decode(new StringReader("{\"version\":\"1.2\",\"diagram\":\"StateDiagram\"}"));
+	}
+	
+	/*
+	 * Decode a stream laid out on multiple lines, where the edges
+	 * come before the nodes and the diagram type, and a parent
+	 * node comes before its child.
+	 */
+	@Test
+	public void testStreamWithForwardReferences()
+	{
+		ClassDiagram diagram = new ClassDiagram();
+		PackageNode packageNode = new PackageNode();
+		ClassNode child = new ClassNode();
+		ClassNode other = new ClassNode();
+		packageNode.addChild(child);
+		diagram.addRootNode(packageNode);
+		diagram.addRootNode(other);
+		DependencyEdge edge = new DependencyEdge();
+		edge.connect(child, other, diagram);
+		diagram.addEdge(edge);
+		
+		JSONObject object = JsonEncoder.encode(diagram);
+		JSONArray nodes = new JSONArray();
+		for( int i = 0; i < object.getJSONArray("nodes").length(); i++ )
+		{
+			JSONObject node = object.getJSONArray("nodes").getJSONObject(i);
+			if( node.has("children") )
+			{
+				nodes.put(node);
+			}
+		}
+		for( int i = 0; i < object.getJSONArray("nodes").length(); i++ )
+		{
+			JSONObject node = object.getJSONArray("nodes").getJSONObject(i);
+			if( !node.has("children") )
+			{
+				nodes.put(node);
+			}
+		}
+		String text = "{\n  \"edges\": " + object.getJSONArray("edges").toString(2) + 
+				",\n  \"nodes\": " + nodes.toString(2) + 
+				",\n  \"version\": \"1.2\",\n  \"diagram\": \"ClassDiagram\"\n}\n";
+		
+		Diagram decoded = JsonDecoder.decode(new StringReader(text));
+		assertEquals(2, decoded.numberOfRootNodes());
+		PackageNode decodedPackage = null;
+		for( Node node : decoded.rootNodes() )
+		{
+			if( node instanceof PackageNode )
+			{
+				decodedPackage = (PackageNode) node;
+			}
+		}
+		assertEquals(1, decodedPackage.getChildren().size());
+		assertEquals(1, decoded.numberOfEdges());
+		Edge decodedEdge = decoded.edges().iterator().next();
+		assertSame(decodedPackage.getChildren().get(0), decodedEdge.getStart());
+		assertSame(decoded, decodedEdge.getDiagram());
+	}
 }
@@ -21,13 +21,24 @@
 package ca.mcgill.cs.jetuml.persistence;
 
 import static ca.mcgill.cs.jetuml.persistence.PersistenceTestUtils.build;
+import static ca.mcgill.cs.jetuml.persistence.PersistenceTestUtils.describe;
 import static ca.mcgill.cs.jetuml.persistence.PersistenceTestUtils.findRootNode;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
@@ -38,6 +49,7 @@ import ca.mcgill.cs.jetuml.JavaFXLoader;
 import ca.mcgill.cs.jetuml.diagram.Diagram;
 import ca.mcgill.cs.jetuml.diagram.Edge;
 import ca.mcgill.cs.jetuml.diagram.Node;
+import ca.mcgill.cs.jetuml.diagram.StateDiagram;
 import ca.mcgill.cs.jetuml.diagram.edges.AggregationEdge;
 import ca.mcgill.cs.jetuml.diagram.edges.CallEdge;
 import ca.mcgill.cs.jetuml.diagram.edges.DependencyEdge;
@@ -101,6 +113,187 @@ public class TestPersistenceService
 		return sum;
 	}
 	
+	@Test
+	public void testStreamingEncodingIsIdentical() throws Exception
+	{
+		for( String name : new String[] {"testPersistenceService.class.jet", "testPersistenceService2.class.jet", 
+				"testPersistenceService.sequence.jet", "testPersistenceService.state.jet", 
+				"testPersistenceService.object.jet", "testPersistenceService.usecase.jet"})
+		{
+			Diagram graph = PersistenceService.read(new File("testdata/" + name));
+			StringWriter writer = new StringWriter();
+			JsonEncoder.encode(graph, writer);
+			assertEquals(name, JsonEncoder.encode(graph).toString(), writer.toString());
+		}
+	}
+	
+	/*
+	 * Saves the diagram in pFileName in binary format, checks that the 
+	 * result is smaller, and reads it back.
+	 */
+	private Diagram saveAndReadBinary(String pFileName) throws Exception
+	{
+		File original = new File("testdata/" + pFileName);
+		File tmp = new File(TEST_FILE_NAME);
+		tmp.delete();
+		PersistenceService.save(PersistenceService.read(original), tmp, PersistenceService.Format.BINARY);
+		assertTrue(tmp.length() < original.length());
+		Diagram graph = PersistenceService.read(tmp);
+		tmp.delete();
+		return graph;
+	}
+	
+	/*
+	 * The binary encoding preserves every element of the test diagrams.
+	 */
+	@Test
+	public void testBinaryFormatIsLossless() throws Exception
+	{
+		for( String name : new String[] {"testPersistenceService.class.jet", "testPersistenceService2.class.jet", 
+				"testPersistenceService.sequence.jet", "testPersistenceService.state.jet", 
+				"testPersistenceService.object.jet", "testPersistenceService.usecase.jet"})
+		{
+			Diagram original = PersistenceService.read(new File("testdata/" + name));
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			BinaryEncoder.encode(original, bytes);
+			Diagram decoded = BinaryDecoder.decode(new ByteArrayInputStream(bytes.toByteArray()));
+			assertSame(original.getClass(), decoded.getClass());
+			assertEquals(name, describe(original), describe(decoded));
+			assertEquals(name, numberOfRootNodes(original), numberOfRootNodes(decoded));
+		}
+	}
+	
+	@Test
+	public void testInterruptedSave() throws Exception
+	{
+		File tmp = new File(TEST_FILE_NAME);
+		File original = new File("testdata/testPersistenceService.state.jet");
+		try
+		{
+			PersistenceService.save(PersistenceService.read(original), tmp);
+			byte[] saved = Files.readAllBytes(tmp.toPath());
+			
+			// Writing to the file fails if the thread is interrupted
+			Thread.currentThread().interrupt();
+			try
+			{
+				PersistenceService.save(new StateDiagram(), tmp);
+				fail();
+			}
+			catch( IOException exception )
+			{
+				assertTrue(Thread.interrupted());
+			}
+			assertArrayEquals(saved, Files.readAllBytes(tmp.toPath()));
+			assertFalse(new File(TEST_FILE_NAME + ".tmp").exists());
+			
+			PersistenceService.save(new StateDiagram(), tmp);
+			assertEquals(0, PersistenceService.read(tmp).numberOfRootNodes());
+			assertFalse(new File(TEST_FILE_NAME + ".tmp").exists());
+		}
+		finally
+		{
+			tmp.delete();
+		}
+	}
+	
+	@Test
+	public void testCompressedFormats() throws Exception
+	{
+		File tmp = new File(TEST_FILE_NAME + ".gz");
+		try
+		{
+			for( PersistenceService.Format format : PersistenceService.Format.values() )
+			{
+				File original = new File("testdata/testPersistenceService.state.jet");
+				Diagram diagram = PersistenceService.read(original);
+				PersistenceService.save(diagram, tmp, format, true);
+				byte[] bytes = Files.readAllBytes(tmp.toPath());
+				assertEquals((byte) 0x1f, bytes[0]);
+				assertEquals((byte) 0x8b, bytes[1]);
+				assertTrue(bytes.length < original.length());
+				Diagram decoded = PersistenceService.read(tmp);
+				assertSame(diagram.getClass(), decoded.getClass());
+				assertEquals(describe(diagram), describe(decoded));
+			}
+			Diagram diagram = PersistenceService.read(new File("testdata/testPersistenceService.object.jet"));
+			PersistenceService.save(diagram, tmp);
+			assertEquals((byte) 0x1f, Files.readAllBytes(tmp.toPath())[0]);
+			assertEquals(describe(diagram), describe(PersistenceService.read(tmp)));
+		}
+		finally
+		{
+			tmp.delete();
+		}
+	}
+	
+	@Test
+	public void testProgress() throws Exception
+	{
+		File tmp = new File(TEST_FILE_NAME);
+		try
+		{
+			for( PersistenceService.Format format : PersistenceService.Format.values() )
+			{
+				Diagram diagram = PersistenceService.read(new File("testdata/testPersistenceService.state.jet"));
+				List<Long> progress = new ArrayList<>();
+				PersistenceService.save(diagram, tmp, format, false, (pWorkDone, pTotalWork) -> 
+				{
+					assertEquals(diagram.numberOfRootNodes() + diagram.numberOfEdges(), pTotalWork);
+					progress.add(pWorkDone);
+				});
+				assertEquals(diagram.numberOfRootNodes() + diagram.numberOfEdges(), progress.size());
+				assertEquals(Long.valueOf(progress.size()), progress.get(progress.size() - 1));
+				
+				progress.clear();
+				PersistenceService.read(tmp, (pWorkDone, pTotalWork) -> 
+				{
+					assertEquals(tmp.length(), pTotalWork);
+					progress.add(pWorkDone);
+				});
+				assertEquals(Long.valueOf(tmp.length()), progress.get(progress.size() - 1));
+			}
+		}
+		finally
+		{
+			tmp.delete();
+		}
+	}
+	
+	@Test
+	public void testBinaryFormat() throws Exception
+	{
+		verifyClassDiagram(saveAndReadBinary("testPersistenceService.class.jet"));
+		verifyClassDiagram2(saveAndReadBinary("testPersistenceService2.class.jet"));
+		verifySequenceDiagram(saveAndReadBinary("testPersistenceService.sequence.jet"));
+		verifyStateDiagram(saveAndReadBinary("testPersistenceService.state.jet"));
+		verifyObjectDiagram(saveAndReadBinary("testPersistenceService.object.jet"));
+		verifyUseCaseDiagram(saveAndReadBinary("testPersistenceService.usecase.jet"));
+	}
+	
+	@Test(expected=DeserializationException.class)
+	public void testTruncatedBinaryFormat() throws Exception
+	{
+		File tmp = new File(TEST_FILE_NAME);
+		try
+		{
+			Files.write(tmp.toPath(), new byte[] {'J', 'E', 'T', 'B', 7});
+			PersistenceService.read(tmp);
+		}
+		finally
+		{
+			tmp.delete();
+		}
+	}
+	
+	@Test(expected=EOFException.class)
+	public void testInvalidBinaryStringLength() throws Exception
+	{
+		// A version string of 2^30 bytes, followed by a single byte
+		BinaryDecoder.decode(new ByteArrayInputStream(new byte[] {'J', 'E', 'T', 'B', 1, 
+				(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x08, 'a'}));
+	}
+	
 	@Test
 	public void testClassDiagram() throws Exception
 	{
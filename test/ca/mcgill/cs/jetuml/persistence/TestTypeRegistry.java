@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2018 by the contributors of the JetUML project.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package ca.mcgill.cs.jetuml.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import ca.mcgill.cs.jetuml.JavaFXLoader;
+import ca.mcgill.cs.jetuml.diagram.Diagram;
+import ca.mcgill.cs.jetuml.diagram.DiagramType;
+import ca.mcgill.cs.jetuml.diagram.Edge;
+import ca.mcgill.cs.jetuml.diagram.Node;
+import ca.mcgill.cs.jetuml.diagram.nodes.CallNode;
+import ca.mcgill.cs.jetuml.diagram.nodes.PointNode;
+
+public class TestTypeRegistry
+{
+	/**
+	 * Load JavaFX toolkit and environment.
+	 */
+	@BeforeClass
+	@SuppressWarnings("unused")
+	public static void setupClass()
+	{
+		JavaFXLoader loader = JavaFXLoader.instance();
+	}
+	
+	@Test
+	public void testAllPrototypesRegistered()
+	{
+		for( DiagramType type : DiagramType.values() )
+		{
+			Diagram diagram = type.newInstance();
+			String name = TypeRegistry.nameOf(diagram);
+			assertSame(diagram.getClass(), TypeRegistry.newDiagram(name).getClass());
+			for( Node prototype : diagram.getNodePrototypes() )
+			{
+				name = TypeRegistry.nameOf(prototype);
+				assertEquals(prototype.getClass().getSimpleName(), name);
+				assertSame(prototype.getClass(), TypeRegistry.newNode(name).getClass());
+			}
+			for( Edge prototype : diagram.getEdgePrototypes() )
+			{
+				name = TypeRegistry.nameOf(prototype);
+				assertEquals(prototype.getClass().getSimpleName(), name);
+				assertSame(prototype.getClass(), TypeRegistry.newEdge(name).getClass());
+			}
+		}
+	}
+	
+	@Test
+	public void testNodesWithoutPrototypes()
+	{
+		assertSame(CallNode.class, TypeRegistry.newNode("CallNode").getClass());
+		assertSame(PointNode.class, TypeRegistry.newNode("PointNode").getClass());
+	}
+	
+	@Test
+	public void testNewInstances()
+	{
+		assertNotSame(TypeRegistry.newNode("ClassNode"), TypeRegistry.newNode("ClassNode"));
+	}
+	
+	@Test(expected=DeserializationException.class)
+	public void testUnknownNode()
+	{
+		TypeRegistry.newNode("ClassDiagram");
+	}
+	
+	@Test(expected=DeserializationException.class)
+	public void testUnknownEdge()
+	{
+		TypeRegistry.newEdge("ClassNode");
+	}
+}
@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2018 by the contributors of the JetUML project.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package ca.mcgill.cs.jetuml.views;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import ca.mcgill.cs.jetuml.JavaFXLoader;
+import ca.mcgill.cs.jetuml.diagram.ClassDiagram;
+import ca.mcgill.cs.jetuml.diagram.Diagram;
+import ca.mcgill.cs.jetuml.diagram.Node;
+import ca.mcgill.cs.jetuml.diagram.edges.DependencyEdge;
+import ca.mcgill.cs.jetuml.diagram.nodes.ClassNode;
+import ca.mcgill.cs.jetuml.geom.Rectangle;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+
+public class TestDiagramView
+{
+	private Diagram aDiagram;
+	private DiagramView aView;
+	private GraphicsContext aGraphics;
+	private ClassNode aNode1;
+	private ClassNode aNode2;
+	private ClassNode aNode3;
+	
+	/**
+	 * Load JavaFX toolkit and environment.
+	 */
+	@BeforeClass
+	@SuppressWarnings("unused")
+	public static void setupClass()
+	{
+		JavaFXLoader loader = JavaFXLoader.instance();
+	}
+	
+	@Before
+	public void setup()
+	{
+		aDiagram = new ClassDiagram();
+		aView = new DiagramView(aDiagram);
+		aGraphics = new Canvas(100, 100).getGraphicsContext2D();
+		aNode1 = new ClassNode();
+		aNode2 = new ClassNode();
+		aNode2.translate(1000, 1000);
+		aNode3 = new ClassNode();
+		aNode3.translate(2000, 2000);
+		aDiagram.addRootNode(aNode1);
+		aDiagram.addRootNode(aNode2);
+		aDiagram.addRootNode(aNode3);
+		DependencyEdge edge = new DependencyEdge();
+		edge.connect(aNode2, aNode3, aDiagram);
+		aDiagram.addEdge(edge);
+	}
+	
+	@Test
+	public void testDrawAll()
+	{
+		aView.draw(aGraphics);
+		assertEquals(4, aView.getNumberOfDrawnElements());
+		assertEquals(0, aView.getNumberOfSkippedElements());
+	}
+	
+	@Test
+	public void testDrawClipped()
+	{
+		aView.draw(aGraphics, new Rectangle(0, 0, 500, 500));
+		assertEquals(1, aView.getNumberOfDrawnElements());
+		assertEquals(3, aView.getNumberOfSkippedElements());
+		
+		aView.draw(aGraphics, new Rectangle(1050, 1050, 500, 500));
+		assertEquals(2, aView.getNumberOfDrawnElements());
+		assertEquals(2, aView.getNumberOfSkippedElements());
+		
+		aNode1.translate(1100, 1100);
+		aView.draw(aGraphics, new Rectangle(1050, 1050, 500, 500));
+		assertEquals(3, aView.getNumberOfDrawnElements());
+		assertEquals(1, aView.getNumberOfSkippedElements());
+	}
+	
+	@Test
+	public void testRootNodesInDiagramOrder()
+	{
+		aNode1.translate(2000, 2000);
+		List<Node> nodes = aDiagram.rootNodesIn(new Rectangle(1900, 1900, 200, 200));
+		assertEquals(2, nodes.size());
+		assertSame(aNode1, nodes.get(0));
+		assertSame(aNode3, nodes.get(1));
+	}
+	
+	@Test
+	public void testChangedArea()
+	{
+		aDiagram.consumeChangedArea();
+		Rectangle before = aNode3.view().getBounds();
+		aNode3.translate(10, 10);
+		Rectangle changed = aDiagram.consumeChangedArea().get();
+		assertTrue(changed.contains(before));
+		assertTrue(changed.contains(aNode3.view().getBounds()));
+		assertTrue(changed.contains(aDiagram.edges().iterator().next().view().getBounds()));
+		assertFalse(changed.intersects(aNode1.view().getBounds()));
+		assertFalse(aDiagram.consumeChangedArea().isPresent());
+	}
+}
@@ -22,13 +22,26 @@ package ca.mcgill.cs.jetuml.views;
 
 import static org.junit.Assert.*;
 
+import org.junit.BeforeClass;
 import org.junit.Test;
 
+import ca.mcgill.cs.jetuml.JavaFXLoader;
 import ca.mcgill.cs.jetuml.geom.Dimension;
 import ca.mcgill.cs.jetuml.geom.Point;
+import javafx.scene.image.PixelReader;
 
 public class TestGrid
 {
+	/**
+	 * Load JavaFX toolkit and environment.
+	 */
+	@BeforeClass
+	@SuppressWarnings("unused")
+	public static void setupClass()
+	{
+		JavaFXLoader loader = JavaFXLoader.instance();
+	}
+	
 	@Test
 	public void testSnapped_ToTopLeft()
 	{
@@ -110,4 +123,20 @@ public class TestGrid
 		assertEquals(new Point(1,1), Grid.toSnap(new Dimension(39,39)));
 		assertEquals(new Point(0,0), Grid.toSnap(new Dimension(40,40)));
 	}
+	
+	@Test
+	public void testCreateTile()
+	{
+		PixelReader reader = Grid.createTile(0.6).getPixelReader();
+		assertEquals(0.84, reader.getColor(0, 0).getOpacity(), 0.01);
+		assertEquals(0.6, reader.getColor(0, 5).getOpacity(), 0.01);
+		assertEquals(0.6, reader.getColor(9, 0).getOpacity(), 0.01);
+		assertEquals(0, reader.getColor(1, 1).getOpacity(), 0.01);
+		assertEquals(0, reader.getColor(9, 9).getOpacity(), 0.01);
+		assertEquals(220 / 255.0, reader.getColor(0, 5).getRed(), 0.01);
+		
+		reader = Grid.createTile(2).getPixelReader();
+		assertEquals(1, reader.getColor(0, 0).getOpacity(), 0.01);
+		assertEquals(1, reader.getColor(5, 0).getOpacity(), 0.01);
+	}
 }
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2018 by the contributors of the JetUML project.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package ca.mcgill.cs.jetuml.views;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import ca.mcgill.cs.jetuml.JavaFXLoader;
+import javafx.geometry.Bounds;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextAlignment;
+import javafx.scene.text.TextBoundsType;
+
+public class TestTextBoundsCache
+{
+	private TextBoundsCache aCache;
+	
+	/**
+	 * Load JavaFX toolkit and environment.
+	 */
+	@BeforeClass
+	@SuppressWarnings("unused")
+	public static void setupClass()
+	{
+		JavaFXLoader loader = JavaFXLoader.instance();
+	}
+	
+	@Before
+	public void setup()
+	{
+		aCache = new TextBoundsCache(3);
+	}
+	
+	private Bounds getBounds(String pString)
+	{
+		return aCache.getBounds(pString, StringViewer.FONT, TextAlignment.LEFT, false, TextBoundsType.LOGICAL);
+	}
+	
+	@Test
+	public void testGetBoundsSameAsText()
+	{
+		Text text = new Text("Hello");
+		text.setFont(StringViewer.FONT);
+		assertEquals(text.getLayoutBounds(), getBounds("Hello"));
+		
+		text.setBoundsType(TextBoundsType.VISUAL);
+		text.setUnderline(true);
+		assertEquals(text.getLayoutBounds(), 
+				aCache.getBounds("Hello", StringViewer.FONT, TextAlignment.LEFT, true, TextBoundsType.VISUAL));
+	}
+	
+	@Test
+	public void testHitsAndMisses()
+	{
+		Bounds bounds = getBounds("Hello");
+		assertEquals(0, aCache.hits());
+		assertEquals(1, aCache.misses());
+		assertSame(bounds, getBounds("Hello"));
+		assertEquals(1, aCache.hits());
+		assertEquals(1, aCache.misses());
+		getBounds("World");
+		assertEquals(1, aCache.hits());
+		assertEquals(2, aCache.misses());
+		assertEquals(2, aCache.size());
+	}
+	
+	@Test
+	public void testKeyIncludesAttributes()
+	{
+		getBounds("Hello");
+		aCache.getBounds("Hello", StringViewer.FONT, TextAlignment.CENTER, false, TextBoundsType.LOGICAL);
+		aCache.getBounds("Hello", StringViewer.FONT, TextAlignment.LEFT, false, TextBoundsType.VISUAL);
+		assertEquals(0, aCache.hits());
+		assertEquals(3, aCache.misses());
+		assertNotEquals(getBounds("Hello"), 
+				aCache.getBounds("Hello", StringViewer.FONT, TextAlignment.LEFT, false, TextBoundsType.VISUAL));
+	}
+	
+	@Test
+	public void testEvictsLeastRecentlyUsed()
+	{
+		getBounds("A");
+		getBounds("B");
+		getBounds("C");
+		getBounds("A");
+		getBounds("D"); // Evicts B
+		assertEquals(3, aCache.size());
+		assertEquals(1, aCache.evictions());
+		getBounds("A");
+		getBounds("C");
+		getBounds("D");
+		assertEquals(4, aCache.hits());
+		getBounds("B");
+		assertEquals(5, aCache.misses());
+		assertEquals(2, aCache.evictions());
+	}
+	
+	@Test
+	public void testClear()
+	{
+		getBounds("A");
+		getBounds("A");
+		aCache.clear();
+		assertEquals(0, aCache.size());
+		assertEquals(0, aCache.hits());
+		assertEquals(0, aCache.misses());
+		assertEquals(0, aCache.evictions());
+		assertEquals(3, aCache.capacity());
+	}
+}
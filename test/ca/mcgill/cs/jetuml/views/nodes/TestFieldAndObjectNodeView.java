@@ -175,6 +175,18 @@ public class TestFieldAndObjectNodeView
 		assertEquals( new Rectangle(5,70,70,20), view.getBounds());
 	}
 	
+	@Test
+	public void testGetBoundsFollowsParent()
+	{
+		aObjectNode1.addChild(aFieldNode1);
+		FieldNodeView view = (FieldNodeView) aFieldNode1.view();
+		assertEquals( new Rectangle(5,70,70,20), view.getBounds());
+		aObjectNode1.translate(10, 20);
+		assertEquals( new Rectangle(15,90,70,20), view.getBounds());
+		aObjectNode1.removeChild(aFieldNode1);
+		assertEquals( new FieldNode().view().getBounds(), view.getBounds());
+	}
+	
 	@After
 	public void teardown()
 	{
@@ -21,6 +21,7 @@
 package ca.mcgill.cs.jetuml.views.nodes;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 
 import java.awt.Graphics2D;
@@ -33,6 +34,7 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import ca.mcgill.cs.jetuml.JavaFXLoader;
+import ca.mcgill.cs.jetuml.diagram.nodes.ClassNode;
 import ca.mcgill.cs.jetuml.diagram.nodes.PackageNode;
 import ca.mcgill.cs.jetuml.geom.Point;
 import ca.mcgill.cs.jetuml.geom.Rectangle;
@@ -121,6 +123,22 @@ public class TestPackageNodeView
 		assertEqualRectangles(0,0,100,80, aPackageNode1.view().getBounds());
 	}
 	
+	@Test
+	public void testGetBoundsInvalidatedByNestedChild()
+	{
+		PackageNode inner = new PackageNode();
+		ClassNode node = new ClassNode();
+		aPackageNode1.addChild(inner);
+		inner.addChild(node);
+		Rectangle bounds = aPackageNode1.view().getBounds();
+		assertSame(bounds, aPackageNode1.view().getBounds());
+		node.translate(200, 200);
+		assertEquals(new Rectangle(200, 200, 100, 60), node.view().getBounds());
+		// One padding for the inner package, and one for the outer package
+		assertEquals(320, aPackageNode1.view().getBounds().getMaxX());
+		assertEquals(280, aPackageNode1.view().getBounds().getMaxY());
+	}
+	
 	@Test
 	public void testGetTopBoundsDefault()
 	{
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2018 by the contributors of the JetUML project.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package ca.mcgill.cs.jetuml.views.nodes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import ca.mcgill.cs.jetuml.JavaFXLoader;
+import ca.mcgill.cs.jetuml.diagram.SequenceDiagram;
+import ca.mcgill.cs.jetuml.diagram.edges.CallEdge;
+import ca.mcgill.cs.jetuml.diagram.nodes.CallNode;
+import ca.mcgill.cs.jetuml.diagram.nodes.ImplicitParameterNode;
+import ca.mcgill.cs.jetuml.geom.Rectangle;
+
+public class TestSequenceDiagramLayout
+{
+	private SequenceDiagram aDiagram;
+	private ImplicitParameterNode aParameter1;
+	private ImplicitParameterNode aParameter2;
+	private CallNode aCaller;
+	
+	/**
+	 * Load JavaFX toolkit and environment.
+	 */
+	@BeforeClass
+	@SuppressWarnings("unused")
+	public static void setupClass()
+	{
+		JavaFXLoader loader = JavaFXLoader.instance();
+	}
+	
+	@Before
+	public void setup()
+	{
+		aDiagram = new SequenceDiagram();
+		aParameter1 = new ImplicitParameterNode();
+		aParameter2 = new ImplicitParameterNode();
+		aParameter2.translate(200, 0);
+		aDiagram.addRootNode(aParameter1);
+		aDiagram.addRootNode(aParameter2);
+		aCaller = new CallNode();
+		aParameter1.addChild(aCaller);
+	}
+	
+	private CallNode call(CallNode pCaller, ImplicitParameterNode pParameter)
+	{
+		CallNode callee = new CallNode();
+		pParameter.addChild(callee);
+		CallEdge edge = new CallEdge();
+		edge.connect(pCaller, callee, aDiagram);
+		aDiagram.addEdge(edge);
+		return callee;
+	}
+	
+	@Test
+	public void testNestedCall()
+	{
+		CallNode callee = call(aCaller, aParameter1);
+		SequenceDiagramLayout layout = aDiagram.layout();
+		assertEquals(0, layout.getNestingDepth(aCaller));
+		assertEquals(1, layout.getNestingDepth(callee));
+		assertEquals(new Rectangle(32, 80, 16, 70), layout.getBounds(aCaller).get());
+		assertEquals(new Rectangle(40, 100, 16, 30), layout.getBounds(callee).get());
+		assertEquals(new Rectangle(0, 0, 80, 170), layout.getBounds(aParameter1).get());
+		assertEquals(layout.getBounds(callee).get(), callee.view().getBounds());
+		assertEquals(layout.getBounds(aParameter1).get(), aParameter1.view().getBounds());
+	}
+	
+	@Test
+	public void testLayoutReusedUntilChange()
+	{
+		call(aCaller, aParameter2);
+		SequenceDiagramLayout layout = aDiagram.layout();
+		assertSame(layout, aDiagram.layout());
+		CallNode callee = call(aCaller, aParameter2);
+		assertNotSame(layout, aDiagram.layout());
+		assertFalse(layout.getBounds(callee).isPresent());
+		assertEquals(new Rectangle(232, 150, 16, 30), callee.view().getBounds());
+		aParameter2.translate(10, 0);
+		assertEquals(new Rectangle(242, 150, 16, 30), callee.view().getBounds());
+	}
+	
+	@Test
+	public void testNodeNotInDiagram()
+	{
+		CallNode node = new CallNode();
+		assertFalse(aDiagram.layout().getBounds(node).isPresent());
+		assertFalse(aDiagram.layout().getBounds(new ImplicitParameterNode()).isPresent());
+	}
+	
+	@Test(timeout = 10000)
+	public void testManySequentialCalls()
+	{
+		CallNode last = null;
+		for( int i = 0; i < 2000; i++ )
+		{
+			last = call(aCaller, aParameter2);
+		}
+		assertEquals(new Rectangle(232, 100 + 50 * 1999, 16, 30), last.view().getBounds());
+		assertEquals(new Rectangle(32, 80, 16, 50 * 2000 + 20), aCaller.view().getBounds());
+	}
+}